@@ -0,0 +1,94 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.controller.ConcurrencyLimitInterceptor;
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Adaptive concurrency limits of the servlet {@code /api/v1/users} endpoints, one for reads and
+ * one for writes. The change feed is left out: its requests last as long as their subscribers,
+ * and the feed caps those itself.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "user-api.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+  @Value("${user-api.concurrency-limit.initial:20}")
+  private int initial;
+
+  @Value("${user-api.concurrency-limit.min:2}")
+  private int minLimit;
+
+  @Value("${user-api.concurrency-limit.max:200}")
+  private int maxLimit;
+
+  @Value("${user-api.concurrency-limit.tolerance:2.0}")
+  private double tolerance;
+
+  @Value("${user-api.concurrency-limit.window:100ms}")
+  private Duration window;
+
+  @Value("${user-api.concurrency-limit.probe-interval:30s}")
+  private Duration probeInterval;
+
+  @Value("${user-api.concurrency-limit.retry-after:1s}")
+  private Duration retryAfter;
+
+  @Bean
+  public AdaptiveConcurrencyLimit userReadLimit() {
+    return new AdaptiveConcurrencyLimit("user reads", initial, minLimit, maxLimit, tolerance,
+        window, probeInterval);
+  }
+
+  @Bean
+  public AdaptiveConcurrencyLimit userWriteLimit() {
+    return new AdaptiveConcurrencyLimit("user writes", initial, minLimit, maxLimit, tolerance,
+        window, probeInterval);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(
+            new ConcurrencyLimitInterceptor(userReadLimit(), userWriteLimit(), retryAfter))
+        .addPathPatterns("/api/v1/users/**")
+        .excludePathPatterns("/api/v1/users/changes");
+  }
+
+  @Bean
+  public MeterBinder userConcurrencyLimitMetrics(
+      @Qualifier("userReadLimit") AdaptiveConcurrencyLimit userReadLimit,
+      @Qualifier("userWriteLimit") AdaptiveConcurrencyLimit userWriteLimit) {
+    return registry -> Map.of("read", userReadLimit, "write", userWriteLimit)
+        .forEach((kind, limit) -> {
+          Gauge.builder("user.api.concurrency.limit", limit, AdaptiveConcurrencyLimit::limit)
+              .description("Requests of a kind admitted at a time")
+              .tag("kind", kind)
+              .register(registry);
+          Gauge.builder("user.api.concurrency.in.flight", limit,
+                  AdaptiveConcurrencyLimit::inFlight)
+              .description("Requests of a kind in progress")
+              .tag("kind", kind)
+              .register(registry);
+          FunctionCounter.builder("user.api.concurrency.rejected", limit,
+                  AdaptiveConcurrencyLimit::rejected)
+              .description("Requests turned away with 503 for exceeding the limit")
+              .tag("kind", kind)
+              .register(registry);
+        });
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.mapper.UserJsonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the user JSON converter ahead of the Jackson converter of the servlet stack.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class JsonConfig {
+
+  @Bean
+  public UserJsonHttpMessageConverter userJsonHttpMessageConverter(ObjectMapper objectMapper,
+      @Value("${user-json.cache-bytes:true}") boolean cacheBytes) {
+    return new UserJsonHttpMessageConverter(objectMapper, cacheBytes);
+  }
+
+}
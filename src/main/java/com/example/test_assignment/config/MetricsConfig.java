@@ -0,0 +1,50 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.service.BirthDateRangeCache;
+import com.example.test_assignment.service.BirthDateRangeCacheMetrics;
+import com.example.test_assignment.service.UserChangeFeed;
+import com.example.test_assignment.service.UserStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+  @Bean
+  public MeterBinder userStoreMetrics(UserStore userStore) {
+    return registry -> {
+      Gauge.builder("user.store.size", userStore, UserStore::size)
+          .description("Users stored, i.e. entries of the email index")
+          .register(registry);
+      Gauge.builder("user.store.birth.dates", userStore, UserStore::birthDateCount)
+          .description("Distinct birth dates in the birth-date index")
+          .register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder birthDateRangeCacheMetrics(BirthDateRangeCache birthDateRangeCache) {
+    return new BirthDateRangeCacheMetrics(birthDateRangeCache);
+  }
+
+  @Bean
+  public MeterBinder userChangeFeedMetrics(UserChangeFeed userChangeFeed) {
+    return registry -> {
+      Gauge.builder("user.change.feed.subscribers", userChangeFeed, UserChangeFeed::subscribers)
+          .description("Subscribers of the change feed")
+          .register(registry);
+      FunctionCounter.builder("user.change.feed.dropped", userChangeFeed,
+              UserChangeFeed::droppedChanges)
+          .description("Changes skipped for subscribers that fell behind")
+          .register(registry);
+      FunctionCounter.builder("user.change.feed.disconnected", userChangeFeed,
+              UserChangeFeed::disconnectedSubscribers)
+          .description("Subscribers cut off for falling behind")
+          .register(registry);
+    };
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.persistence.FsyncPolicy;
+import com.example.test_assignment.persistence.UserChangeLog;
+import com.example.test_assignment.persistence.UserSnapshots;
+import com.example.test_assignment.persistence.UserStorePersistence;
+import com.example.test_assignment.service.UserService;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+@ConditionalOnProperty(name = "user-store.persistence.enabled", havingValue = "true")
+public class PersistenceConfig {
+
+  @Value("${user-store.persistence.directory:data}")
+  private Path directory;
+
+  @Bean
+  public UserChangeLog userChangeLog(
+      @Value("${user-store.persistence.fsync:ALWAYS}") FsyncPolicy fsyncPolicy,
+      @Value("${user-store.persistence.fsync-interval:10ms}") Duration fsyncInterval,
+      @Value("${user-store.persistence.segment-size:64MB}") DataSize segmentSize)
+      throws IOException {
+    return new UserChangeLog(directory, fsyncPolicy, fsyncInterval, segmentSize.toBytes());
+  }
+
+  @Bean
+  public UserSnapshots userSnapshots() throws IOException {
+    return new UserSnapshots(directory);
+  }
+
+  @Bean(initMethod = "recover", destroyMethod = "close")
+  public UserStorePersistence userStorePersistence(UserService userService,
+      UserChangeLog userChangeLog, UserSnapshots userSnapshots,
+      @Value("${user-store.persistence.snapshot-interval:5m}") Duration snapshotInterval) {
+    return new UserStorePersistence(userService, userChangeLog, userSnapshots, snapshotInterval);
+  }
+
+}
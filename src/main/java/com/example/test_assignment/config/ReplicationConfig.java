@@ -0,0 +1,92 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.persistence.FollowerStatus;
+import com.example.test_assignment.persistence.ReplicationFollower;
+import com.example.test_assignment.persistence.ReplicationLeader;
+import com.example.test_assignment.persistence.ReplicationLog;
+import com.example.test_assignment.service.UserService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans of {@code user-store.replication.role}: {@code leader} streams its changes to followers
+ * over TCP, {@code follower} applies them and refuses writes.
+ */
+@Configuration
+public class ReplicationConfig {
+
+  @Configuration
+  @ConditionalOnProperty(name = "user-store.replication.role", havingValue = "leader")
+  public static class Leader {
+
+    @Bean
+    public ReplicationLog replicationLog(
+        @Value("${user-store.replication.backlog:100000}") int backlog,
+        @Value("${user-store.replication.follower-buffer:100000}") int followerBuffer) {
+      return new ReplicationLog(backlog, followerBuffer);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReplicationLeader replicationLeader(UserService userService,
+        ReplicationLog replicationLog,
+        @Value("${user-store.replication.port:5001}") int port,
+        @Value("${user-store.replication.watermark-interval:50ms}") Duration watermarkInterval) {
+      return new ReplicationLeader(userService, replicationLog, port, watermarkInterval);
+    }
+
+    @Bean
+    public MeterBinder replicationLeaderMetrics(ReplicationLog replicationLog) {
+      return registry -> Gauge.builder("user.replication.followers", replicationLog,
+              ReplicationLog::followers)
+          .description("Followers connected to this leader")
+          .register(registry);
+    }
+
+  }
+
+  @Configuration
+  @ConditionalOnProperty(name = "user-store.replication.role", havingValue = "follower")
+  public static class Follower {
+
+    @Value("${user-store.replication.leader-host:localhost}")
+    private String leaderHost;
+
+    @Value("${user-store.replication.port:5001}")
+    private int leaderPort;
+
+    @Bean
+    public FollowerStatus followerStatus(
+        @Value("${user-store.replication.max-staleness:1s}") Duration maxStaleness) {
+      return new FollowerStatus(leaderHost + ":" + leaderPort, maxStaleness);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReplicationFollower replicationFollower(UserService userService,
+        FollowerStatus followerStatus) {
+      return new ReplicationFollower(userService, followerStatus, leaderHost, leaderPort,
+          Duration.ofSeconds(1));
+    }
+
+    @Bean
+    public MeterBinder replicationFollowerMetrics(FollowerStatus followerStatus) {
+      return registry -> {
+        Gauge.builder("user.replication.lag", followerStatus,
+                status -> status.stalenessMillis() / 1000.0)
+            .description("Seconds since this follower was last known to be current")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("user.replication.applied.sequence", followerStatus,
+                FollowerStatus::getAppliedSequence)
+            .description("Sequence of the last change applied from the leader")
+            .register(registry);
+      };
+    }
+
+  }
+
+}
@@ -0,0 +1,68 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.persistence.UserSqlMirror;
+import com.example.test_assignment.service.UserService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.SQLException;
+import java.time.Duration;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "user-store.sql.enabled", havingValue = "true")
+public class SqlMirrorConfig {
+
+  @Value("${user-store.sql.url:jdbc:h2:file:./data/users}")
+  private String url;
+
+  @Bean(initMethod = "start", destroyMethod = "close")
+  public UserSqlMirror userSqlMirror(
+      @Value("${user-store.sql.flush-interval:100ms}") Duration flushInterval,
+      @Value("${user-store.sql.batch-size:1000}") int batchSize,
+      @Value("${user-store.sql.max-pending:100000}") int maxPending) {
+    return new UserSqlMirror(url, flushInterval, batchSize, maxPending);
+  }
+
+  /**
+   * Warm start: loads the store from the database before the application takes requests, unless
+   * the change log restores it.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "user-store.persistence.enabled", havingValue = "false",
+      matchIfMissing = true)
+  public SmartInitializingSingleton userSqlMirrorLoader(UserSqlMirror userSqlMirror,
+      UserService userService) {
+    return () -> {
+      try {
+        userSqlMirror.load(userService);
+      } catch (SQLException e) {
+        throw new IllegalStateException("Could not load users from " + url, e);
+      }
+    };
+  }
+
+  @Bean
+  public MeterBinder userSqlMirrorMetrics(UserSqlMirror userSqlMirror) {
+    return registry -> {
+      Gauge.builder("user.sql.pending", userSqlMirror, UserSqlMirror::pendingUsers)
+          .description("Users waiting to be written to the SQL mirror")
+          .register(registry);
+      Gauge.builder("user.sql.lag", userSqlMirror, UserSqlMirror::lagSeconds)
+          .description("Age of the oldest change not yet in the SQL mirror")
+          .baseUnit("seconds")
+          .register(registry);
+      FunctionCounter.builder("user.sql.rows", userSqlMirror, UserSqlMirror::flushedRows)
+          .description("Rows merged into or deleted from the SQL mirror")
+          .register(registry);
+      FunctionCounter.builder("user.sql.failures", userSqlMirror, UserSqlMirror::failedFlushes)
+          .description("Flushes to the SQL mirror that failed and were retried")
+          .register(registry);
+    };
+  }
+
+}
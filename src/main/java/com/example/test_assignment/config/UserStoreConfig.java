@@ -0,0 +1,81 @@
+package com.example.test_assignment.config;
+
+import com.example.test_assignment.service.BirthDateRangeCache;
+import com.example.test_assignment.service.CompactUserStore;
+import com.example.test_assignment.service.ObjectUserStore;
+import com.example.test_assignment.service.ShardedUserStore;
+import com.example.test_assignment.service.UserChangeFeed;
+import com.example.test_assignment.service.UserStore;
+import com.example.test_assignment.service.UserTextIndex;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class UserStoreConfig {
+
+  @Bean
+  public UserStore userStore(@Value("${user-store.engine:object}") String engine,
+      @Value("${user-store.shards:1}") int shards,
+      @Value("${user-store.max-retained-versions:100000}") int maxRetainedVersions) {
+    if (shards > 1) {
+      return new ShardedUserStore(shards, Runtime.getRuntime().availableProcessors(),
+          () -> engine(engine, maxRetainedVersions));
+    }
+    return engine(engine, maxRetainedVersions);
+  }
+
+  private static UserStore engine(String engine, int maxRetainedVersions) {
+    return switch (engine) {
+      case "object" -> new ObjectUserStore(maxRetainedVersions);
+      case "compact" -> new CompactUserStore();
+      default -> throw new IllegalArgumentException(
+          String.format("Unknown user-store.engine %s, expected object or compact", engine));
+    };
+  }
+
+  @Bean
+  public BirthDateRangeCache birthDateRangeCache(
+      @Value("${user-store.range-cache.max-users:100000}") long maxUsers) {
+    return new BirthDateRangeCache(maxUsers);
+  }
+
+  @Bean
+  public UserTextIndex userTextIndex(
+      @Value("${user-store.text-index.enabled:true}") boolean enabled) {
+    return new UserTextIndex(enabled);
+  }
+
+  @Bean
+  public UserChangeFeed userChangeFeed(
+      @Value("${user-changes.feed.backlog:10000}") int backlog,
+      @Value("${user-changes.feed.buffer:1000}") int buffer,
+      @Value("${user-changes.feed.max-subscribers:1000}") int maxSubscribers,
+      @Value("${user-changes.feed.retry-after:5s}") Duration retryAfter) {
+    return new UserChangeFeed(backlog, buffer, maxSubscribers, retryAfter);
+  }
+
+  /**
+   * Threads that send the change feed to the servlet stack's subscribers, all of them in turn.
+   * A client that stops reading holds one only once its socket buffer is full, until the write
+   * times out.
+   */
+  @Bean(destroyMethod = "shutdownNow")
+  @ConditionalOnWebApplication(type = Type.SERVLET)
+  public ScheduledExecutorService userChangeFeedSenders(
+      @Value("${user-changes.feed.sender-threads:4}") int threads) {
+    AtomicInteger created = new AtomicInteger();
+    return Executors.newScheduledThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "user-change-feed-" + created.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+}
@@ -1,12 +1,20 @@
 package com.example.test_assignment.controller;
 
 import com.example.test_assignment.model.ApiError;
+import com.example.test_assignment.service.OverloadedException;
+import com.example.test_assignment.service.ReplicaUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ValidationException;
 import java.util.HashMap;
 import java.util.Map;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -14,11 +22,16 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import org.webjars.NotFoundException;
 
 @Slf4j
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@RequiredArgsConstructor
 public class AdviceController extends ResponseEntityExceptionHandler {
 
+  private final MeterRegistry meterRegistry;
+
   @Override
   protected ResponseEntity<Object> handleMethodArgumentNotValid(
       MethodArgumentNotValidException ex,
@@ -30,14 +43,42 @@ public class AdviceController extends ResponseEntityExceptionHandler {
       errors.put(fieldName, errorMessage);
     });
     log.warn("Errors of validation: {}", errors);
+    countError("validation");
     return ResponseEntity.badRequest().body(new ApiError(HttpStatus.BAD_REQUEST, errors, ex));
   }
 
+  @ExceptionHandler(ReplicaUnavailableException.class)
+  protected ResponseEntity<Object> handleReplicaUnavailable(ReplicaUnavailableException ex) {
+    log.warn("Replica unavailable: {}", ex.getMessage());
+    countError("replica");
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .body(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex));
+  }
+
+  @ExceptionHandler(OverloadedException.class)
+  protected ResponseEntity<Object> handleOverloaded(OverloadedException ex) {
+    // Not logged as a warning: under overload that would be one more cost per request
+    log.debug("Overloaded: {}", ex.getMessage());
+    countError("overloaded");
+    // Set here, or a change feed client, which accepts only event streams, gets no 503
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER,
+            String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex));
+  }
+
   @ExceptionHandler()
   protected ResponseEntity<Object> handleNullPointerException(Exception ex) {
     log.warn("Exception: {}", ex.getMessage());
+    countError(ex instanceof NotFoundException ? "not_found"
+        : ex instanceof ValidationException ? "validation" : "other");
     return ResponseEntity.badRequest()
         .body(new ApiError(HttpStatus.BAD_REQUEST, ex.getMessage(), ex));
   }
 
+  private void countError(String type) {
+    meterRegistry.counter("user.api.errors", "type", type).increment();
+  }
+
 }
@@ -0,0 +1,70 @@
+package com.example.test_assignment.controller;
+
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit;
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit.Permit;
+import com.example.test_assignment.service.OverloadedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Admits requests to {@link UserController} through separate limits for reads and writes, so that
+ * a burst of wide range searches cannot hold up point writes, or the other way round. A request
+ * beyond its limit fails at once with an {@link OverloadedException}, answered by
+ * {@link AdviceController}.
+ *
+ * <p>A streamed response keeps its permit until the last byte is written: the request returns to
+ * the interceptor on its async dispatch, which finds the permit it already holds.
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+  private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+  private final AdaptiveConcurrencyLimit readLimit;
+
+  private final AdaptiveConcurrencyLimit writeLimit;
+
+  private final Duration retryAfter;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) {
+
+    if (request.getAttribute(PERMIT) == null) {
+      request.setAttribute(PERMIT, limitOf(request).acquire(retryAfter));
+    }
+    return true;
+
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+
+    Permit permit = (Permit) request.getAttribute(PERMIT);
+    if (permit == null) {
+      return;
+    }
+    request.removeAttribute(PERMIT);
+    // Rejected input is answered without the work whose latency the limit tracks
+    if (ex != null || response.getStatus() >= 400) {
+      permit.releaseIgnoringLatency();
+    } else {
+      permit.release();
+    }
+
+  }
+
+  private AdaptiveConcurrencyLimit limitOf(HttpServletRequest request) {
+
+    String method = request.getMethod();
+    return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) ? readLimit
+        : writeLimit;
+
+  }
+
+}
@@ -0,0 +1,85 @@
+package com.example.test_assignment.controller;
+
+import com.example.test_assignment.model.ApiError;
+import com.example.test_assignment.service.OverloadedException;
+import com.example.test_assignment.service.ReplicaUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ValidationException;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+import org.webjars.NotFoundException;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link AdviceController}, producing the same error bodies.
+ */
+@Slf4j
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveAdviceController extends ResponseEntityExceptionHandler {
+
+  private final MeterRegistry meterRegistry;
+
+  @Override
+  protected Mono<ResponseEntity<Object>> handleWebExchangeBindException(
+      WebExchangeBindException ex,
+      HttpHeaders headers, HttpStatusCode status, ServerWebExchange exchange) {
+    Map<String, String> errors = new HashMap<>();
+    ex.getBindingResult().getAllErrors().forEach(error -> {
+      String fieldName = ((FieldError) error).getField();
+      String errorMessage = error.getDefaultMessage();
+      errors.put(fieldName, errorMessage);
+    });
+    log.warn("Errors of validation: {}", errors);
+    countError("validation");
+    return Mono.just(ResponseEntity.badRequest()
+        .body(new ApiError(HttpStatus.BAD_REQUEST, errors, ex)));
+  }
+
+  @ExceptionHandler(ReplicaUnavailableException.class)
+  protected ResponseEntity<Object> handleReplicaUnavailable(ReplicaUnavailableException ex) {
+    log.warn("Replica unavailable: {}", ex.getMessage());
+    countError("replica");
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .body(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex));
+  }
+
+  @ExceptionHandler(OverloadedException.class)
+  protected ResponseEntity<Object> handleOverloaded(OverloadedException ex) {
+    log.debug("Overloaded: {}", ex.getMessage());
+    countError("overloaded");
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER,
+            String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+        .body(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex));
+  }
+
+  @ExceptionHandler()
+  protected ResponseEntity<Object> handleException(Exception ex) {
+    log.warn("Exception: {}", ex.getMessage());
+    countError(ex instanceof NotFoundException ? "not_found"
+        : ex instanceof ValidationException ? "validation" : "other");
+    return ResponseEntity.badRequest()
+        .body(new ApiError(HttpStatus.BAD_REQUEST, ex.getMessage(), ex));
+  }
+
+  private void countError(String type) {
+    meterRegistry.counter("user.api.errors", "type", type).increment();
+  }
+
+}
@@ -0,0 +1,176 @@
+package com.example.test_assignment.controller;
+
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserChangeEvent;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.ReactiveUserService;
+import com.example.test_assignment.service.UserChangeFeed.Overflow;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link UserController} with the same {@code /api/v1/users} contract,
+ * active with the {@code reactive} profile.
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserController {
+
+  private final ReactiveUserService userService;
+
+  @PostMapping
+  public Mono<User> addUser(@Valid @RequestBody UserDto userDto) {
+
+    return userService.addUser(userDto);
+
+  }
+
+  @PostMapping(path = "/batch",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public Mono<List<BatchItemResult>> addUsers(@RequestBody Flux<UserDto> userDtos) {
+
+    return userService.addUsers(userDtos);
+
+  }
+
+  @PatchMapping
+  public Mono<User> updateUserField(
+      @RequestParam @Email String email,
+      @RequestBody Map<String, Object> update) {
+
+    return userService.updateUserFields(email, update);
+
+  }
+
+  @PatchMapping("/batch")
+  public Mono<List<BatchItemResult>> updateUsersFields(
+      @RequestBody Map<String, Map<String, Object>> updates) {
+
+    return userService.updateUsersFields(updates);
+
+  }
+
+  @PutMapping
+  public Mono<User> updateUser(@Valid @RequestBody UserDto userDto) {
+
+    return userService.updateUser(userDto);
+
+  }
+
+  @DeleteMapping
+  public Mono<Void> deleteUser(@RequestParam @Email String email) {
+
+    return userService.deleteUser(email);
+
+  }
+
+  @DeleteMapping("/batch")
+  public Mono<List<BatchItemResult>> deleteUsers(@RequestBody List<String> emails) {
+
+    return userService.deleteUsers(emails);
+
+  }
+
+  /**
+   * Serves both the JSON array and, for {@code Accept: application/x-ndjson}, one user per line;
+   * either way users are encoded as the subscriber demands them. The users are only walked when
+   * the client's {@code If-None-Match} no longer matches the version of the range; otherwise the
+   * response is a bodiless 304.
+   */
+  @GetMapping
+  public Mono<ResponseEntity<Flux<User>>> searchUsersByBirthDateRange(
+      @RequestParam LocalDate from, @RequestParam LocalDate to, ServerWebExchange exchange) {
+
+    String representation = exchange.getRequest().getHeaders().getAccept()
+        .contains(MediaType.APPLICATION_NDJSON) ? "ndjson" : null;
+    return userService.birthDateRangeVersionTag(from, to)
+        .map(versionTag -> ResponseEntity.ok()
+            .eTag(UserController.eTag(versionTag, representation))
+            .body(userService.searchUsersByBirthDateRange(from, to)));
+
+  }
+
+  @GetMapping("/search")
+  public Mono<List<User>> searchUsersByText(@RequestParam String q,
+      @RequestParam(defaultValue = "SUBSTRING") TextMatch match,
+      @RequestParam(defaultValue = "20") int limit) {
+
+    return userService.searchUsersByText(q, match, limit);
+
+  }
+
+  @GetMapping("/by-phone")
+  public Mono<List<User>> findUsersByPhoneNumber(@RequestParam String number) {
+
+    return userService.findUsersByPhoneNumber(number);
+
+  }
+
+  @GetMapping("/birth-date-counts")
+  public Mono<List<BirthDateCount>> countUsersByBirthDate(@RequestParam LocalDate from,
+      @RequestParam LocalDate to, @RequestParam(defaultValue = "YEAR") Grouping groupBy) {
+
+    return userService.countUsersByBirthDate(from, to, groupBy);
+
+  }
+
+  /**
+   * Same events as {@link UserController#streamChanges}, sent as the client reads them.
+   */
+  @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<UserChangeEvent>> streamChanges(
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+      @RequestParam(required = false) Long since,
+      @RequestParam(defaultValue = "DISCONNECT") Overflow overflow) {
+
+    Flux<ServerSentEvent<UserChangeEvent>> events = userService
+        .streamChanges(lastEventId != null ? lastEventId : since, overflow)
+        .map(ReactiveUserController::sseEvent);
+    return events.publish(shared -> Flux.merge(shared,
+        Flux.interval(Duration.ofMillis(UserController.HEARTBEAT_INTERVAL_MILLIS))
+            .onBackpressureDrop()
+            .map(tick -> ServerSentEvent.<UserChangeEvent>builder().comment("heartbeat").build())
+            .takeUntilOther(shared.ignoreElements())));
+
+  }
+
+  private static ServerSentEvent<UserChangeEvent> sseEvent(UserChangeEvent event) {
+
+    return ServerSentEvent.builder(event)
+        .event(event.getKind().name().toLowerCase(Locale.ROOT))
+        .id(event.getSequence() > 0 ? Long.toString(event.getSequence()) : null)
+        .build();
+
+  }
+
+}
@@ -1,32 +1,94 @@
 package com.example.test_assignment.controller;
 
+import com.example.test_assignment.mapper.UserJsonHttpMessageConverter;
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
 import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserChangeEvent;
 import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.model.UserPatch;
+import com.example.test_assignment.service.UserChangeFeed;
+import com.example.test_assignment.service.UserChangeFeed.Overflow;
+import com.example.test_assignment.service.UserChangeFeed.Subscription;
 import com.example.test_assignment.service.UserService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1/users")
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequiredArgsConstructor
 public class UserController {
 
+  static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+  static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+  /**
+   * Formats of the users of a range, the first one for clients that accept any.
+   */
+  private static final List<MediaType> USER_FORMATS =
+      List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+  private static final int NDJSON_FLUSH_INTERVAL = 256;
+
+  /**
+   * How often an idle change feed sends a comment, which also finds out that a client is gone.
+   */
+  static final long HEARTBEAT_INTERVAL_MILLIS = 15_000;
+
   private final UserService userService;
 
+  private final ObjectMapper objectMapper;
+
+  private final UserJsonHttpMessageConverter userJsonConverter;
+
+  private final UserChangeFeed userChangeFeed;
+
+  private final ScheduledExecutorService userChangeFeedSenders;
+
   @PostMapping
   public ResponseEntity<User> addUser(@Valid @RequestBody UserDto userDto) {
 
@@ -34,12 +96,45 @@ public class UserController {
 
   }
 
-  @PatchMapping
+  @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+  public ResponseEntity<List<BatchItemResult>> addUsers(@RequestBody List<UserDto> userDtos) {
+
+    return ResponseEntity.ok(userService.addUsers(userDtos));
+
+  }
+
+  @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<List<BatchItemResult>> addUsersNdjson(InputStream body)
+      throws IOException {
+
+    try (MappingIterator<UserDto> userDtos =
+        objectMapper.readerFor(UserDto.class).readValues(body)) {
+      return ResponseEntity.ok(userService.addUsers(userDtos.readAll()));
+    }
+
+  }
+
+  /**
+   * Reads the body token by token into a {@link UserPatch} instead of binding it to a map first.
+   * Takes the JSON types a bound map took, e.g. {@code application/merge-patch+json}.
+   */
+  @PatchMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, "application/*+json"})
   public ResponseEntity<User> updateUserField(
       @RequestParam @Email String email,
-      @RequestBody Map<String, Object> update) {
+      InputStream body) throws IOException {
 
-    return ResponseEntity.ok(userService.updateUserFields(email, update));
+    try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+      return ResponseEntity.ok(userService.updateUserFields(email, UserPatch.parse(parser)));
+    }
+
+  }
+
+  @PatchMapping("/batch")
+  public ResponseEntity<List<BatchItemResult>> updateUsersFields(
+      @RequestBody Map<String, Map<String, Object>> updates) {
+
+    return ResponseEntity.ok(userService.updateUsersFields(updates));
 
   }
 
@@ -57,11 +152,293 @@ public class UserController {
 
   }
 
+  @DeleteMapping("/batch")
+  public ResponseEntity<List<BatchItemResult>> deleteUsers(@RequestBody List<String> emails) {
+
+    return ResponseEntity.ok(userService.deleteUsers(emails));
+
+  }
+
+  /**
+   * Answers 304 without reading or serializing any user when the client's {@code If-None-Match}
+   * still matches the version of the range. The users come as JSON, or as CBOR or Smile for
+   * clients that accept those.
+   */
   @GetMapping
-  public List<User> searchUsersByBirthDateRange(@RequestParam LocalDate from,
-      @RequestParam LocalDate to) {
+  public ResponseEntity<List<User>> searchUsersByBirthDateRange(@RequestParam LocalDate from,
+      @RequestParam LocalDate to, @RequestHeader HttpHeaders headers, WebRequest request) {
+
+    MediaType format = usersFormat(headers.getAccept());
+    String eTag = eTag(userService.birthDateRangeVersionTag(from, to),
+        binaryRepresentation(format));
+    if (request.checkNotModified(eTag)) {
+      return null;
+    }
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .eTag(eTag)
+        .varyBy(HttpHeaders.ACCEPT);
+    // Written in the format the entity tag names, not negotiated again
+    if (format != null) {
+      response.contentType(format);
+    }
+    return response.body(userService.searchUsersByBirthDateRange(from, to));
+
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRange(
+      @RequestParam LocalDate from, @RequestParam LocalDate to, WebRequest request) {
+
+    String eTag = eTag(userService.birthDateRangeVersionTag(from, to), "ndjson");
+    if (request.checkNotModified(eTag)) {
+      return null;
+    }
+    // Opened only once the body is written, so that no snapshot is held before the client reads
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .eTag(eTag)
+        .body(out -> writeNdjson(userService.streamUsersByBirthDateRange(from, to), out));
+
+  }
+
+  /**
+   * Users whose first name, last name or email matches {@code q}, ignoring case.
+   */
+  @GetMapping("/search")
+  public ResponseEntity<List<User>> searchUsersByText(@RequestParam String q,
+      @RequestParam(defaultValue = "SUBSTRING") TextMatch match,
+      @RequestParam(defaultValue = "20") int limit) {
+
+    return ResponseEntity.ok(userService.searchUsersByText(q, match, limit));
+
+  }
+
+  /**
+   * Users with the phone number {@code number}, written in any of its usual spellings.
+   */
+  @GetMapping("/by-phone")
+  public ResponseEntity<List<User>> findUsersByPhoneNumber(@RequestParam String number) {
+
+    return ResponseEntity.ok(userService.findUsersByPhoneNumber(number));
+
+  }
+
+  /**
+   * Histogram of the users born between {@code from} and {@code to}, from counters kept up to
+   * date on every change instead of from the users themselves.
+   */
+  @GetMapping("/birth-date-counts")
+  public ResponseEntity<List<BirthDateCount>> countUsersByBirthDate(@RequestParam LocalDate from,
+      @RequestParam LocalDate to, @RequestParam(defaultValue = "YEAR") Grouping groupBy) {
+
+    return ResponseEntity.ok(userService.countUsersByBirthDate(from, to, groupBy));
+
+  }
+
+  /**
+   * Server-sent events of every committed change, named after their {@link UserChangeEvent.Kind}
+   * and identified by their sequence. A client that reconnects with {@code Last-Event-ID}, or
+   * {@code since}, gets the changes it missed, or a {@code reset} if they are no longer kept.
+   *
+   * <p>Subscribers share the {@code userChangeFeedSenders}: a subscriber takes a sender only
+   * while it has events to send or a heartbeat is due, so a client that stops reading fills its
+   * own buffer and {@code overflow} decides what happens then. Beyond the feed's maximum of
+   * subscribers the request is turned away with 503.
+   */
+  @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamChanges(
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+      @RequestParam(required = false) Long since,
+      @RequestParam(defaultValue = "DISCONNECT") Overflow overflow) {
+
+    Subscription subscription =
+        userChangeFeed.subscribe(lastEventId != null ? lastEventId : since, overflow);
+    SseEmitter emitter = new SseEmitter(0L);
+    new ChangeSender(subscription, emitter).start();
+    return emitter;
+
+  }
+
+  /**
+   * Quoted entity tag for a version tag, suffixed by the representation so that responses of the
+   * same range in different formats never validate each other.
+   */
+  static String eTag(String versionTag, String representation) {
+
+    return "\"" + versionTag + (representation != null ? "-" + representation : "") + "\"";
+
+  }
+
+  /**
+   * The format among JSON, CBOR and Smile that {@code accept} prefers, as content negotiation
+   * ranks it: by quality, then by specificity. {@code null} if {@code accept} takes none of them.
+   */
+  static MediaType usersFormat(List<MediaType> accept) {
+
+    List<MediaType> ranked = new ArrayList<>(accept.isEmpty() ? List.of(MediaType.ALL) : accept);
+    MimeTypeUtils.sortBySpecificity(ranked);
+    for (MediaType acceptable : ranked) {
+      if (acceptable.getQualityValue() == 0) {
+        continue;
+      }
+      for (MediaType format : USER_FORMATS) {
+        if (acceptable.isCompatibleWith(format)) {
+          return format;
+        }
+      }
+    }
+    return null;
+
+  }
+
+  /**
+   * {@code cbor} or {@code smile} for those formats, {@code null} for JSON.
+   */
+  static String binaryRepresentation(MediaType format) {
+
+    if (MediaType.APPLICATION_CBOR.equals(format)) {
+      return "cbor";
+    }
+    if (APPLICATION_SMILE.equals(format)) {
+      return "smile";
+    }
+    return null;
+
+  }
+
+  /**
+   * Copies one user per line straight into the response. Only the buffer is held in memory; a
+   * slow client blocks the write and therefore the index walk.
+   */
+  private void writeNdjson(Stream<User> users, OutputStream out) throws IOException {
+
+    try (users; OutputStream buffered = new BufferedOutputStream(out)) {
+      int written = 0;
+      for (Iterator<User> it = users.iterator(); it.hasNext(); ) {
+        buffered.write(userJsonConverter.toJson(it.next()));
+        buffered.write('\n');
+        if (++written % NDJSON_FLUSH_INTERVAL == 0) {
+          buffered.flush();
+        }
+      }
+    }
+
+  }
+
+  private static SseEmitter.SseEventBuilder sseEvent(UserChangeEvent event) {
+
+    // Fields are written in the order they are set
+    SseEmitter.SseEventBuilder builder = SseEmitter.event();
+    if (event.getSequence() > 0) {
+      builder.id(Long.toString(event.getSequence()));
+    }
+    return builder.name(event.getKind().name().toLowerCase(Locale.ROOT))
+        .data(event, MediaType.APPLICATION_JSON);
+
+  }
+
+  /**
+   * Sends a subscription's events on the {@code userChangeFeedSenders}. Sends run one at a time;
+   * a signal during a send makes it go round once more.
+   */
+  private final class ChangeSender {
+
+    private final Subscription subscription;
+
+    private final SseEmitter emitter;
+
+    private final AtomicInteger signals = new AtomicInteger();
+
+    private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+
+    private volatile ScheduledFuture<?> heartbeats;
+
+    ChangeSender(Subscription subscription, SseEmitter emitter) {
+
+      this.subscription = subscription;
+      this.emitter = emitter;
+
+    }
+
+    void start() {
+
+      heartbeats = userChangeFeedSenders.scheduleWithFixedDelay(() -> {
+        heartbeatDue.set(true);
+        signal();
+      }, HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      emitter.onCompletion(this::stop);
+      emitter.onError(e -> stop());
+      subscription.onAvailable(this::signal);
+      // Changes missed since Last-Event-ID are already queued
+      signal();
+
+    }
+
+    private void signal() {
+
+      if (signals.getAndIncrement() == 0) {
+        try {
+          userChangeFeedSenders.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          // Shutting down
+          stop();
+        }
+      }
+
+    }
+
+    private void drain() {
+
+      int missed = 1;
+      do {
+        if (!send()) {
+          stop();
+          return;
+        }
+        missed = signals.addAndGet(-missed);
+      } while (missed != 0);
+
+    }
+
+    /**
+     * Sends the events queued without waiting for more, or a heartbeat if one is due and there
+     * were none.
+     *
+     * @return whether the subscriber is still served
+     */
+    private boolean send() {
+
+      try {
+        boolean sent = false;
+        UserChangeEvent event;
+        while ((event = subscription.poll()) != null) {
+          emitter.send(sseEvent(event));
+          sent = true;
+        }
+        if (subscription.isClosed()) {
+          emitter.complete();
+          return false;
+        }
+        if (heartbeatDue.getAndSet(false) && !sent) {
+          emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+        return true;
+      } catch (IOException | IllegalStateException e) {
+        // The client is gone and the emitter already completed
+        return false;
+      }
+
+    }
+
+    private void stop() {
+
+      ScheduledFuture<?> heartbeats = this.heartbeats;
+      if (heartbeats != null) {
+        heartbeats.cancel(false);
+      }
+      subscription.close();
 
-    return userService.searchUsersByBirthDateRange(from, to);
+    }
 
   }
 
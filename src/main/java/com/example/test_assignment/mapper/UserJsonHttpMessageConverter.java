@@ -0,0 +1,136 @@
+package com.example.test_assignment.mapper;
+
+import com.example.test_assignment.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * Writes {@link User} and collections of users as JSON by copying each user's encoded bytes into
+ * the response, instead of running Jackson over every user of every response.
+ *
+ * <p>With caching on, a user is encoded once and keeps its bytes until it is replaced by a
+ * modified copy (see {@link User#json}); with caching off, every user is encoded on each write.
+ * The bytes come from the application's {@link ObjectMapper}, so the output is the same as that of
+ * the Jackson converter. Everything else, and reading, is left to the Jackson converter.
+ */
+public class UserJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+  private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+  private final ObjectWriter writer;
+
+  private final boolean cacheBytes;
+
+  public UserJsonHttpMessageConverter(ObjectMapper objectMapper, boolean cacheBytes) {
+
+    super(MediaType.APPLICATION_JSON);
+    this.writer = objectMapper.writerFor(User.class);
+    this.cacheBytes = cacheBytes;
+
+  }
+
+  /**
+   * Encoded JSON of {@code user}.
+   */
+  public byte[] toJson(User user) {
+
+    return cacheBytes ? user.json(this::encode) : encode(user);
+
+  }
+
+  private byte[] encode(User user) {
+
+    try {
+      return writer.writeValueAsBytes(user);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+
+    return User.class.equals(clazz);
+
+  }
+
+  @Override
+  public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+
+    return false;
+
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+
+    return false;
+
+  }
+
+  @Override
+  public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+
+    if (!canWrite(mediaType)) {
+      return false;
+    }
+    ResolvableType resolved = type != null ? ResolvableType.forType(type)
+        : ResolvableType.forClass(clazz);
+    if (User.class.equals(resolved.resolve())) {
+      return true;
+    }
+    return resolved.asCollection() != ResolvableType.NONE
+        && User.class.equals(resolved.asCollection().resolveGeneric(0));
+
+  }
+
+  @Override
+  protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage)
+      throws IOException {
+
+    OutputStream out = outputMessage.getBody();
+    if (value instanceof User user) {
+      out.write(toJson(user));
+      return;
+    }
+    out.write('[');
+    boolean first = true;
+    for (Object user : (Collection<?>) value) {
+      if (!first) {
+        out.write(',');
+      }
+      first = false;
+      out.write(user != null ? toJson((User) user) : NULL);
+    }
+    out.write(']');
+
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+
+    throw new HttpMessageNotReadableException("Not readable", inputMessage);
+
+  }
+
+  @Override
+  public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+
+    throw new HttpMessageNotReadableException("Not readable", inputMessage);
+
+  }
+
+}
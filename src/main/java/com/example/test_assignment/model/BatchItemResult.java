@@ -0,0 +1,25 @@
+package com.example.test_assignment.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+  public enum Status {
+    CREATED, UPDATED, DELETED, INVALID, CONFLICT, NOT_FOUND
+  }
+
+  private int index;
+
+  private String email;
+
+  private Status status;
+
+  private Map<String, String> errors;
+
+}
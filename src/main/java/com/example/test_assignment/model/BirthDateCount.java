@@ -0,0 +1,30 @@
+package com.example.test_assignment.model;
+
+import java.time.LocalDate;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Number of users born in one bucket of a birth-date window: a year, a month or an age band. The
+ * bucket's dates are clipped to the window.
+ */
+@Data
+@Builder
+public class BirthDateCount {
+
+  public enum Grouping {
+    YEAR, MONTH, AGE_BAND
+  }
+
+  /**
+   * {@code 1990}, {@code 1990-05} or an age band such as {@code 18-27}.
+   */
+  private String bucket;
+
+  private LocalDate from;
+
+  private LocalDate to;
+
+  private long count;
+
+}
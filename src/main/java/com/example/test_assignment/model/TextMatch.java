@@ -0,0 +1,8 @@
+package com.example.test_assignment.model;
+
+/**
+ * How a text search matches the first name, last name and email of a user, ignoring case.
+ */
+public enum TextMatch {
+  PREFIX, SUBSTRING
+}
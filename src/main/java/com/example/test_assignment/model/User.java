@@ -1,16 +1,29 @@
 package com.example.test_assignment.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import lombok.AccessLevel;
 import lombok.Builder;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
-@Builder
+/**
+ * A stored user. Users are immutable, so a user read from the store can be used and serialized
+ * without locking; a change stores a new user built with {@code toBuilder()}.
+ */
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 public class User {
 
   @NotBlank
@@ -36,4 +49,28 @@ public class User {
   @JsonProperty("Phone number")
   private String phoneNumber;
 
+  /**
+   * Encoded JSON of this user. Not copied by {@code toBuilder()}, so a modified copy starts
+   * without it.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final transient AtomicReference<byte[]> json = new AtomicReference<>();
+
+  /**
+   * Returns the JSON of this user, encoding it with {@code encoder} on first use only.
+   */
+  public byte[] json(Function<User, byte[]> encoder) {
+
+    byte[] bytes = json.get();
+    if (bytes == null) {
+      bytes = encoder.apply(this);
+      json.set(bytes);
+    }
+    return bytes;
+
+  }
+
 }
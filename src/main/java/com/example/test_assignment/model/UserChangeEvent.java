@@ -0,0 +1,37 @@
+package com.example.test_assignment.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One event of the change feed: a committed change of a user, or a reset telling the subscriber
+ * that it missed changes and has to reload what it caches.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChangeEvent {
+
+  public enum Kind {
+    ADD, UPDATE, PATCH, DELETE, RESET
+  }
+
+  /**
+   * Sequence of the change; for a reset, the last change missed, {@code 0} if unknown.
+   */
+  private long sequence;
+
+  private Kind kind;
+
+  /**
+   * Email the user was stored under before the change.
+   */
+  private String email;
+
+  /**
+   * State of the user after the change, absent for deletes and resets.
+   */
+  private User user;
+
+}
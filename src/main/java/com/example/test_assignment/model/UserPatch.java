@@ -0,0 +1,206 @@
+package com.example.test_assignment.model;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Partial update of a {@link User}, keyed by the JSON property names of {@link User}.
+ *
+ * <p>Building a patch only resolves each name against a fixed table of fields and converts its
+ * value to the field's type; unknown names and unconvertible values are collected in
+ * {@link #errors()} instead of failing the patch, so that all problems can be reported at once.
+ * Nothing is applied to a user until {@link #applyTo} is called.
+ */
+public final class UserPatch {
+
+  /**
+   * Fields a patch can set: their JSON name, the {@link UserDto} property whose constraints apply
+   * to them, how their value is parsed and how it is set on a {@link User.UserBuilder}.
+   */
+  public enum Field {
+
+    EMAIL("Email", "email", text -> text, (user, value) -> user.email((String) value)),
+    FIRST_NAME("First name", "firstName", text -> text,
+        (user, value) -> user.firstName((String) value)),
+    LAST_NAME("Last name", "lastName", text -> text,
+        (user, value) -> user.lastName((String) value)),
+    BIRTH_DATE("Birth date", "birthDate", LocalDate::parse,
+        (user, value) -> user.birthDate((LocalDate) value)),
+    ADDRESS("Address", "address", text -> text,
+        (user, value) -> user.address((String) value)),
+    PHONE_NUMBER("Phone number", "phoneNumber", text -> text,
+        (user, value) -> user.phoneNumber((String) value));
+
+    private static final Field[] FIELDS = values();
+
+    private static final Map<String, Field> BY_JSON_NAME = new HashMap<>();
+
+    static {
+      for (Field field : FIELDS) {
+        BY_JSON_NAME.put(field.jsonName, field);
+      }
+    }
+
+    private final String jsonName;
+
+    private final String property;
+
+    private final Function<String, Object> parser;
+
+    private final BiConsumer<User.UserBuilder, Object> setter;
+
+    Field(String jsonName, String property, Function<String, Object> parser,
+        BiConsumer<User.UserBuilder, Object> setter) {
+
+      this.jsonName = jsonName;
+      this.property = property;
+      this.parser = parser;
+      this.setter = setter;
+
+    }
+
+    public String jsonName() {
+
+      return jsonName;
+
+    }
+
+    public String property() {
+
+      return property;
+
+    }
+
+  }
+
+  private final Object[] values = new Object[Field.FIELDS.length];
+
+  /**
+   * Bit {@code i} is set if the field with ordinal {@code i} is in the patch.
+   */
+  private int present;
+
+  private Map<String, String> errors;
+
+  private UserPatch() {
+  }
+
+  /**
+   * Reads a patch from a JSON object, straight from the parser's tokens.
+   *
+   * @throws JsonParseException if the input is not a JSON object
+   */
+  public static UserPatch parse(JsonParser parser) throws IOException {
+
+    UserPatch patch = new UserPatch();
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected a JSON object");
+    }
+    String name;
+    while ((name = parser.nextFieldName()) != null) {
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.VALUE_STRING) {
+        patch.set(name, parser.getText());
+      } else if (token == JsonToken.VALUE_NULL) {
+        patch.set(name, null);
+      } else {
+        parser.skipChildren();
+        patch.set(name, token);
+      }
+    }
+    if (parser.currentToken() != JsonToken.END_OBJECT) {
+      throw new JsonParseException(parser, "Expected a field name or the end of the object");
+    }
+    return patch;
+
+  }
+
+  /**
+   * Builds a patch from an already bound JSON object.
+   */
+  public static UserPatch of(Map<String, Object> update) {
+
+    UserPatch patch = new UserPatch();
+    for (Entry<String, Object> entry : update.entrySet()) {
+      patch.set(entry.getKey(), entry.getValue());
+    }
+    return patch;
+
+  }
+
+  /**
+   * Sets the field named {@code name} from {@code value}, a string, null or anything else, which
+   * is rejected.
+   */
+  private void set(String name, Object value) {
+
+    Field field = Field.BY_JSON_NAME.get(name);
+    if (field == null) {
+      error(name, String.format("Field %s not found", name));
+      return;
+    }
+    if (value != null && !(value instanceof String)) {
+      error(name, "must be a string");
+      return;
+    }
+    try {
+      values[field.ordinal()] = value != null ? field.parser.apply((String) value) : null;
+      present |= 1 << field.ordinal();
+    } catch (DateTimeParseException e) {
+      error(name, "must be a date in the format yyyy-MM-dd");
+    }
+
+  }
+
+  private void error(String name, String message) {
+
+    if (errors == null) {
+      errors = new LinkedHashMap<>();
+    }
+    errors.put(name, message);
+
+  }
+
+  /**
+   * Problems found while building the patch, by JSON name. A patch with errors must not be
+   * applied.
+   */
+  public Map<String, String> errors() {
+
+    return errors != null ? errors : Map.of();
+
+  }
+
+  /**
+   * Calls {@code action} with each field in the patch and its parsed value.
+   */
+  public void forEach(BiConsumer<Field, Object> action) {
+
+    for (Field field : Field.FIELDS) {
+      if ((present & 1 << field.ordinal()) != 0) {
+        action.accept(field, values[field.ordinal()]);
+      }
+    }
+
+  }
+
+  /**
+   * Sets every field in the patch on {@code user}, e.g. the {@code toBuilder()} of a stored user.
+   */
+  public void applyTo(User.UserBuilder user) {
+
+    forEach((field, value) -> field.setter.accept(user, value));
+
+  }
+
+}
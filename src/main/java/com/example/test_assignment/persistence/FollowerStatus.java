@@ -0,0 +1,88 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.service.ReplicaRole;
+import com.example.test_assignment.service.ReplicaUnavailableException;
+import java.time.Duration;
+
+/**
+ * Role of an instance that replicates from a leader: it refuses writes, and refuses reads once its
+ * state is older than the staleness bound, e.g. because the leader is unreachable.
+ *
+ * <p>Staleness is measured against the leader's clock, so it is exact for followers on the
+ * leader's host and off by the clock skew between hosts otherwise.
+ */
+public class FollowerStatus implements ReplicaRole {
+
+  private final String leader;
+
+  private final long maxStalenessMillis;
+
+  /**
+   * Leader time at which this follower's state was last known to be current, {@code 0} until the
+   * first watermark.
+   */
+  private volatile long currentAtMillis;
+
+  private volatile long appliedSequence;
+
+  /**
+   * @param leader       address of the leader, for error messages
+   * @param maxStaleness how far behind the leader reads may be
+   */
+  public FollowerStatus(String leader, Duration maxStaleness) {
+
+    this.leader = leader;
+    this.maxStalenessMillis = maxStaleness.toMillis();
+
+  }
+
+  @Override
+  public void checkWritable() {
+
+    throw new ReplicaUnavailableException(
+        String.format("This instance is a read-only follower, write to the leader at %s",
+            leader));
+
+  }
+
+  @Override
+  public void checkFresh() {
+
+    long staleness = stalenessMillis();
+    if (staleness > maxStalenessMillis) {
+      throw new ReplicaUnavailableException(currentAtMillis == 0
+          ? String.format("Not synchronized with the leader at %s yet", leader)
+          : String.format("%d ms behind the leader at %s, more than the %d ms allowed",
+              staleness, leader, maxStalenessMillis));
+    }
+
+  }
+
+  /**
+   * How long ago, in the leader's time, this follower's state was last known to be current.
+   */
+  public long stalenessMillis() {
+
+    long currentAt = currentAtMillis;
+    return currentAt == 0 ? Long.MAX_VALUE
+        : Math.max(0, System.currentTimeMillis() - currentAt);
+
+  }
+
+  /**
+   * Sequence of the last change applied, as of the last watermark.
+   */
+  public long getAppliedSequence() {
+
+    return appliedSequence;
+
+  }
+
+  void caughtUp(long sequence, long leaderMillis) {
+
+    appliedSequence = sequence;
+    currentAtMillis = leaderMillis;
+
+  }
+
+}
@@ -0,0 +1,23 @@
+package com.example.test_assignment.persistence;
+
+/**
+ * When the change log forces appended records to disk.
+ */
+public enum FsyncPolicy {
+
+  /**
+   * Every write waits until its record is on disk. Concurrent writers share one fsync.
+   */
+  ALWAYS,
+
+  /**
+   * Records are forced at a fixed interval; a crash may lose the last interval of writes.
+   */
+  INTERVAL,
+
+  /**
+   * Records are handed to the OS and only forced on rotation and close.
+   */
+  NEVER
+
+}
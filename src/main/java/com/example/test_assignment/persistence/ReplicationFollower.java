@@ -0,0 +1,172 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChange.Type;
+import com.example.test_assignment.service.UserService;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps this instance a copy of a {@link ReplicationLeader}: connects to it, applies the changes
+ * it streams and reports watermarks to the {@link FollowerStatus}. A lost connection is retried
+ * from the last applied change.
+ */
+@Slf4j
+public class ReplicationFollower implements Closeable {
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+  private final UserService userService;
+
+  private final FollowerStatus status;
+
+  private final String host;
+
+  private final int port;
+
+  private final long reconnectDelayMillis;
+
+  private Thread receiver;
+
+  private volatile Socket socket;
+
+  private volatile boolean closed;
+
+  /**
+   * Set while a snapshot is being copied: until it ends the store is a mix of old and new users,
+   * which no sequence describes.
+   */
+  private boolean copying;
+
+  /**
+   * @param reconnectDelay pause before connecting again after losing the leader
+   */
+  public ReplicationFollower(UserService userService, FollowerStatus status, String host, int port,
+      Duration reconnectDelay) {
+
+    this.userService = userService;
+    this.status = status;
+    this.host = host;
+    this.port = port;
+    this.reconnectDelayMillis = reconnectDelay.toMillis();
+
+  }
+
+  public void start() {
+
+    receiver = new Thread(this::receiveLoop, "replication-follower");
+    receiver.setDaemon(true);
+    receiver.start();
+
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    closed = true;
+    Socket current = socket;
+    if (current != null) {
+      current.close();
+    }
+    if (receiver != null) {
+      receiver.interrupt();
+      try {
+        receiver.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+  }
+
+  private void receiveLoop() {
+
+    while (!closed) {
+      try (Socket connection = new Socket()) {
+        socket = connection;
+        connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        connection.setTcpNoDelay(true);
+        DataOutputStream out = new DataOutputStream(connection.getOutputStream());
+        out.writeLong(copying ? ReplicationLeader.NO_SEQUENCE : userService.currentSequence());
+        out.flush();
+        receive(new DataInputStream(new BufferedInputStream(connection.getInputStream())));
+      } catch (IOException e) {
+        if (!closed) {
+          log.warn("Replication from {}:{} interrupted: {}", host, port, e.toString());
+        }
+      }
+      try {
+        Thread.sleep(reconnectDelayMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+
+  }
+
+  private void receive(DataInputStream in) throws IOException {
+
+    Set<String> snapshotEmails = null;
+    long snapshotSequence = 0;
+    while (true) {
+      byte message = in.readByte();
+      switch (message) {
+        case ReplicationLeader.CHANGE -> {
+          UserChange change = UserCodec.readChange(in);
+          if (snapshotEmails != null) {
+            snapshotEmails.add(change.email());
+          }
+          userService.applyChange(change);
+        }
+        case ReplicationLeader.SNAPSHOT_START -> {
+          snapshotSequence = in.readLong();
+          snapshotEmails = new HashSet<>();
+          copying = true;
+        }
+        case ReplicationLeader.SNAPSHOT_END -> {
+          if (snapshotEmails == null) {
+            throw new IOException("Snapshot end without a snapshot");
+          }
+          dropUsersNotIn(snapshotEmails);
+          // Not the highest sequence seen: one left from an earlier leader may be ahead of this
+          // one, and resuming from it would skip this leader's changes in between
+          userService.resetSequence(snapshotSequence);
+          copying = false;
+          log.info("Copied {} users from the leader at sequence {}", snapshotEmails.size(),
+              snapshotSequence);
+          snapshotEmails = null;
+        }
+        case ReplicationLeader.WATERMARK -> status.caughtUp(in.readLong(), in.readLong());
+        default -> throw new IOException("Unknown replication message " + message);
+      }
+    }
+
+  }
+
+  /**
+   * Deletes the users this follower kept from before the snapshot that the leader no longer has.
+   */
+  private void dropUsersNotIn(Set<String> snapshotEmails) {
+
+    List<String> dropped = userService.streamAllUsers()
+        .map(User::getEmail)
+        .filter(email -> !snapshotEmails.contains(email))
+        .toList();
+    for (String email : dropped) {
+      userService.applyChange(new UserChange(0, Type.DELETE, email, null));
+    }
+
+  }
+
+}
@@ -0,0 +1,240 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.persistence.ReplicationLog.Subscription;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChange.Type;
+import com.example.test_assignment.service.UserService;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams the changes of this instance to {@link ReplicationFollower}s over TCP.
+ *
+ * <p>A follower opens a connection and sends the sequence of the last change it applied, or
+ * {@link #NO_SEQUENCE} if it holds no consistent state, e.g. after an interrupted snapshot. It then
+ * receives, in order:
+ * <ul>
+ *   <li>if the {@link ReplicationLog} backlog no longer reaches back to that sequence, a snapshot
+ *   of every user, framed by {@link #SNAPSHOT_START} and {@link #SNAPSHOT_END};</li>
+ *   <li>every change committed after that, each a {@link #CHANGE} record in the change log
+ *   format;</li>
+ *   <li>after each batch of changes, and every watermark interval while there are none, a
+ *   {@link #WATERMARK} with the leader's time at which the follower's state is current.</li>
+ * </ul>
+ *
+ * <p>Like the snapshots on disk, replication snapshots are fuzzy: users are read while writers
+ * keep going, and the changes queued from before the snapshot started converge the follower to
+ * the leader's state.
+ */
+@Slf4j
+public class ReplicationLeader implements Closeable {
+
+  /**
+   * Followed by a change record.
+   */
+  static final byte CHANGE = 'C';
+
+  /**
+   * Followed by the sequence of the last change sent and the leader's time in epoch
+   * milliseconds at which every change committed so far was sent.
+   */
+  static final byte WATERMARK = 'W';
+
+  /**
+   * Followed by the sequence the snapshot starts from; the users come as ADD records.
+   */
+  static final byte SNAPSHOT_START = 'S';
+
+  static final byte SNAPSHOT_END = 'E';
+
+  /**
+   * Sent by a follower instead of a sequence to ask for a snapshot.
+   */
+  static final long NO_SEQUENCE = -1;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final UserService userService;
+
+  private final ReplicationLog replicationLog;
+
+  private final int port;
+
+  private final long watermarkIntervalMillis;
+
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+  private ServerSocket serverSocket;
+
+  private volatile boolean closed;
+
+  /**
+   * @param port              port to listen on, {@code 0} for any free port
+   * @param watermarkInterval how often an idle follower hears from the leader
+   */
+  public ReplicationLeader(UserService userService, ReplicationLog replicationLog, int port,
+      Duration watermarkInterval) {
+
+    this.userService = userService;
+    this.replicationLog = replicationLog;
+    this.port = port;
+    this.watermarkIntervalMillis = Math.max(1, watermarkInterval.toMillis());
+
+  }
+
+  public void start() throws IOException {
+
+    serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(port));
+    Thread acceptor = new Thread(this::acceptLoop, "replication-leader");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    log.info("Replication leader listening on port {}", getPort());
+
+  }
+
+  /**
+   * The port the leader listens on, e.g. when started on any free port.
+   */
+  public int getPort() {
+
+    return serverSocket.getLocalPort();
+
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    closed = true;
+    if (serverSocket != null) {
+      serverSocket.close();
+    }
+    for (Socket connection : connections) {
+      connection.close();
+    }
+
+  }
+
+  private void acceptLoop() {
+
+    while (!closed) {
+      try {
+        Socket socket = serverSocket.accept();
+        connections.add(socket);
+        Thread sender = new Thread(() -> serve(socket),
+            "replication-sender-" + socket.getRemoteSocketAddress());
+        sender.setDaemon(true);
+        sender.start();
+      } catch (IOException e) {
+        if (!closed) {
+          log.error("Replication leader stopped accepting followers", e);
+        }
+        return;
+      }
+    }
+
+  }
+
+  private void serve(Socket socket) {
+
+    try (socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE))) {
+      socket.setTcpNoDelay(true);
+      long appliedSequence = in.readLong();
+      Subscription subscription = replicationLog.subscribe(appliedSequence);
+      log.info("Follower {} connected at sequence {}{}", socket.getRemoteSocketAddress(),
+          appliedSequence, subscription.needsSnapshot ? ", sending a snapshot" : "");
+      try {
+        long lastSent = appliedSequence;
+        if (subscription.needsSnapshot) {
+          // Changes restored from disk never went through the replication log
+          lastSent = Math.max(subscription.startSequence, userService.currentSequence());
+          sendSnapshot(out, lastSent);
+        }
+        sendChanges(out, subscription, lastSent);
+      } finally {
+        replicationLog.unsubscribe(subscription);
+      }
+    } catch (IOException | InterruptedException e) {
+      if (!closed) {
+        log.info("Follower {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+      }
+    } finally {
+      connections.remove(socket);
+    }
+
+  }
+
+  private void sendSnapshot(DataOutputStream out, long startSequence) throws IOException {
+
+    ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    out.writeByte(SNAPSHOT_START);
+    out.writeLong(startSequence);
+    try (Stream<User> users = userService.streamAllUsers()) {
+      for (Iterator<User> it = users.iterator(); it.hasNext(); ) {
+        User user = it.next();
+        out.writeByte(CHANGE);
+        UserCodec.writeChange(out, scratch, new UserChange(0, Type.ADD, user.getEmail(), user));
+      }
+    }
+    out.writeByte(SNAPSHOT_END);
+
+  }
+
+  /**
+   * Sends the queued changes in batches, each followed by a watermark, until the connection or
+   * the leader is closed or the follower falls too far behind.
+   */
+  private void sendChanges(DataOutputStream out, Subscription subscription, long lastSent)
+      throws IOException, InterruptedException {
+
+    ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    List<UserChange> batch = new ArrayList<>();
+    while (!closed) {
+      long idleSince = System.currentTimeMillis();
+      UserChange first = subscription.changes.poll(watermarkIntervalMillis,
+          TimeUnit.MILLISECONDS);
+      if (subscription.overflowed) {
+        throw new IOException("Follower fell too far behind");
+      }
+      // Every change committed before this time is in this batch or was sent before
+      long currentAt = first == null ? idleSince : System.currentTimeMillis();
+      if (first != null) {
+        batch.add(first);
+        subscription.changes.drainTo(batch);
+        for (UserChange change : batch) {
+          out.writeByte(CHANGE);
+          UserCodec.writeChange(out, scratch, change);
+          lastSent = change.sequence();
+        }
+        batch.clear();
+      }
+      out.writeByte(WATERMARK);
+      out.writeLong(lastSent);
+      out.writeLong(currentAt);
+      out.flush();
+    }
+
+  }
+
+}
@@ -0,0 +1,134 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChangeListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Leader side of replication: hands every committed {@link UserChange} to the connected
+ * followers and keeps the most recent ones, so that a follower reconnecting shortly after losing
+ * its connection can resume where it stopped instead of copying the whole store again.
+ *
+ * <p>{@link #onChange} only appends to in-memory queues and never waits: a follower whose queue
+ * is full is cut off and has to reconnect, so a slow follower never slows down writers.
+ */
+public class ReplicationLog implements UserChangeListener {
+
+  private final int backlogSize;
+
+  private final int followerBufferSize;
+
+  // guarded by this
+  private final Deque<UserChange> backlog = new ArrayDeque<>();
+
+  private final List<Subscription> subscriptions = new ArrayList<>();
+
+  private long lastSequence;
+
+  /**
+   * @param backlogSize        number of recent changes kept for followers that reconnect
+   * @param followerBufferSize number of changes a follower may fall behind before it is cut off
+   */
+  public ReplicationLog(int backlogSize, int followerBufferSize) {
+
+    this.backlogSize = backlogSize;
+    this.followerBufferSize = followerBufferSize;
+
+  }
+
+  @Override
+  public synchronized void onChange(UserChange change) {
+
+    lastSequence = change.sequence();
+    backlog.addLast(change);
+    if (backlog.size() > backlogSize) {
+      backlog.removeFirst();
+    }
+    subscriptions.removeIf(subscription -> {
+      if (subscription.changes.offer(change)) {
+        return false;
+      }
+      subscription.overflowed = true;
+      return true;
+    });
+
+  }
+
+  /**
+   * Starts collecting changes for a follower that has applied every change up to
+   * {@code appliedSequence}. If the backlog still holds every change after it, they are queued
+   * first; otherwise the follower needs a snapshot taken after this call, followed by the queued
+   * changes.
+   */
+  synchronized Subscription subscribe(long appliedSequence) {
+
+    // Changes from before the first one seen here, e.g. restored from disk, are not in the
+    // backlog, so an empty backlog says nothing about what the follower misses
+    UserChange oldest = backlog.peekFirst();
+    boolean resumable = oldest != null && appliedSequence >= oldest.sequence() - 1
+        && appliedSequence <= lastSequence
+        && lastSequence - appliedSequence <= followerBufferSize;
+    Subscription subscription = new Subscription(followerBufferSize, lastSequence, !resumable);
+    if (resumable) {
+      for (UserChange change : backlog) {
+        if (change.sequence() > appliedSequence) {
+          subscription.changes.add(change);
+        }
+      }
+    }
+    subscriptions.add(subscription);
+    return subscription;
+
+  }
+
+  synchronized void unsubscribe(Subscription subscription) {
+
+    subscriptions.remove(subscription);
+
+  }
+
+  /**
+   * Number of followers currently receiving changes.
+   */
+  public synchronized int followers() {
+
+    return subscriptions.size();
+
+  }
+
+  /**
+   * Changes queued for one follower.
+   */
+  static final class Subscription {
+
+    final BlockingQueue<UserChange> changes;
+
+    /**
+     * Sequence of the last change committed before the subscription; a snapshot taken after it
+     * plus the queued changes brings a follower up to date.
+     */
+    final long startSequence;
+
+    final boolean needsSnapshot;
+
+    /**
+     * Set once the follower fell too far behind and stopped receiving changes.
+     */
+    volatile boolean overflowed;
+
+    Subscription(int capacity, long startSequence, boolean needsSnapshot) {
+
+      this.changes = new ArrayBlockingQueue<>(capacity);
+      this.startSequence = startSequence;
+      this.needsSnapshot = needsSnapshot;
+
+    }
+
+  }
+
+}
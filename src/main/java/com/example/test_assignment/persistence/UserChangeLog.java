@@ -0,0 +1,406 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChangeListener;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only write-ahead log of {@link UserChange}s.
+ *
+ * <p>Records are encoded into an in-memory buffer under the store's write lock and written by a
+ * single flusher thread, which swaps the buffer and writes a whole batch at once. With
+ * {@link FsyncPolicy#ALWAYS} every writer waits in {@link #afterCommit} until its record is
+ * forced, so writers that arrive during one fsync share the next one (group commit).
+ *
+ * <p>The log is split into segments named after the sequence of their first record. A segment
+ * is closed once it reaches {@code segmentSize}, whatever the snapshot interval, and a snapshot
+ * rotates to a new segment, after which older segments can be dropped. Replay maps a segment a
+ * window at a time, so its size is not bounded by what a single mapping can hold.
+ */
+@Slf4j
+public class UserChangeLog implements UserChangeListener, Closeable {
+
+  private static final String SEGMENT_PREFIX = "wal-";
+
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int REPLAY_WINDOW = 64 * 1024 * 1024;
+
+  private final Path directory;
+
+  private final FsyncPolicy fsyncPolicy;
+
+  private final long fsyncIntervalMillis;
+
+  private final long segmentSize;
+
+  /**
+   * Bytes of a segment mapped at a time on replay; a record larger than this widens the window.
+   */
+  int replayWindow = REPLAY_WINDOW;
+
+  private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+
+  // guarded by this
+  private ByteArrayOutputStream pending = new ByteArrayOutputStream(BUFFER_SIZE);
+
+  private ByteArrayOutputStream spare = new ByteArrayOutputStream(BUFFER_SIZE);
+
+  private DataOutputStream pendingOut = new DataOutputStream(pending);
+
+  private long appendedSequence;
+
+  private long durableSequence;
+
+  private long segmentStart;
+
+  private boolean rotateRequested;
+
+  private boolean closed;
+
+  private IOException failure;
+
+  // owned by the flusher thread
+  private FileChannel channel;
+
+  private long segmentBytes;
+
+  private Thread flusher;
+
+  /**
+   * @param segmentSize bytes after which the flusher continues in a new segment; a segment ends
+   *                    on a batch boundary, so it may exceed this by up to a batch
+   */
+  public UserChangeLog(Path directory, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+      long segmentSize) throws IOException {
+
+    this.directory = Files.createDirectories(directory);
+    this.fsyncPolicy = fsyncPolicy;
+    this.fsyncIntervalMillis = Math.max(1, fsyncInterval.toMillis());
+    this.segmentSize = Math.max(1, segmentSize);
+
+  }
+
+  /**
+   * Replays every intact record with a sequence above {@code afterSequence}. A torn record at the
+   * end of the last segment is what a crash during a write leaves behind; it is truncated away.
+   *
+   * @return the sequence of the last replayed record, or {@code afterSequence} if there was none
+   */
+  public long replay(long afterSequence, Consumer<UserChange> consumer) throws IOException {
+
+    long lastSequence = afterSequence;
+    List<Path> segments = segments();
+    for (int i = 0; i < segments.size(); i++) {
+      Path segment = segments.get(i);
+      long size;
+      long offset = 0;
+      try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+        size = readChannel.size();
+        int window = replayWindow;
+        while (offset < size) {
+          MappedByteBuffer buffer = readChannel.map(MapMode.READ_ONLY, offset,
+              Math.min(size - offset, window));
+          UserChange change;
+          while ((change = UserCodec.readChange(buffer)) != null) {
+            if (change.sequence() > lastSequence) {
+              consumer.accept(change);
+              lastSequence = change.sequence();
+            }
+          }
+          offset += buffer.position();
+          if (offset + buffer.remaining() == size) {
+            break;
+          }
+          // The next record runs past the window: map again from its start, wider if it alone
+          // does not fit
+          if (buffer.position() == 0) {
+            if (window == Integer.MAX_VALUE) {
+              break;
+            }
+            window = (int) Math.min(Integer.MAX_VALUE, 2L * window);
+          }
+        }
+      }
+      if (offset < size) {
+        if (i < segments.size() - 1) {
+          throw new IOException(String.format("Change log segment %s is corrupted at offset %d",
+              segment, offset));
+        }
+        log.warn("Truncating torn tail of {} at offset {}", segment, offset);
+        try (FileChannel writeChannel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+          writeChannel.truncate(offset);
+        }
+      }
+    }
+    return lastSequence;
+
+  }
+
+  /**
+   * Starts appending. Records are expected to continue at {@code nextSequence}.
+   */
+  public synchronized void open(long nextSequence) throws IOException {
+
+    if (flusher != null) {
+      throw new IllegalStateException("Change log is already open");
+    }
+    appendedSequence = nextSequence - 1;
+    durableSequence = appendedSequence;
+    openSegment(nextSequence);
+    flusher = new Thread(this::flushLoop, "user-change-log");
+    flusher.setDaemon(true);
+    flusher.start();
+
+  }
+
+  /**
+   * Refuses changes once the log is closed or its flusher has failed, before the store has them.
+   */
+  @Override
+  public synchronized void prepare(UserChange change) {
+
+    if (flusher == null || closed) {
+      throw new IllegalStateException("Change log is not open", failure);
+    }
+
+  }
+
+  /**
+   * Appends the record to the buffer, which cannot fail. If the flusher failed since
+   * {@link #prepare}, the record is never written and {@link #awaitDurable} reports it.
+   */
+  @Override
+  public synchronized void onChange(UserChange change) {
+
+    try {
+      UserCodec.writeChange(pendingOut, scratch, change);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    appendedSequence = change.sequence();
+    if (fsyncPolicy == FsyncPolicy.ALWAYS || pending.size() >= BUFFER_SIZE) {
+      notifyAll();
+    }
+
+  }
+
+  @Override
+  public void afterCommit(UserChange change) {
+
+    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+      awaitDurable(change.sequence());
+    }
+
+  }
+
+  /**
+   * Blocks until every record up to {@code sequence} has been forced to disk.
+   */
+  public synchronized void awaitDurable(long sequence) {
+
+    boolean interrupted = false;
+    while (durableSequence < sequence) {
+      if (closed) {
+        throw new IllegalStateException("Change log closed before the change was durable",
+            failure);
+      }
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+  }
+
+  /**
+   * Makes the flusher write out everything appended so far and continue in a new segment.
+   *
+   * @return the sequence the new segment starts at
+   */
+  public synchronized long rotate() throws IOException {
+
+    rotateRequested = true;
+    notifyAll();
+    try {
+      while (rotateRequested) {
+        if (closed) {
+          throw new IOException("Change log is closed", failure);
+        }
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while rotating the change log");
+    }
+    return segmentStart;
+
+  }
+
+  /**
+   * Deletes the segments that only hold records up to {@code sequence}, e.g. once a snapshot
+   * covering them is on disk.
+   */
+  public void deleteSegmentsUpTo(long sequence) throws IOException {
+
+    List<Path> segments = segments();
+    for (int i = 0; i < segments.size() - 1; i++) {
+      if (segmentStart(segments.get(i + 1)) <= sequence + 1) {
+        Files.delete(segments.get(i));
+      }
+    }
+
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    Thread thread;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+      thread = flusher;
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+  }
+
+  private void flushLoop() {
+
+    long lastForce = System.currentTimeMillis();
+    boolean dirty = false;
+    try {
+      while (true) {
+        ByteArrayOutputStream batch;
+        long batchSequence;
+        boolean rotate;
+        boolean stop;
+        synchronized (this) {
+          if (pending.size() == 0 && !rotateRequested && !closed) {
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+              wait();
+            } else {
+              wait(fsyncIntervalMillis);
+            }
+          }
+          batch = pending;
+          pending = spare;
+          pendingOut = new DataOutputStream(pending);
+          batchSequence = appendedSequence;
+          rotate = rotateRequested;
+          stop = closed;
+        }
+
+        batch.writeTo(Channels.newOutputStream(channel));
+        dirty |= batch.size() > 0;
+        segmentBytes += batch.size();
+        boolean full = segmentBytes >= segmentSize;
+        long now = System.currentTimeMillis();
+        boolean force = dirty && (fsyncPolicy == FsyncPolicy.ALWAYS || rotate || full || stop
+            || fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncIntervalMillis);
+        if (force) {
+          channel.force(false);
+          lastForce = now;
+          dirty = false;
+        }
+        batch.reset();
+        if (rotate || full && !stop) {
+          channel.close();
+          openSegment(batchSequence + 1);
+        }
+
+        synchronized (this) {
+          spare = batch;
+          if (!dirty) {
+            durableSequence = batchSequence;
+          }
+          if (rotate) {
+            rotateRequested = false;
+          }
+          notifyAll();
+        }
+        if (stop) {
+          channel.close();
+          return;
+        }
+      }
+    } catch (IOException | InterruptedException e) {
+      log.error("Change log flusher failed", e);
+      synchronized (this) {
+        failure = e instanceof IOException io ? io : new InterruptedIOException(e.getMessage());
+        closed = true;
+        notifyAll();
+      }
+    }
+
+  }
+
+  private void openSegment(long start) throws IOException {
+
+    Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start,
+        SEGMENT_SUFFIX));
+    channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    segmentBytes = channel.size();
+    synchronized (this) {
+      segmentStart = start;
+    }
+
+  }
+
+  private List<Path> segments() throws IOException {
+
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+              && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+          .sorted()
+          .toList();
+    }
+
+  }
+
+  private static long segmentStart(Path segment) {
+
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+
+  }
+
+}
@@ -0,0 +1,161 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChange.Type;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding of users and changes shared by the change log and the snapshots.
+ *
+ * <p>A change record is framed as {@code [int length][int crc32][payload]} so that a torn or
+ * corrupted tail can be detected on replay.
+ */
+final class UserCodec {
+
+  private static final int NULL_LENGTH = -1;
+
+  private static final int NO_BIRTH_DATE = Integer.MIN_VALUE;
+
+  private static final Type[] TYPES = Type.values();
+
+  private UserCodec() {
+  }
+
+  static void writeChange(DataOutputStream out, ByteArrayOutputStream scratch,
+      UserChange change) throws IOException {
+
+    scratch.reset();
+    DataOutputStream payload = new DataOutputStream(scratch);
+    payload.writeLong(change.sequence());
+    payload.writeByte(change.type().ordinal());
+    writeString(payload, change.email());
+    payload.writeBoolean(change.user() != null);
+    if (change.user() != null) {
+      writeUser(payload, change.user());
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(scratch.toByteArray(), 0, scratch.size());
+    out.writeInt(scratch.size());
+    out.writeInt((int) crc.getValue());
+    scratch.writeTo(out);
+
+  }
+
+  /**
+   * Reads the next change, or returns {@code null} and leaves the position untouched when the
+   * remaining bytes do not hold a complete, intact record.
+   */
+  static UserChange readChange(ByteBuffer in) {
+
+    int start = in.position();
+    if (in.remaining() < 8) {
+      return null;
+    }
+    int length = in.getInt();
+    int checksum = in.getInt();
+    if (length <= 0 || length > in.remaining()) {
+      in.position(start);
+      return null;
+    }
+    ByteBuffer payload = in.slice(in.position(), length);
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    if ((int) crc.getValue() != checksum) {
+      in.position(start);
+      return null;
+    }
+    in.position(in.position() + length);
+
+    long sequence = payload.getLong();
+    Type type = TYPES[payload.get()];
+    String email = readString(payload);
+    User user = payload.get() != 0 ? readUser(payload) : null;
+    return new UserChange(sequence, type, email, user);
+
+  }
+
+  /**
+   * Reads the next change from a stream, e.g. a replication connection.
+   *
+   * @throws IOException if the record is corrupted or the stream ends within it
+   */
+  static UserChange readChange(DataInputStream in) throws IOException {
+
+    int length = in.readInt();
+    if (length <= 0) {
+      throw new IOException("Invalid change record length " + length);
+    }
+    ByteBuffer record = ByteBuffer.allocate(8 + length);
+    record.putInt(length);
+    in.readFully(record.array(), 4, 4 + length);
+    UserChange change = readChange(record.rewind());
+    if (change == null) {
+      throw new IOException("Corrupted change record");
+    }
+    return change;
+
+  }
+
+  static void writeUser(DataOutputStream out, User user) throws IOException {
+
+    writeString(out, user.getEmail());
+    writeString(out, user.getFirstName());
+    writeString(out, user.getLastName());
+    out.writeInt(user.getBirthDate() != null
+        ? (int) user.getBirthDate().toEpochDay() : NO_BIRTH_DATE);
+    writeString(out, user.getAddress());
+    writeString(out, user.getPhoneNumber());
+
+  }
+
+  static User readUser(ByteBuffer in) {
+
+    String email = readString(in);
+    String firstName = readString(in);
+    String lastName = readString(in);
+    int birthDate = in.getInt();
+    return User.builder()
+        .email(email)
+        .firstName(firstName)
+        .lastName(lastName)
+        .birthDate(birthDate != NO_BIRTH_DATE ? LocalDate.ofEpochDay(birthDate) : null)
+        .address(readString(in))
+        .phoneNumber(readString(in))
+        .build();
+
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+
+  }
+
+  private static String readString(ByteBuffer in) {
+
+    int length = in.getInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+
+  }
+
+}
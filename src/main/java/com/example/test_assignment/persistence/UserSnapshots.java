@@ -0,0 +1,175 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChange.Type;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compacted snapshots of the user store, written and read through memory-mapped windows.
+ *
+ * <p>A snapshot holds one record per user, {@code [int length][user]}, behind a header with the
+ * sequence of the last change it covers. It is written to a temporary file and atomically
+ * renamed once complete, so a crash never leaves a partial snapshot behind.
+ */
+@Slf4j
+public class UserSnapshots {
+
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+  private static final String SNAPSHOT_SUFFIX = ".snap";
+
+  private static final int MAGIC = 0x55534e50;
+
+  private static final int VERSION = 1;
+
+  private static final int COUNT_OFFSET = 16;
+
+  private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+  private final Path directory;
+
+  public UserSnapshots(Path directory) throws IOException {
+
+    this.directory = Files.createDirectories(directory);
+
+  }
+
+  /**
+   * Writes a snapshot of {@code users} covering every change up to {@code sequence} and removes
+   * the older snapshots.
+   *
+   * @return the number of users written
+   */
+  public long write(long sequence, Stream<User> users) throws IOException {
+
+    Path snapshot = snapshotPath(sequence);
+    Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    long count = 0;
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+
+      long windowStart = 0;
+      MappedByteBuffer window = channel.map(MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+      window.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(0);
+
+      ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+      DataOutputStream scratchOut = new DataOutputStream(scratch);
+      for (Iterator<User> it = users.iterator(); it.hasNext(); ) {
+        scratch.reset();
+        UserCodec.writeUser(scratchOut, it.next());
+        if (window.remaining() < Integer.BYTES + scratch.size()) {
+          window.force();
+          windowStart += window.position();
+          window = channel.map(MapMode.READ_WRITE, windowStart,
+              Math.max(WINDOW_SIZE, Integer.BYTES + scratch.size()));
+        }
+        window.putInt(scratch.size());
+        window.put(scratch.toByteArray());
+        count++;
+      }
+      window.force();
+      long size = windowStart + window.position();
+
+      channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, count), COUNT_OFFSET);
+      channel.truncate(size);
+      channel.force(true);
+    }
+    Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+
+    for (Path older : snapshots()) {
+      if (!older.equals(snapshot)) {
+        Files.delete(older);
+      }
+    }
+    return count;
+
+  }
+
+  /**
+   * Loads the latest snapshot, handing every user to {@code consumer} as an ADD change numbered
+   * with the snapshot's sequence.
+   *
+   * @return the sequence covered by the snapshot, or 0 if there is none
+   */
+  public long load(Consumer<UserChange> consumer) throws IOException {
+
+    List<Path> snapshots = snapshots();
+    if (snapshots.isEmpty()) {
+      return 0;
+    }
+    Path snapshot = snapshots.get(snapshots.size() - 1);
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      MappedByteBuffer window = map(channel, 0, WINDOW_SIZE);
+      if (window.getInt() != MAGIC || window.getInt() != VERSION) {
+        throw new IOException(String.format("%s is not a user snapshot", snapshot));
+      }
+      long sequence = window.getLong();
+      long count = window.getLong();
+
+      long windowStart = 0;
+      for (long i = 0; i < count; i++) {
+        if (window.remaining() < Integer.BYTES) {
+          windowStart += window.position();
+          window = map(channel, windowStart, WINDOW_SIZE);
+        }
+        int needed = Integer.BYTES + window.getInt(window.position());
+        if (window.remaining() < needed) {
+          windowStart += window.position();
+          window = map(channel, windowStart, Math.max(WINDOW_SIZE, needed));
+        }
+        int length = window.getInt();
+        ByteBuffer record = window.slice(window.position(), length);
+        window.position(window.position() + length);
+        User user = UserCodec.readUser(record);
+        consumer.accept(new UserChange(sequence, Type.ADD, user.getEmail(), user));
+      }
+      log.info("Loaded {} users from {}", count, snapshot);
+      return sequence;
+    }
+
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, long position, long size)
+      throws IOException {
+
+    return channel.map(MapMode.READ_ONLY, position, Math.min(channel.size() - position, size));
+
+  }
+
+  private Path snapshotPath(long sequence) {
+
+    return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence,
+        SNAPSHOT_SUFFIX));
+
+  }
+
+  private List<Path> snapshots() throws IOException {
+
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+              && file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+          .sorted()
+          .toList();
+    }
+
+  }
+
+}
@@ -0,0 +1,432 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChange.Type;
+import com.example.test_assignment.service.UserChangeListener;
+import com.example.test_assignment.service.UserService;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mirrors the user store into an embedded H2 database behind the writers' backs, for tools that
+ * query users with SQL.
+ *
+ * <p>Changes are coalesced per email under the store's write lock: only the latest state of each
+ * user waits to be written, so a user changed many times between two flushes costs one row. A
+ * single flusher thread swaps out the pending users once the oldest has waited a flush interval,
+ * or earlier once there is a full batch, and writes them in one transaction of batched
+ * statements. Writers only wait, in {@link #afterCommit}, when the database falls so far behind
+ * that more than {@code maxPending} users wait to be written.
+ *
+ * <p>The database lags the store by up to a flush, so changes not yet flushed are lost in a crash;
+ * the change log is the durable record, the database a copy for reading.
+ */
+@Slf4j
+public class UserSqlMirror implements UserChangeListener, Closeable {
+
+  private static final String CREATE_USERS = "CREATE TABLE IF NOT EXISTS users ("
+      + "email VARCHAR(320) PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255), "
+      + "birth_date DATE, address VARCHAR(1000), phone_number VARCHAR(64), sequence BIGINT)";
+
+  private static final String CREATE_BIRTH_DATE_INDEX =
+      "CREATE INDEX IF NOT EXISTS users_birth_date ON users (birth_date)";
+
+  private static final String CREATE_STATE = "CREATE TABLE IF NOT EXISTS user_store_state ("
+      + "id INT PRIMARY KEY, last_sequence BIGINT)";
+
+  private static final String MERGE_USER = "MERGE INTO users (email, first_name, last_name, "
+      + "birth_date, address, phone_number, sequence) KEY (email) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+  private static final String DELETE_USER = "DELETE FROM users WHERE email = ?";
+
+  private static final String MERGE_STATE =
+      "MERGE INTO user_store_state (id, last_sequence) KEY (id) VALUES (1, ?)";
+
+  private static final long RETRY_DELAY_MILLIS = 1_000;
+
+  private final String url;
+
+  private final long flushIntervalNanos;
+
+  private final int batchSize;
+
+  private final int maxPending;
+
+  // guarded by this
+  /**
+   * Latest state of every user changed since the last swap, {@code null} for a deleted one.
+   */
+  private Map<String, Pending> pending = new LinkedHashMap<>();
+
+  private long pendingSince;
+
+  private long flushingSince;
+
+  private long appendedSequence;
+
+  private long flushedSequence;
+
+  private boolean closed;
+
+  private final LongAdder flushedRows = new LongAdder();
+
+  private final LongAdder failedFlushes = new LongAdder();
+
+  // owned by the flusher thread
+  private Connection connection;
+
+  private Thread flusher;
+
+  /**
+   * @param url           JDBC URL of the H2 database, e.g. {@code jdbc:h2:file:./data/users}
+   * @param flushInterval how long a change may wait before it is written
+   * @param batchSize     pending users that trigger a flush before the interval is over
+   * @param maxPending    pending users beyond which writers wait for the database
+   */
+  public UserSqlMirror(String url, Duration flushInterval, int batchSize, int maxPending) {
+
+    this.url = url;
+    this.flushIntervalNanos = Math.max(1, flushInterval.toNanos());
+    this.batchSize = batchSize;
+    this.maxPending = maxPending;
+
+  }
+
+  /**
+   * Creates the tables if needed and starts flushing.
+   */
+  public void start() throws SQLException {
+
+    if (flusher != null) {
+      throw new IllegalStateException("SQL mirror is already started");
+    }
+    connection = DriverManager.getConnection(url);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(CREATE_USERS);
+      statement.execute(CREATE_BIRTH_DATE_INDEX);
+      statement.execute(CREATE_STATE);
+    }
+    connection.setAutoCommit(false);
+    flusher = new Thread(this::flushLoop, "user-sql-mirror");
+    flusher.setDaemon(true);
+    flusher.start();
+
+  }
+
+  /**
+   * Loads the users of the database into {@code userService}, for a warm start when nothing else
+   * restores the store. Expects {@link #start} to have run.
+   *
+   * @return the number of users loaded
+   */
+  public long load(UserService userService) throws SQLException {
+
+    long start = System.nanoTime();
+    long count = 0;
+    long lastSequence = 0;
+    try (Connection reader = DriverManager.getConnection(url);
+        Statement statement = reader.createStatement()) {
+      try (ResultSet rows = statement.executeQuery("SELECT email, first_name, last_name, "
+          + "birth_date, address, phone_number FROM users")) {
+        while (rows.next()) {
+          Date birthDate = rows.getDate(4);
+          User user = User.builder()
+              .email(rows.getString(1))
+              .firstName(rows.getString(2))
+              .lastName(rows.getString(3))
+              .birthDate(birthDate != null ? birthDate.toLocalDate() : null)
+              .address(rows.getString(5))
+              .phoneNumber(rows.getString(6))
+              .build();
+          userService.applyChange(new UserChange(0, Type.ADD, user.getEmail(), user));
+          count++;
+        }
+      }
+      try (ResultSet state = statement.executeQuery(
+          "SELECT last_sequence FROM user_store_state WHERE id = 1")) {
+        if (state.next()) {
+          lastSequence = state.getLong(1);
+        }
+      }
+    }
+    userService.advanceSequence(lastSequence);
+    log.info("Loaded {} users up to sequence {} from {} in {} ms", count, lastSequence, url,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return count;
+
+  }
+
+  @Override
+  public synchronized void prepare(UserChange change) {
+
+    if (closed) {
+      throw new IllegalStateException("SQL mirror is closed");
+    }
+
+  }
+
+  @Override
+  public synchronized void onChange(UserChange change) {
+
+    if (pending.isEmpty()) {
+      pendingSince = System.nanoTime();
+      notifyAll();
+    }
+    if (change.type() == Type.DELETE) {
+      pending.put(change.email(), null);
+    } else {
+      if (!change.email().equals(change.user().getEmail())) {
+        pending.put(change.email(), null);
+      }
+      pending.put(change.user().getEmail(), new Pending(change.user(), change.sequence()));
+    }
+    appendedSequence = change.sequence();
+    if (pending.size() == batchSize) {
+      notifyAll();
+    }
+
+  }
+
+  @Override
+  public synchronized void afterCommit(UserChange change) {
+
+    boolean interrupted = false;
+    while (pending.size() > maxPending && !closed) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+  }
+
+  /**
+   * Blocks until every change up to {@code sequence} is committed to the database.
+   *
+   * @return whether it was, {@code false} if the mirror closed first
+   */
+  public synchronized boolean awaitFlushed(long sequence) throws InterruptedException {
+
+    while (flushedSequence < sequence && !closed) {
+      wait();
+    }
+    return flushedSequence >= sequence;
+
+  }
+
+  /**
+   * Users waiting to be written, not counting the batch being written.
+   */
+  public synchronized int pendingUsers() {
+
+    return pending.size();
+
+  }
+
+  /**
+   * How long the oldest change not yet in the database has waited, {@code 0} if there is none.
+   */
+  public synchronized double lagSeconds() {
+
+    long since = flushingSince != 0 ? flushingSince : pendingSince;
+    return since == 0 ? 0 : (System.nanoTime() - since) / 1e9;
+
+  }
+
+  /**
+   * Rows merged or deleted so far; lower than the number of changes by what coalescing saved.
+   */
+  public long flushedRows() {
+
+    return flushedRows.sum();
+
+  }
+
+  public long failedFlushes() {
+
+    return failedFlushes.sum();
+
+  }
+
+  /**
+   * Writes out what is pending and stops.
+   */
+  @Override
+  public void close() {
+
+    Thread thread;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+      thread = flusher;
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+  }
+
+  private void flushLoop() {
+
+    try {
+      while (true) {
+        Map<String, Pending> batch;
+        long batchSequence;
+        boolean stop;
+        synchronized (this) {
+          while (!closed && !batchReady()) {
+            if (pending.isEmpty()) {
+              wait();
+            } else {
+              TimeUnit.NANOSECONDS.timedWait(this,
+                  flushIntervalNanos - (System.nanoTime() - pendingSince));
+            }
+          }
+          batch = pending;
+          pending = new LinkedHashMap<>();
+          flushingSince = pendingSince;
+          pendingSince = 0;
+          batchSequence = appendedSequence;
+          stop = closed;
+          // Writers held back by a full queue may go on while the batch is written
+          notifyAll();
+        }
+
+        if (!batch.isEmpty()) {
+          write(batch, batchSequence, stop);
+        }
+
+        synchronized (this) {
+          flushingSince = 0;
+          flushedSequence = batchSequence;
+          notifyAll();
+        }
+        if (stop) {
+          connection.close();
+          return;
+        }
+      }
+    } catch (SQLException | InterruptedException e) {
+      log.error("SQL mirror flusher failed", e);
+      synchronized (this) {
+        closed = true;
+        notifyAll();
+      }
+    }
+
+  }
+
+  private boolean batchReady() {
+
+    return !pending.isEmpty() && (pending.size() >= batchSize
+        || System.nanoTime() - pendingSince >= flushIntervalNanos);
+
+  }
+
+  /**
+   * Writes a batch in one transaction, retrying until it succeeds unless the mirror is closing.
+   */
+  private void write(Map<String, Pending> batch, long batchSequence, boolean stop)
+      throws InterruptedException {
+
+    while (true) {
+      try {
+        writeBatch(batch, batchSequence);
+        return;
+      } catch (SQLException e) {
+        failedFlushes.increment();
+        rollback();
+        if (stop) {
+          log.error("Could not write {} users to {} while closing", batch.size(), url, e);
+          return;
+        }
+        log.warn("Could not write {} users to {}, retrying: {}", batch.size(), url,
+            e.toString());
+        Thread.sleep(RETRY_DELAY_MILLIS);
+      }
+    }
+
+  }
+
+  private void writeBatch(Map<String, Pending> batch, long batchSequence) throws SQLException {
+
+    try (PreparedStatement merge = connection.prepareStatement(MERGE_USER);
+        PreparedStatement delete = connection.prepareStatement(DELETE_USER);
+        PreparedStatement state = connection.prepareStatement(MERGE_STATE)) {
+      int merges = 0;
+      int deletes = 0;
+      for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+        Pending value = entry.getValue();
+        if (value == null) {
+          delete.setString(1, entry.getKey());
+          delete.addBatch();
+          if (++deletes % batchSize == 0) {
+            delete.executeBatch();
+          }
+        } else {
+          User user = value.user();
+          merge.setString(1, user.getEmail());
+          merge.setString(2, user.getFirstName());
+          merge.setString(3, user.getLastName());
+          merge.setDate(4, user.getBirthDate() != null ? Date.valueOf(user.getBirthDate()) : null);
+          merge.setString(5, user.getAddress());
+          merge.setString(6, user.getPhoneNumber());
+          merge.setLong(7, value.sequence());
+          merge.addBatch();
+          if (++merges % batchSize == 0) {
+            merge.executeBatch();
+          }
+        }
+      }
+      delete.executeBatch();
+      merge.executeBatch();
+      state.setLong(1, batchSequence);
+      state.executeUpdate();
+      connection.commit();
+    }
+    flushedRows.add(batch.size());
+
+  }
+
+  private void rollback() {
+
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      log.warn("Rollback failed: {}", e.toString());
+    }
+
+  }
+
+  /**
+   * @param sequence sequence of the change that produced this state of the user
+   */
+  private record Pending(User user, long sequence) {
+
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.example.test_assignment.persistence;
+
+import com.example.test_assignment.service.UserService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Restores {@link UserService} from the latest snapshot plus the change log tail on startup and
+ * takes periodic snapshots afterwards.
+ *
+ * <p>Snapshots are fuzzy: users are read while writers keep going. That is safe because every log
+ * record carries the full state of its user, so replaying the records after the snapshot's
+ * sequence over it converges to the committed state.
+ */
+@Slf4j
+public class UserStorePersistence implements Closeable {
+
+  private final UserService userService;
+
+  private final UserChangeLog changeLog;
+
+  private final UserSnapshots snapshots;
+
+  private final Duration snapshotInterval;
+
+  private ScheduledExecutorService scheduler;
+
+  private long recoveredUsers;
+
+  private long recoveryMillis;
+
+  public UserStorePersistence(UserService userService, UserChangeLog changeLog,
+      UserSnapshots snapshots, Duration snapshotInterval) {
+
+    this.userService = userService;
+    this.changeLog = changeLog;
+    this.snapshots = snapshots;
+    this.snapshotInterval = snapshotInterval;
+
+  }
+
+  public void recover() throws IOException {
+
+    long start = System.nanoTime();
+    long snapshotSequence = snapshots.load(userService::applyChange);
+    long lastSequence = changeLog.replay(snapshotSequence, userService::applyChange);
+    userService.advanceSequence(lastSequence);
+    changeLog.open(lastSequence + 1);
+
+    recoveredUsers = userService.streamAllUsers().count();
+    recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    log.info("Recovered {} users up to sequence {} in {} ms", recoveredUsers, lastSequence,
+        recoveryMillis);
+
+    if (!snapshotInterval.isZero()) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-snapshots");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotInterval.toMillis(),
+          snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+  }
+
+  /**
+   * Writes a snapshot of the current store and drops the log segments it makes redundant.
+   */
+  public synchronized void snapshot() throws IOException {
+
+    long start = System.nanoTime();
+    changeLog.rotate();
+    long sequence = userService.currentSequence();
+    long count = snapshots.write(sequence, userService.streamAllUsers());
+    changeLog.deleteSegmentsUpTo(sequence);
+    log.info("Wrote snapshot of {} users at sequence {} in {} ms", count, sequence,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+  }
+
+  public long getRecoveredUsers() {
+    return recoveredUsers;
+  }
+
+  public long getRecoveryMillis() {
+    return recoveryMillis;
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    changeLog.close();
+
+  }
+
+  private void scheduledSnapshot() {
+
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      log.error("Snapshot failed", e);
+    }
+
+  }
+
+}
@@ -0,0 +1,294 @@
+package com.example.test_assignment.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on the requests of one kind in progress at a time, adapted to their latency so that
+ * requests beyond what the server can serve promptly are turned away at once instead of queueing.
+ *
+ * <p>Latencies are averaged over windows of at least {@code window} and a few requests. At the end
+ * of each window the limit moves towards {@code limit * gradient + sqrt(limit)}, where the
+ * gradient is {@code tolerance} times the no-load latency over the window's average, capped to
+ * {@code [0.5, 1]}: while latency stays within tolerance the limit grows by a fraction of the
+ * square root term, and once requests queue beyond it the limit drops to the target at once. The
+ * limit does not grow in windows that used less than half of it, since their latency says nothing
+ * about more concurrency.
+ *
+ * <p>The no-load latency starts as the first window's latency and is measured again every
+ * {@code probeInterval}: the limit is lowered by a quarter for one window, and again while the
+ * latency keeps falling, for at most three windows. The fastest of these windows
+ * becomes the new no-load latency and the limit goes back to where it was. In between, any faster
+ * window lowers the no-load latency. A baseline measured under load would let an overload pass
+ * for normal, and one that is never measured again would not follow the workload. Lowering the
+ * limit only partly and briefly keeps the probe from throttling the traffic it measures.
+ */
+public class AdaptiveConcurrencyLimit {
+
+  private static final int MIN_WINDOW_SAMPLES = 10;
+
+  private static final double SMOOTHING = 0.2;
+
+  private static final double PROBE_STEP = 0.75;
+
+  private static final int PROBE_STEPS = 3;
+
+  /**
+   * How much faster than the one before a probe window must be for the probe to go on.
+   */
+  private static final double PROBE_GAIN = 0.9;
+
+  private final String name;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final double tolerance;
+
+  private final long windowNanos;
+
+  private final long probeIntervalNanos;
+
+  private final LongSupplier clock;
+
+  // guarded by this
+  private double limit;
+
+  private int inFlight;
+
+  private double noLoadLatency;
+
+  private long windowStart;
+
+  private int windowSamples;
+
+  private long windowLatencySum;
+
+  private int windowMaxInFlight;
+
+  /**
+   * Whether the limit is lowered to measure the no-load latency.
+   */
+  private boolean probing;
+
+  private int probeSteps;
+
+  private double probeLatency;
+
+  private double limitBeforeProbe;
+
+  private long nextProbe;
+
+  /**
+   * Changed whenever a probe moves the limit: requests admitted under another limit say nothing
+   * about the current one.
+   */
+  private int epoch;
+
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * @param name          what the limit applies to, for messages
+   * @param initial       limit until latencies are known
+   * @param minLimit      limit never shrinks below, so some requests always get through
+   * @param maxLimit      limit never grows above, e.g. the server's worker threads
+   * @param tolerance     how many times the no-load latency requests may take before the limit
+   *                      shrinks
+   * @param window        shortest window of latencies between two adjustments
+   * @param probeInterval time between two measurements of the no-load latency
+   */
+  public AdaptiveConcurrencyLimit(String name, int initial, int minLimit, int maxLimit,
+      double tolerance, Duration window, Duration probeInterval) {
+
+    this(name, initial, minLimit, maxLimit, tolerance, window, probeInterval, System::nanoTime);
+
+  }
+
+  AdaptiveConcurrencyLimit(String name, int initial, int minLimit, int maxLimit,
+      double tolerance, Duration window, Duration probeInterval, LongSupplier clock) {
+
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException(
+          String.format("Invalid limits %d to %d of %s", minLimit, maxLimit, name));
+    }
+    this.name = name;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.windowNanos = window.toNanos();
+    this.probeIntervalNanos = probeInterval.toNanos();
+    this.clock = clock;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initial));
+
+  }
+
+  /**
+   * Admits a request if fewer than the limit are in progress.
+   *
+   * @return the permit to release once the request is over, {@code null} if it is rejected
+   */
+  public Permit tryAcquire() {
+
+    int admittedIn;
+    synchronized (this) {
+      if (inFlight >= limit()) {
+        rejected.increment();
+        return null;
+      }
+      inFlight++;
+      windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+      admittedIn = epoch;
+    }
+    return new Permit(clock.getAsLong(), admittedIn);
+
+  }
+
+  /**
+   * Like {@link #tryAcquire}, but rejects with an exception.
+   *
+   * @throws OverloadedException if the limit is reached
+   */
+  public Permit acquire(Duration retryAfter) {
+
+    Permit permit = tryAcquire();
+    if (permit == null) {
+      throw new OverloadedException(String.format("Too many %s in progress, retry in %d s", name,
+          retryAfter.toSeconds()), retryAfter);
+    }
+    return permit;
+
+  }
+
+  /**
+   * Requests admitted at a time, lowered for a few windows while the no-load latency is measured.
+   */
+  public synchronized int limit() {
+
+    return (int) limit;
+
+  }
+
+  public synchronized int inFlight() {
+
+    return inFlight;
+
+  }
+
+  public long rejected() {
+
+    return rejected.sum();
+
+  }
+
+  private synchronized void release(long latency, boolean sample, int admittedIn) {
+
+    inFlight--;
+    if (!sample || admittedIn != epoch) {
+      return;
+    }
+    windowSamples++;
+    windowLatencySum += latency;
+    long now = clock.getAsLong();
+    if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < windowNanos) {
+      return;
+    }
+
+    double windowLatency = Math.max(1, windowLatencySum / (double) windowSamples);
+    if (noLoadLatency == 0) {
+      // Nothing to compare the first window with
+      noLoadLatency = windowLatency;
+      nextProbe = now + probeIntervalNanos;
+    } else if (probing) {
+      probe(windowLatency, now);
+    } else {
+      // A window faster than the last probe shows that probe ran slow, e.g. before the JIT
+      noLoadLatency = Math.min(noLoadLatency, windowLatency);
+      double gradient = Math.max(0.5, Math.min(1.0, tolerance * noLoadLatency / windowLatency));
+      double target = limit * gradient + Math.sqrt(limit);
+      if (target < limit) {
+        limit = Math.max(minLimit, target);
+      } else if (windowMaxInFlight >= limit / 2) {
+        limit = Math.min(maxLimit, limit + (target - limit) * SMOOTHING);
+      }
+      if (now - nextProbe >= 0) {
+        probing = true;
+        probeSteps = 0;
+        probeLatency = Double.MAX_VALUE;
+        limitBeforeProbe = limit;
+        lowerForProbe();
+      }
+    }
+    windowStart = now;
+    windowSamples = 0;
+    windowLatencySum = 0;
+    windowMaxInFlight = inFlight;
+
+  }
+
+  /**
+   * Ends a window of a probe: lowers the limit once more while that still makes requests
+   * faster, otherwise takes the fastest window as the no-load latency and restores the limit.
+   */
+  private void probe(double windowLatency, long now) {
+
+    boolean faster = windowLatency < probeLatency * PROBE_GAIN;
+    probeLatency = Math.min(probeLatency, windowLatency);
+    if (faster && probeSteps < PROBE_STEPS && limit > minLimit) {
+      lowerForProbe();
+      return;
+    }
+    noLoadLatency = probeLatency;
+    limit = limitBeforeProbe;
+    probing = false;
+    epoch++;
+    nextProbe = now + probeIntervalNanos;
+
+  }
+
+  private void lowerForProbe() {
+
+    limit = Math.max(minLimit, limit * PROBE_STEP);
+    probeSteps++;
+    epoch++;
+
+  }
+
+  /**
+   * One admitted request; release it exactly once.
+   */
+  public final class Permit {
+
+    private final long start;
+
+    private final int epoch;
+
+    private Permit(long start, int epoch) {
+
+      this.start = start;
+      this.epoch = epoch;
+
+    }
+
+    /**
+     * Ends the request and counts its latency towards the limit.
+     */
+    public void release() {
+
+      AdaptiveConcurrencyLimit.this.release(clock.getAsLong() - start, true, epoch);
+
+    }
+
+    /**
+     * Ends a request whose latency says nothing about the load, e.g. one that failed early.
+     */
+    public void releaseIgnoringLatency() {
+
+      AdaptiveConcurrencyLimit.this.release(0, false, epoch);
+
+    }
+
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.example.test_assignment.service;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Number of users born on each day, kept in a Fenwick tree so that the number of users born in
+ * any birth-date range is found in {@code O(log n)} without looking at users.
+ *
+ * <p>The tree covers the same days as {@link BirthDateVersions}. The few users born before or
+ * after them are counted per day in a sorted map, which a range walks, so counts stay exact for any
+ * valid birth date. {@link #add} is called by one writer at a time and readers need no lock, so a
+ * count racing with a change that moves a user between days may see the user on neither or both
+ * of them.
+ */
+class BirthDateCounts {
+
+  private static final LocalDate FIRST_DAY = LocalDate.of(1900, 1, 1);
+
+  private static final int DAYS = 1 << 16;
+
+  private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(DAYS - 1);
+
+  /**
+   * Node {@code i} (1-based) holds the number of users born on the {@code i & -i} days ending
+   * with day {@code i - 1}.
+   */
+  private final AtomicLongArray tree = new AtomicLongArray(DAYS + 1);
+
+  /**
+   * Users born outside the days of the tree, per birth date; days without users are removed.
+   */
+  private final NavigableMap<LocalDate, Long> outside = new ConcurrentSkipListMap<>();
+
+  /**
+   * Adds {@code delta} users born on {@code birthDate}. Must be called by one thread at a time.
+   */
+  void add(LocalDate birthDate, int delta) {
+
+    if (birthDate == null) {
+      return;
+    }
+    if (birthDate.isBefore(FIRST_DAY) || birthDate.isAfter(LAST_DAY)) {
+      outside.compute(birthDate, (day, count) -> {
+        long updated = (count != null ? count : 0) + delta;
+        return updated != 0 ? updated : null;
+      });
+      return;
+    }
+    for (int node = day(birthDate) + 1; node <= DAYS; node += node & -node) {
+      tree.set(node, tree.get(node) + delta);
+    }
+
+  }
+
+  /**
+   * Number of users born between {@code from} and {@code to} inclusive.
+   */
+  long count(LocalDate from, LocalDate to) {
+
+    if (from.isAfter(to)) {
+      return 0;
+    }
+    long count = 0;
+    if (from.isBefore(FIRST_DAY) || to.isAfter(LAST_DAY)) {
+      for (long users : outside.subMap(from, true, to, true).values()) {
+        count += users;
+      }
+    }
+    if (!to.isBefore(FIRST_DAY) && !from.isAfter(LAST_DAY)) {
+      count += prefix(day(to) + 1) - prefix(day(from));
+    }
+    return count;
+
+  }
+
+  /**
+   * Number of users born on the first {@code days} days.
+   */
+  private long prefix(int days) {
+
+    long count = 0;
+    for (int node = days; node > 0; node -= node & -node) {
+      count += tree.get(node);
+    }
+    return count;
+
+  }
+
+  /**
+   * Day of the tree {@code date} falls on, the first or last for dates outside it.
+   */
+  private static int day(LocalDate date) {
+
+    long day = date.toEpochDay() - FIRST_DAY.toEpochDay();
+    return (int) Math.max(0, Math.min(DAYS - 1, day));
+
+  }
+
+}
@@ -0,0 +1,99 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Secondary index of user versions ordered by birth date, so that a range query costs
+ * O(log n + k). A bucket may hold superseded versions until the store collects them; readers pick
+ * the ones visible at their snapshot. Buckets are copy-on-write arrays, which are short and cheap
+ * to walk. Writers must be serialized by the caller; readers may run concurrently with them.
+ */
+class BirthDateIndex {
+
+  private final ConcurrentNavigableMap<LocalDate, UserVersion[]> index =
+      new ConcurrentSkipListMap<>();
+
+  void add(UserVersion version) {
+
+    LocalDate birthDate = version.user.getBirthDate();
+    if (birthDate == null) {
+      return;
+    }
+    UserVersion[] bucket = index.get(birthDate);
+    if (bucket == null) {
+      index.put(birthDate, new UserVersion[] {version});
+    } else {
+      UserVersion[] grown = Arrays.copyOf(bucket, bucket.length + 1);
+      grown[bucket.length] = version;
+      index.put(birthDate, grown);
+    }
+
+  }
+
+  void remove(UserVersion version) {
+
+    LocalDate birthDate = version.user.getBirthDate();
+    if (birthDate == null) {
+      return;
+    }
+    UserVersion[] bucket = index.get(birthDate);
+    int position = bucket != null ? indexOf(bucket, version) : -1;
+    if (position < 0) {
+      return;
+    }
+    if (bucket.length == 1) {
+      index.remove(birthDate);
+    } else {
+      UserVersion[] shrunk = Arrays.copyOf(bucket, bucket.length - 1);
+      if (position < shrunk.length) {
+        shrunk[position] = bucket[bucket.length - 1];
+      }
+      index.put(birthDate, shrunk);
+    }
+
+  }
+
+  private static int indexOf(UserVersion[] bucket, UserVersion version) {
+
+    for (int i = 0; i < bucket.length; i++) {
+      if (bucket[i] == version) {
+        return i;
+      }
+    }
+    return -1;
+
+  }
+
+  /**
+   * Number of distinct birth dates, including dates only held by versions not collected yet;
+   * walks the keys, which are bounded by the range of plausible birth dates rather than by the
+   * number of users.
+   */
+  int dateCount() {
+
+    return index.size();
+
+  }
+
+  /**
+   * Users born between {@code from} and {@code to} as of commit {@code snapshot}.
+   */
+  Stream<User> range(LocalDate from, LocalDate to, long snapshot) {
+
+    return index.subMap(from, true, to, true).values().stream()
+        .mapMulti((bucket, users) -> {
+          for (UserVersion version : bucket) {
+            if (version.visibleAt(snapshot)) {
+              users.accept(version.user);
+            }
+          }
+        });
+
+  }
+
+}
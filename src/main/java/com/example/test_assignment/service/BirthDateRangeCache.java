@@ -0,0 +1,199 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of birth-date range query results, keyed by {@code (from, to)}.
+ *
+ * <p>The bound is the total number of users held by all entries, so a few wide ranges cannot
+ * crowd out memory; a result larger than the whole bound is never cached. An empty result counts
+ * as one user, so that distinct empty ranges cannot pile up without limit either. A change to a user
+ * only drops the entries whose range contains the user's old or new birth date.
+ *
+ * <p>Every invalidation gets a version number. A lookup that misses notes the version before it
+ * scans the store and only caches its result if no invalidation inside its range happened since,
+ * so a result computed concurrently with a write is never cached stale.
+ */
+public class BirthDateRangeCache {
+
+  /**
+   * Number of recent invalidations remembered to decide whether a concurrently computed result
+   * is still valid. A result that raced with more writes than this is simply not cached.
+   */
+  private static final int RECENT_INVALIDATIONS = 64;
+
+  private record Range(LocalDate from, LocalDate to) {
+
+    boolean contains(LocalDate date) {
+      return !date.isBefore(from) && !date.isAfter(to);
+    }
+
+  }
+
+  private final long maxUsers;
+
+  // guarded by this
+  private final LinkedHashMap<Range, List<User>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final LocalDate[] recentDates = new LocalDate[RECENT_INVALIDATIONS];
+
+  private long cachedUsers;
+
+  /**
+   * Cached users with every entry counted as at least one, held to {@link #maxUsers}.
+   */
+  private long charged;
+
+  private volatile long version;
+
+  private long hits;
+
+  private long misses;
+
+  private long puts;
+
+  private long evictions;
+
+  private long invalidations;
+
+  /**
+   * @param maxUsers total number of users the cached results may hold; 0 disables caching
+   */
+  public BirthDateRangeCache(long maxUsers) {
+
+    this.maxUsers = maxUsers;
+
+  }
+
+  /**
+   * Returns the cached result for the range, or computes it with {@code query} and caches it.
+   */
+  List<User> get(LocalDate from, LocalDate to, Supplier<List<User>> query) {
+
+    if (maxUsers == 0) {
+      return query.get();
+    }
+    Range range = new Range(from, to);
+    long startVersion;
+    synchronized (this) {
+      List<User> cached = entries.get(range);
+      if (cached != null) {
+        hits++;
+        return cached;
+      }
+      misses++;
+      startVersion = version;
+    }
+
+    List<User> result = query.get();
+    if (charge(result) <= maxUsers) {
+      put(range, result, startVersion);
+    }
+    return result;
+
+  }
+
+  /**
+   * Drops the cached ranges containing {@code birthDate}. Must be called after the change is
+   * visible in the store.
+   */
+  synchronized void invalidate(LocalDate birthDate) {
+
+    if (birthDate == null || maxUsers == 0) {
+      return;
+    }
+    version++;
+    recentDates[(int) (version % RECENT_INVALIDATIONS)] = birthDate;
+    for (Iterator<Map.Entry<Range, List<User>>> it = entries.entrySet().iterator();
+        it.hasNext(); ) {
+      Map.Entry<Range, List<User>> entry = it.next();
+      if (entry.getKey().contains(birthDate)) {
+        cachedUsers -= entry.getValue().size();
+        charged -= charge(entry.getValue());
+        it.remove();
+        invalidations++;
+      }
+    }
+
+  }
+
+  private synchronized void put(Range range, List<User> result, long startVersion) {
+
+    if (version - startVersion > RECENT_INVALIDATIONS) {
+      return;
+    }
+    for (long v = startVersion + 1; v <= version; v++) {
+      if (range.contains(recentDates[(int) (v % RECENT_INVALIDATIONS)])) {
+        return;
+      }
+    }
+    List<User> previous = entries.put(range, result);
+    cachedUsers += result.size() - (previous != null ? previous.size() : 0);
+    charged += charge(result) - (previous != null ? charge(previous) : 0);
+    puts++;
+    for (Iterator<List<User>> it = entries.values().iterator();
+        charged > maxUsers && it.hasNext(); ) {
+      List<User> evicted = it.next();
+      cachedUsers -= evicted.size();
+      charged -= charge(evicted);
+      it.remove();
+      evictions++;
+    }
+
+  }
+
+  private static long charge(List<User> result) {
+
+    return Math.max(1, result.size());
+
+  }
+
+  public synchronized long size() {
+
+    return entries.size();
+
+  }
+
+  public synchronized long cachedUsers() {
+
+    return cachedUsers;
+
+  }
+
+  public synchronized long hitCount() {
+
+    return hits;
+
+  }
+
+  public synchronized long missCount() {
+
+    return misses;
+
+  }
+
+  public synchronized long putCount() {
+
+    return puts;
+
+  }
+
+  public synchronized long evictionCount() {
+
+    return evictions;
+
+  }
+
+  public synchronized long invalidationCount() {
+
+    return invalidations;
+
+  }
+
+}
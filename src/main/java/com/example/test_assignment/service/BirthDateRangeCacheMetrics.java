@@ -0,0 +1,71 @@
+package com.example.test_assignment.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Publishes {@link BirthDateRangeCache} statistics as the standard {@code cache.*} meters
+ * (gets by hit/miss, puts, evictions, size), plus the users held and precise invalidations.
+ */
+public class BirthDateRangeCacheMetrics extends CacheMeterBinder<BirthDateRangeCache> {
+
+  public BirthDateRangeCacheMetrics(BirthDateRangeCache cache) {
+
+    super(cache, "birthDateRanges", Tags.empty());
+
+  }
+
+  @Override
+  protected Long size() {
+
+    return getCache() != null ? getCache().size() : null;
+
+  }
+
+  @Override
+  protected long hitCount() {
+
+    return getCache() != null ? getCache().hitCount() : 0;
+
+  }
+
+  @Override
+  protected Long missCount() {
+
+    return getCache() != null ? getCache().missCount() : null;
+
+  }
+
+  @Override
+  protected Long evictionCount() {
+
+    return getCache() != null ? getCache().evictionCount() : null;
+
+  }
+
+  @Override
+  protected long putCount() {
+
+    return getCache() != null ? getCache().putCount() : 0;
+
+  }
+
+  @Override
+  protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+
+    Gauge.builder("cache.users", getCache(), BirthDateRangeCache::cachedUsers)
+        .tags(getTagsWithCacheName())
+        .description("Users held by all cached results")
+        .register(registry);
+    FunctionCounter.builder("cache.invalidations", getCache(),
+            BirthDateRangeCache::invalidationCount)
+        .tags(getTagsWithCacheName())
+        .description("Entries dropped because a user in their range changed")
+        .register(registry);
+
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.example.test_assignment.service;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sequence number of the last change to a user born on each day, kept in a max segment tree so
+ * that the version of any birth-date range is found in {@code O(log n)} without looking at users.
+ *
+ * <p>Days from {@link #FIRST_DAY} on are leaves of the tree; the rare earlier and later dates keep
+ * their versions in a sorted map instead, so that a change to them does not show on the first or
+ * last tracked day. Versions only grow and {@link #touch} is called by one writer at a time, so
+ * readers need no lock: a read racing with a touch sees either the old or the new version of each
+ * node.
+ */
+class BirthDateVersions {
+
+  private static final LocalDate FIRST_DAY = LocalDate.of(1900, 1, 1);
+
+  /**
+   * Number of leaves, about 179 years of days.
+   */
+  private static final int DAYS = 1 << 16;
+
+  private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(DAYS - 1);
+
+  /**
+   * Node {@code i} holds the maximum of nodes {@code 2i} and {@code 2i + 1}; leaves start at
+   * {@link #DAYS}.
+   */
+  private final AtomicLongArray tree = new AtomicLongArray(2 * DAYS);
+
+  /**
+   * Versions of the birth dates outside the leaves.
+   */
+  private final NavigableMap<LocalDate, Long> outside = new ConcurrentSkipListMap<>();
+
+  /**
+   * Records a change with sequence {@code version} to a user born on {@code birthDate}. Must be
+   * called after the change is visible in the store, by one thread at a time.
+   */
+  void touch(LocalDate birthDate, long version) {
+
+    if (birthDate == null) {
+      return;
+    }
+    if (birthDate.isBefore(FIRST_DAY) || birthDate.isAfter(LAST_DAY)) {
+      outside.merge(birthDate, version, Math::max);
+      return;
+    }
+    for (int node = DAYS + leaf(birthDate); node > 0 && tree.get(node) < version; node >>= 1) {
+      tree.set(node, version);
+    }
+
+  }
+
+  /**
+   * Highest sequence of a change to a user born between {@code from} and {@code to} inclusive, or
+   * 0 if there was none.
+   */
+  long rangeVersion(LocalDate from, LocalDate to) {
+
+    long version = 0;
+    if (from.isBefore(FIRST_DAY) || to.isAfter(LAST_DAY)) {
+      for (long touched : outside.subMap(from, true, to, true).values()) {
+        version = Math.max(version, touched);
+      }
+      if (to.isBefore(FIRST_DAY) || from.isAfter(LAST_DAY)) {
+        return version;
+      }
+    }
+    for (int lo = DAYS + leaf(from), hi = DAYS + leaf(to) + 1; lo < hi; lo >>= 1, hi >>= 1) {
+      if ((lo & 1) == 1) {
+        version = Math.max(version, tree.get(lo++));
+      }
+      if ((hi & 1) == 1) {
+        version = Math.max(version, tree.get(--hi));
+      }
+    }
+    return version;
+
+  }
+
+  private static int leaf(LocalDate date) {
+
+    long day = date.toEpochDay() - FIRST_DAY.toEpochDay();
+    return (int) Math.max(0, Math.min(DAYS - 1, day));
+
+  }
+
+}
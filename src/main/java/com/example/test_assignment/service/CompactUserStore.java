@@ -0,0 +1,514 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Columnar engine that keeps users out of the object graph: every user is a row in a set of
+ * parallel primitive arrays, and {@link User} objects only exist at the API boundary.
+ *
+ * <ul>
+ *   <li>birth dates are epoch-day ints;</li>
+ *   <li>first names, last names and addresses are dictionary-encoded, so a repeated value is
+ *   stored once;</li>
+ *   <li>emails and phone numbers are kept as UTF-8 byte arrays;</li>
+ *   <li>the email index is an open-addressing table of row numbers.</li>
+ * </ul>
+ *
+ * <p>Writers are serialized by the caller and additionally take the write side of a
+ * {@link StampedLock}; readers read the arrays optimistically and fall back to the read lock when
+ * a writer got in the way. The birth-date tree is only walked under the read lock: a
+ * {@link TreeMap} rebalanced underneath a reader can send it round in circles.
+ */
+public class CompactUserStore implements UserStore {
+
+  private static final int NO_VALUE = -1;
+
+  private static final int NO_BIRTH_DATE = Integer.MIN_VALUE;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final int SCAN_CHUNK = 1024;
+
+  private final StampedLock lock = new StampedLock();
+
+  private final Dictionary firstNames = new Dictionary();
+
+  private final Dictionary lastNames = new Dictionary();
+
+  private final Dictionary addresses = new Dictionary();
+
+  private byte[][] emails = new byte[INITIAL_CAPACITY][];
+
+  private byte[][] phoneNumbers = new byte[INITIAL_CAPACITY][];
+
+  private int[] firstNameIds = new int[INITIAL_CAPACITY];
+
+  private int[] lastNameIds = new int[INITIAL_CAPACITY];
+
+  private int[] addressIds = new int[INITIAL_CAPACITY];
+
+  private int[] birthDates = new int[INITIAL_CAPACITY];
+
+  private int rowCount;
+
+  private int size;
+
+  private int[] freeRows = new int[16];
+
+  private int freeRowCount;
+
+  /**
+   * Email index: slot holds {@code row + 1}, 0 marks an empty slot.
+   */
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+  private final TreeMap<Integer, RowSet> rowsByBirthDate = new TreeMap<>();
+
+  @Override
+  public User find(String email) {
+
+    byte[] key = email.getBytes(StandardCharsets.UTF_8);
+    return read(() -> {
+      int slot = findSlot(key);
+      return slots[slot] != 0 ? materialize(slots[slot] - 1) : null;
+    });
+
+  }
+
+  @Override
+  public boolean insert(User user) {
+
+    byte[] key = user.getEmail().getBytes(StandardCharsets.UTF_8);
+    long stamp = lock.writeLock();
+    try {
+      int slot = findSlot(key);
+      if (slots[slot] != 0) {
+        return false;
+      }
+      int row = allocateRow();
+      emails[row] = key;
+      writeRow(row, user);
+      slots[slot] = row + 1;
+      size++;
+      if (size * 2 > slots.length) {
+        rehash(slots.length * 2);
+      }
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+
+  }
+
+  @Override
+  public void replace(String email, User user) {
+
+    byte[] oldKey = email.getBytes(StandardCharsets.UTF_8);
+    byte[] newKey = user.getEmail().getBytes(StandardCharsets.UTF_8);
+    long stamp = lock.writeLock();
+    try {
+      int row = slots[findSlot(oldKey)] - 1;
+      if (row < 0) {
+        throw new IllegalStateException(String.format("No user stored under %s", email));
+      }
+      if (!Arrays.equals(oldKey, newKey)) {
+        deleteSlot(findSlot(oldKey));
+        slots[findSlot(newKey)] = row + 1;
+        emails[row] = newKey;
+      }
+      clearRow(row);
+      writeRow(row, user);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+
+  }
+
+  @Override
+  public User remove(String email) {
+
+    byte[] key = email.getBytes(StandardCharsets.UTF_8);
+    long stamp = lock.writeLock();
+    try {
+      int slot = findSlot(key);
+      if (slots[slot] == 0) {
+        return null;
+      }
+      int row = slots[slot] - 1;
+      User user = materialize(row);
+      deleteSlot(slot);
+      clearRow(row);
+      emails[row] = null;
+      freeRow(row);
+      size--;
+      return user;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+
+  }
+
+  @Override
+  public int size() {
+
+    return read(() -> size);
+
+  }
+
+  @Override
+  public int birthDateCount() {
+
+    return read(rowsByBirthDate::size);
+
+  }
+
+  /**
+   * Reads one birth date at a time, so the view is weakly consistent: a user moved to another
+   * date while the stream is consumed may be produced twice or not at all.
+   */
+  @Override
+  public Stream<User> findByBirthDateRange(LocalDate from, LocalDate to) {
+
+    int[] dates = readLocked(() -> rowsByBirthDate
+        .subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true)
+        .keySet().stream().mapToInt(Integer::intValue).toArray());
+    return Arrays.stream(dates).boxed().flatMap(date -> findByBirthDate(date).stream());
+
+  }
+
+  @Override
+  public Stream<User> findAll() {
+
+    int chunks = read(() -> (rowCount + SCAN_CHUNK - 1) / SCAN_CHUNK);
+    return IntStream.range(0, chunks).boxed().flatMap(chunk -> read(() -> {
+      List<User> users = new ArrayList<>(SCAN_CHUNK);
+      for (int row = chunk * SCAN_CHUNK; row < Math.min(rowCount, (chunk + 1) * SCAN_CHUNK);
+          row++) {
+        if (emails[row] != null) {
+          users.add(materialize(row));
+        }
+      }
+      return users;
+    }).stream());
+
+  }
+
+  /**
+   * Runs {@code reader} optimistically and repeats it under the read lock if a writer interfered.
+   *
+   * <p>Every read goes through here rather than straight to the read lock: {@link StampedLock}
+   * lets new readers in ahead of a waiting writer, so back-to-back locked reads would starve
+   * writers.
+   */
+  private <T> T read(Supplier<T> reader) {
+
+    return read(lock.tryOptimisticRead(), reader, reader);
+
+  }
+
+  /**
+   * Runs {@code reader} under the optimistic {@code stamp}, or {@code fallback} under the read
+   * lock if a writer interfered. A torn optimistic read may throw; its result is discarded either
+   * way. {@code reader} must only read arrays and fields, never walk the tree.
+   */
+  private <T> T read(long stamp, Supplier<T> reader, Supplier<T> fallback) {
+
+    if (stamp != 0) {
+      try {
+        T result = reader.get();
+        if (lock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException | Error e) {
+        if (lock.validate(stamp)) {
+          throw e;
+        }
+      }
+    }
+    return readLocked(fallback);
+
+  }
+
+  private <T> T readLocked(Supplier<T> reader) {
+
+    long stamp = lock.readLock();
+    try {
+      return reader.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+
+  }
+
+  /**
+   * Users born on {@code date}: their rows are looked up under the read lock and materialized
+   * optimistically once it is released.
+   */
+  private List<User> findByBirthDate(int date) {
+
+    long stamp = lock.readLock();
+    int[] rows;
+    try {
+      rows = rowsBornOn(date);
+    } finally {
+      // Releases the read lock; the stamp stays valid until the next write
+      stamp = lock.tryConvertToOptimisticRead(stamp);
+    }
+    return read(stamp, () -> materialize(rows),
+        () -> materialize(rowsBornOn(date)));
+
+  }
+
+  private int[] rowsBornOn(int date) {
+
+    RowSet rows = rowsByBirthDate.get(date);
+    return rows != null ? Arrays.copyOf(rows.rows, rows.size) : new int[0];
+
+  }
+
+  private List<User> materialize(int[] rows) {
+
+    List<User> users = new ArrayList<>(rows.length);
+    for (int row : rows) {
+      users.add(materialize(row));
+    }
+    return users;
+
+  }
+
+  private User materialize(int row) {
+
+    int birthDate = birthDates[row];
+    return User.builder()
+        .email(new String(emails[row], StandardCharsets.UTF_8))
+        .firstName(firstNames.get(firstNameIds[row]))
+        .lastName(lastNames.get(lastNameIds[row]))
+        .birthDate(birthDate != NO_BIRTH_DATE ? LocalDate.ofEpochDay(birthDate) : null)
+        .address(addresses.get(addressIds[row]))
+        .phoneNumber(phoneNumbers[row] != null
+            ? new String(phoneNumbers[row], StandardCharsets.UTF_8) : null)
+        .build();
+
+  }
+
+  private void writeRow(int row, User user) {
+
+    firstNameIds[row] = firstNames.acquire(user.getFirstName());
+    lastNameIds[row] = lastNames.acquire(user.getLastName());
+    addressIds[row] = addresses.acquire(user.getAddress());
+    phoneNumbers[row] = user.getPhoneNumber() != null
+        ? user.getPhoneNumber().getBytes(StandardCharsets.UTF_8) : null;
+    birthDates[row] = user.getBirthDate() != null
+        ? (int) user.getBirthDate().toEpochDay() : NO_BIRTH_DATE;
+    if (birthDates[row] != NO_BIRTH_DATE) {
+      rowsByBirthDate.computeIfAbsent(birthDates[row], date -> new RowSet()).add(row);
+    }
+
+  }
+
+  private void clearRow(int row) {
+
+    firstNames.release(firstNameIds[row]);
+    lastNames.release(lastNameIds[row]);
+    addresses.release(addressIds[row]);
+    phoneNumbers[row] = null;
+    if (birthDates[row] != NO_BIRTH_DATE) {
+      RowSet rows = rowsByBirthDate.get(birthDates[row]);
+      rows.remove(row);
+      if (rows.size == 0) {
+        rowsByBirthDate.remove(birthDates[row]);
+      }
+    }
+
+  }
+
+  private int allocateRow() {
+
+    if (freeRowCount > 0) {
+      return freeRows[--freeRowCount];
+    }
+    if (rowCount == emails.length) {
+      int capacity = emails.length * 2;
+      emails = Arrays.copyOf(emails, capacity);
+      phoneNumbers = Arrays.copyOf(phoneNumbers, capacity);
+      firstNameIds = Arrays.copyOf(firstNameIds, capacity);
+      lastNameIds = Arrays.copyOf(lastNameIds, capacity);
+      addressIds = Arrays.copyOf(addressIds, capacity);
+      birthDates = Arrays.copyOf(birthDates, capacity);
+    }
+    return rowCount++;
+
+  }
+
+  private void freeRow(int row) {
+
+    if (freeRowCount == freeRows.length) {
+      freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+    }
+    freeRows[freeRowCount++] = row;
+
+  }
+
+  /**
+   * Linear probing: returns the slot holding {@code key}, or the empty slot where it belongs.
+   */
+  private int findSlot(byte[] key) {
+
+    int mask = slots.length - 1;
+    int slot = hash(key) & mask;
+    while (slots[slot] != 0 && !Arrays.equals(emails[slots[slot] - 1], key)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+
+  }
+
+  /**
+   * Empties {@code slot} and shifts later entries of the probe sequence back, so lookups never
+   * need tombstones.
+   */
+  private void deleteSlot(int slot) {
+
+    int mask = slots.length - 1;
+    int hole = slot;
+    int next = slot;
+    while (true) {
+      next = (next + 1) & mask;
+      if (slots[next] == 0) {
+        break;
+      }
+      int home = hash(emails[slots[next] - 1]) & mask;
+      boolean movable = hole <= next
+          ? home <= hole || home > next
+          : home <= hole && home > next;
+      if (movable) {
+        slots[hole] = slots[next];
+        hole = next;
+      }
+    }
+    slots[hole] = 0;
+
+  }
+
+  private void rehash(int capacity) {
+
+    int[] previous = slots;
+    slots = new int[capacity];
+    for (int entry : previous) {
+      if (entry != 0) {
+        slots[findSlot(emails[entry - 1])] = entry;
+      }
+    }
+
+  }
+
+  private static int hash(byte[] key) {
+
+    int hash = Arrays.hashCode(key);
+    return hash ^ (hash >>> 16);
+
+  }
+
+  /**
+   * Reference-counted dictionary of repeated string values; ids of unused values are recycled.
+   */
+  private static final class Dictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private String[] values = new String[16];
+
+    private int[] references = new int[16];
+
+    private int count;
+
+    private int[] freeIds = new int[16];
+
+    private int freeIdCount;
+
+    String get(int id) {
+
+      return id != NO_VALUE ? values[id] : null;
+
+    }
+
+    int acquire(String value) {
+
+      if (value == null) {
+        return NO_VALUE;
+      }
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = freeIdCount > 0 ? freeIds[--freeIdCount] : count++;
+        if (id == values.length) {
+          values = Arrays.copyOf(values, values.length * 2);
+          references = Arrays.copyOf(references, references.length * 2);
+        }
+        values[id] = value;
+        ids.put(value, id);
+      }
+      references[id]++;
+      return id;
+
+    }
+
+    void release(int id) {
+
+      if (id == NO_VALUE || --references[id] > 0) {
+        return;
+      }
+      ids.remove(values[id]);
+      values[id] = null;
+      if (freeIdCount == freeIds.length) {
+        freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+      }
+      freeIds[freeIdCount++] = id;
+
+    }
+
+  }
+
+  /**
+   * Unordered set of rows sharing a birth date.
+   */
+  private static final class RowSet {
+
+    private int[] rows = new int[4];
+
+    private int size;
+
+    void add(int row) {
+
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, size * 2);
+      }
+      rows[size++] = row;
+
+    }
+
+    void remove(int row) {
+
+      for (int i = 0; i < size; i++) {
+        if (rows[i] == row) {
+          rows[i] = rows[--size];
+          return;
+        }
+      }
+
+    }
+
+  }
+
+}
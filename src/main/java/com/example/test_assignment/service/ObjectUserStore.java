@@ -0,0 +1,252 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Default engine: {@link User} objects in a concurrent hash map keyed by email, plus a
+ * {@link BirthDateIndex}. Reads are lock-free.
+ *
+ * <p>Every write is a commit with the next number; it swaps in a new {@link UserVersion} and
+ * marks the one it replaces as superseded at that commit instead of removing it from the index.
+ * A range search reads the last commit number as its snapshot and only sees the versions visible
+ * at it, so it never sees a user twice, or not at all, while the user moves between birth dates,
+ * and never waits for a writer. Superseded versions are dropped from the index by the writer once
+ * no open search can see them any more.
+ *
+ * <p>A search that stays open, e.g. streamed to a client that stopped reading, would keep every
+ * version superseded since. At most {@code maxRetainedVersions} are kept for open searches; the
+ * writer drops the oldest beyond them, and a search whose snapshot needed one fails with a
+ * {@link ConcurrentModificationException} instead of quietly missing users.
+ */
+public class ObjectUserStore implements UserStore {
+
+  public static final int DEFAULT_MAX_RETAINED_VERSIONS = 100_000;
+
+  private final int maxRetainedVersions;
+
+  private final Map<String, UserVersion> users = new ConcurrentHashMap<>();
+
+  private final BirthDateIndex usersByBirthDate = new BirthDateIndex();
+
+  /**
+   * Number of the last published commit; written by the writer only.
+   */
+  private volatile long committed;
+
+  /**
+   * Snapshots of the range searches whose stream is still open, with the number of searches
+   * holding each.
+   */
+  private final ConcurrentNavigableMap<Long, Integer> openSnapshots =
+      new ConcurrentSkipListMap<>();
+
+  /**
+   * Superseded versions still in the birth-date index, in commit order; writer only.
+   */
+  private final Queue<UserVersion> superseded = new ArrayDeque<>();
+
+  /**
+   * Snapshots older than this may miss versions dropped while they were open.
+   */
+  private volatile long expiredBefore;
+
+  public ObjectUserStore() {
+
+    this(DEFAULT_MAX_RETAINED_VERSIONS);
+
+  }
+
+  /**
+   * @param maxRetainedVersions superseded versions kept at most for open range searches
+   */
+  public ObjectUserStore(int maxRetainedVersions) {
+
+    if (maxRetainedVersions < 0) {
+      throw new IllegalArgumentException(
+          String.format("Invalid maximum of %d retained versions", maxRetainedVersions));
+    }
+    this.maxRetainedVersions = maxRetainedVersions;
+
+  }
+
+  @Override
+  public User find(String email) {
+
+    UserVersion version = users.get(email);
+    return version != null ? version.user : null;
+
+  }
+
+  @Override
+  public boolean insert(User user) {
+
+    long commit = committed + 1;
+    UserVersion version = new UserVersion(user, commit);
+    if (users.putIfAbsent(user.getEmail(), version) != null) {
+      return false;
+    }
+    usersByBirthDate.add(version);
+    publish(commit);
+    return true;
+
+  }
+
+  @Override
+  public void replace(String email, User user) {
+
+    long commit = committed + 1;
+    UserVersion version = new UserVersion(user, commit);
+    UserVersion previous = users.put(user.getEmail(), version);
+    if (!user.getEmail().equals(email)) {
+      previous = users.remove(email);
+    }
+    usersByBirthDate.add(version);
+    supersede(previous, commit);
+    publish(commit);
+
+  }
+
+  @Override
+  public User remove(String email) {
+
+    UserVersion version = users.remove(email);
+    if (version == null) {
+      return null;
+    }
+    long commit = committed + 1;
+    supersede(version, commit);
+    publish(commit);
+    return version.user;
+
+  }
+
+  @Override
+  public int size() {
+
+    return users.size();
+
+  }
+
+  @Override
+  public int birthDateCount() {
+
+    return usersByBirthDate.dateCount();
+
+  }
+
+  /**
+   * Point-in-time view as of the last commit when the search starts. Superseded versions the
+   * search can see stay in the index until the stream is closed, or until more than
+   * {@code maxRetainedVersions} are superseded; the stream then fails.
+   */
+  @Override
+  public Stream<User> findByBirthDateRange(LocalDate from, LocalDate to) {
+
+    long snapshot = openSnapshot();
+    Iterator<User> users = usersByBirthDate.range(from, to, snapshot).iterator();
+    // Checked after every read: a version dropped before it was read expired the snapshot first
+    Iterator<User> checked = new Iterator<>() {
+
+      @Override
+      public boolean hasNext() {
+
+        boolean hasNext = users.hasNext();
+        if (snapshot < expiredBefore) {
+          throw new ConcurrentModificationException(String.format(
+              "More than %d versions superseded while the range search was open, run it again",
+              maxRetainedVersions));
+        }
+        return hasNext;
+
+      }
+
+      @Override
+      public User next() {
+
+        return users.next();
+
+      }
+
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(checked,
+            Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(() -> closeSnapshot(snapshot));
+
+  }
+
+  @Override
+  public Stream<User> findAll() {
+
+    return users.values().stream().map(version -> version.user);
+
+  }
+
+  private void supersede(UserVersion version, long commit) {
+
+    version.to = commit;
+    if (version.user.getBirthDate() != null) {
+      superseded.add(version);
+    }
+
+  }
+
+  /**
+   * Makes the versions of {@code commit} visible to new snapshots, then drops the superseded
+   * versions that no snapshot, open or future, can see, and the oldest ones beyond
+   * {@code maxRetainedVersions}.
+   */
+  private void publish(long commit) {
+
+    committed = commit;
+    Map.Entry<Long, Integer> oldestSnapshot = openSnapshots.firstEntry();
+    long horizon = oldestSnapshot != null ? Math.min(oldestSnapshot.getKey(), commit) : commit;
+    while (!superseded.isEmpty() && superseded.peek().to <= horizon) {
+      usersByBirthDate.remove(superseded.poll());
+    }
+    while (superseded.size() > maxRetainedVersions) {
+      UserVersion oldest = superseded.poll();
+      // Before the version goes, so that a search that misses it finds out
+      expiredBefore = oldest.to;
+      usersByBirthDate.remove(oldest);
+    }
+
+  }
+
+  /**
+   * Registers a snapshot of the last commit. A writer that published a newer commit in between
+   * may have missed the registration and dropped versions the snapshot needs, so the snapshot is
+   * only kept if no commit was published while registering it.
+   */
+  private long openSnapshot() {
+
+    while (true) {
+      long snapshot = committed;
+      openSnapshots.merge(snapshot, 1, Integer::sum);
+      if (committed == snapshot) {
+        return snapshot;
+      }
+      closeSnapshot(snapshot);
+    }
+
+  }
+
+  private void closeSnapshot(long snapshot) {
+
+    openSnapshots.computeIfPresent(snapshot, (commit, count) -> count > 1 ? count - 1 : null);
+
+  }
+
+}
@@ -0,0 +1,27 @@
+package com.example.test_assignment.service;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Thrown when a request is turned away because too many like it are already in progress, by an
+ * {@link AdaptiveConcurrencyLimit} or by the {@link UserChangeFeed} when it has all the
+ * subscribers it serves.
+ */
+@Getter
+public class OverloadedException extends RuntimeException {
+
+  /**
+   * How long the client should wait before trying again.
+   */
+  private final Duration retryAfter;
+
+  public OverloadedException(String message, Duration retryAfter) {
+
+    // No stack trace: rejecting has to stay cheap when it happens to most requests
+    super(message, null, false, false);
+    this.retryAfter = retryAfter;
+
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Hash index from canonical phone numbers to the emails of the users having them, so that a
+ * caller's number resolves to users in {@code O(1)}. A number of a single user, the usual case,
+ * holds that user's email alone; a shared one holds an array of emails, replaced on every change.
+ *
+ * <p>Writers must be serialized by the caller; readers may run concurrently with them and see a
+ * weakly consistent view, so callers check every user they get against its current state.
+ */
+class PhoneNumberIndex {
+
+  /**
+   * {@code String} email or {@code String[]} emails by canonical phone number.
+   */
+  private final Map<String, Object> emailsByPhoneNumber = new ConcurrentHashMap<>();
+
+  /**
+   * Canonical form of a phone number: without blanks and the usual separators
+   * ({@code - . / ( )}), with a leading international {@code 00} written as {@code +}. Other
+   * characters are kept, so that whatever is stored can still be looked up. Blank numbers have no
+   * canonical form.
+   */
+  static String normalize(String phoneNumber) {
+
+    if (phoneNumber == null) {
+      return null;
+    }
+    StringBuilder canonical = new StringBuilder(phoneNumber.length());
+    for (int i = 0; i < phoneNumber.length(); i++) {
+      char c = phoneNumber.charAt(i);
+      if (!Character.isWhitespace(c) && "-./()".indexOf(c) < 0) {
+        canonical.append(c);
+      }
+    }
+    if (canonical.length() > 2 && canonical.charAt(0) == '0' && canonical.charAt(1) == '0') {
+      canonical.replace(0, 2, "+");
+    }
+    return !canonical.isEmpty() ? canonical.toString() : null;
+
+  }
+
+  /**
+   * Whether a change from {@code before} to {@code after} changes an indexed entry.
+   */
+  static boolean changed(User before, User after) {
+
+    return before == null || after == null
+        || !Objects.equals(before.getEmail(), after.getEmail())
+        || !Objects.equals(normalize(before.getPhoneNumber()),
+            normalize(after.getPhoneNumber()));
+
+  }
+
+  void add(User user) {
+
+    String phoneNumber = normalize(user.getPhoneNumber());
+    if (phoneNumber == null) {
+      return;
+    }
+    Object emails = emailsByPhoneNumber.get(phoneNumber);
+    if (emails == null) {
+      emailsByPhoneNumber.put(phoneNumber, user.getEmail());
+    } else if (emails instanceof String[] array) {
+      String[] grown = Arrays.copyOf(array, array.length + 1);
+      grown[array.length] = user.getEmail();
+      emailsByPhoneNumber.put(phoneNumber, grown);
+    } else if (!emails.equals(user.getEmail())) {
+      emailsByPhoneNumber.put(phoneNumber, new String[] {(String) emails, user.getEmail()});
+    }
+
+  }
+
+  void remove(User user) {
+
+    String phoneNumber = normalize(user.getPhoneNumber());
+    Object emails = phoneNumber != null ? emailsByPhoneNumber.get(phoneNumber) : null;
+    if (emails instanceof String[] array) {
+      String[] rest = Arrays.stream(array)
+          .filter(email -> !email.equals(user.getEmail()))
+          .toArray(String[]::new);
+      emailsByPhoneNumber.put(phoneNumber, rest.length == 1 ? rest[0] : rest);
+    } else if (emails != null && emails.equals(user.getEmail())) {
+      emailsByPhoneNumber.remove(phoneNumber);
+    }
+
+  }
+
+  /**
+   * Emails of the users with the canonical phone number {@code phoneNumber}.
+   */
+  Stream<String> find(String phoneNumber) {
+
+    Object emails = emailsByPhoneNumber.get(phoneNumber);
+    if (emails == null) {
+      return Stream.empty();
+    }
+    return emails instanceof String[] array ? Arrays.stream(array) : Stream.of((String) emails);
+
+  }
+
+}
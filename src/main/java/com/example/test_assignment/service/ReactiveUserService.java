@@ -0,0 +1,176 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserChangeEvent;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.UserChangeFeed.Overflow;
+import com.example.test_assignment.service.UserChangeFeed.Subscription;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Scheduler.Worker;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking facade over {@link UserService} for the reactive profile.
+ *
+ * <p>Reads only touch the in-memory store and run on the calling event-loop thread. Writes may
+ * wait for the store's write lock and, with persistence enabled, for the change log to be forced
+ * to disk, so they are moved off the event loop onto {@link Schedulers#boundedElastic()}.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserService {
+
+  private final Scheduler writeScheduler = Schedulers.boundedElastic();
+
+  private final UserService userService;
+
+  private final UserChangeFeed userChangeFeed;
+
+  public Mono<User> addUser(UserDto userDto) {
+
+    return write(() -> userService.addUser(userDto));
+
+  }
+
+  public Mono<List<BatchItemResult>> addUsers(Flux<UserDto> userDtos) {
+
+    return userDtos.collectList().flatMap(list -> write(() -> userService.addUsers(list)));
+
+  }
+
+  public Mono<User> updateUserFields(String email, Map<String, Object> update) {
+
+    return write(() -> userService.updateUserFields(email, update));
+
+  }
+
+  public Mono<List<BatchItemResult>> updateUsersFields(
+      Map<String, Map<String, Object>> updates) {
+
+    return write(() -> userService.updateUsersFields(updates));
+
+  }
+
+  public Mono<User> updateUser(UserDto userDto) {
+
+    return write(() -> userService.updateUser(userDto));
+
+  }
+
+  public Mono<Void> deleteUser(String email) {
+
+    return write(() -> {
+      userService.deleteUser(email);
+      return null;
+    });
+
+  }
+
+  public Mono<List<BatchItemResult>> deleteUsers(List<String> emails) {
+
+    return write(() -> userService.deleteUsers(emails));
+
+  }
+
+  /**
+   * Walks the birth-date index as the subscriber requests users, so a slow client holds back the
+   * walk instead of buffering the whole result.
+   */
+  public Flux<User> searchUsersByBirthDateRange(LocalDate from, LocalDate to) {
+
+    return Flux.fromStream(() -> userService.streamUsersByBirthDateRange(from, to));
+
+  }
+
+  public Mono<String> birthDateRangeVersionTag(LocalDate from, LocalDate to) {
+
+    return Mono.fromCallable(() -> userService.birthDateRangeVersionTag(from, to));
+
+  }
+
+  public Mono<List<User>> searchUsersByText(String query, TextMatch match, int limit) {
+
+    return Mono.fromCallable(() -> userService.searchUsersByText(query, match, limit));
+
+  }
+
+  public Mono<List<User>> findUsersByPhoneNumber(String phoneNumber) {
+
+    return Mono.fromCallable(() -> userService.findUsersByPhoneNumber(phoneNumber));
+
+  }
+
+  public Mono<List<BirthDateCount>> countUsersByBirthDate(LocalDate from, LocalDate to,
+      Grouping groupBy) {
+
+    return Mono.fromCallable(() -> userService.countUsersByBirthDate(from, to, groupBy));
+
+  }
+
+  /**
+   * Committed changes as the subscriber demands them. Nothing waits on a slow subscriber: changes
+   * queue up in its {@link Subscription} until {@code overflow} applies, and are moved to the
+   * subscriber on a worker of {@link Schedulers#parallel()} whenever there is both a change and
+   * demand.
+   */
+  public Flux<UserChangeEvent> streamChanges(Long lastSequence, Overflow overflow) {
+
+    return Flux.create(sink -> {
+      Subscription subscription = userChangeFeed.subscribe(lastSequence, overflow);
+      Worker worker = Schedulers.parallel().createWorker();
+      // Drains run one at a time; a signal during a drain makes it go round once more
+      AtomicInteger signals = new AtomicInteger();
+      Runnable drain = () -> {
+        int missed = 1;
+        do {
+          UserChangeEvent event;
+          while (sink.requestedFromDownstream() > 0 && (event = subscription.poll()) != null) {
+            sink.next(event);
+          }
+          if (subscription.isClosed()) {
+            sink.complete();
+            return;
+          }
+          missed = signals.addAndGet(-missed);
+        } while (missed != 0);
+      };
+      Runnable signal = () -> {
+        if (signals.getAndIncrement() == 0) {
+          worker.schedule(drain);
+        }
+      };
+      sink.onDispose(() -> {
+        subscription.close();
+        worker.dispose();
+      });
+      subscription.onAvailable(signal);
+      sink.onRequest(n -> signal.run());
+    });
+
+  }
+
+  private <T> Mono<T> write(Callable<T> operation) {
+
+    return Mono.fromCallable(operation).subscribeOn(writeScheduler);
+
+  }
+
+}
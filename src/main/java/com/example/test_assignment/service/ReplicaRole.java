@@ -0,0 +1,27 @@
+package com.example.test_assignment.service;
+
+/**
+ * Whether this instance of {@link UserService} may take writes and serve reads, e.g. as a
+ * replication follower that only applies the changes of its leader.
+ */
+public interface ReplicaRole {
+
+  /**
+   * Role of an instance that replicates from no one: writable and always up to date.
+   */
+  ReplicaRole LEADER = new ReplicaRole() {
+  };
+
+  /**
+   * @throws ReplicaUnavailableException if writes must go to another instance
+   */
+  default void checkWritable() {
+  }
+
+  /**
+   * @throws ReplicaUnavailableException if reads would be staler than allowed
+   */
+  default void checkFresh() {
+  }
+
+}
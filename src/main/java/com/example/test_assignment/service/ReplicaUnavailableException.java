@@ -0,0 +1,15 @@
+package com.example.test_assignment.service;
+
+/**
+ * Thrown when this instance cannot serve a request in its {@link ReplicaRole}, e.g. a write to a
+ * follower or a read from a follower that lags too far behind its leader.
+ */
+public class ReplicaUnavailableException extends RuntimeException {
+
+  public ReplicaUnavailableException(String message) {
+
+    super(message);
+
+  }
+
+}
@@ -0,0 +1,270 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Engine that splits the users into a fixed number of shards by the hash of their email, each an
+ * independent engine with its own email and birth-date index. Point operations touch one shard;
+ * a range search runs on every shard in parallel on a {@link ForkJoinPool} and merges the
+ * results by birth date.
+ *
+ * <p>Only reads are fanned out. Writes stay serialized by the caller, like for every engine:
+ * {@link UserService} numbers each change under one write lock, which orders the change log, the
+ * feed and the replicas. The store's part of a write is also a small share of it: with 100 000
+ * users, a replace in the object engine takes about 3 us of the 16 us of
+ * {@code UserService.addUser} ({@code UserServiceWriteBenchmark}), so per-shard write locks could
+ * speed writes up by a quarter at most.
+ *
+ * <p>A range search opens the streams of all shards together, between two writes, so with
+ * engines that search snapshots it sees one point in time even when a user moves to another
+ * shard. Each shard's results are collected in parallel before they are merged, so range streams
+ * are not lazy: that is the price of the fan-out.
+ */
+public class ShardedUserStore implements UserStore, AutoCloseable {
+
+  private static final Comparator<User> BY_BIRTH_DATE = Comparator.comparing(User::getBirthDate,
+      Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  private final UserStore[] shards;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Held shared while the shards' range streams are opened and exclusively by each write, so that
+   * no write falls between the shards' snapshots.
+   */
+  private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+  /**
+   * @param shards number of shards
+   * @param parallelism threads of the pool running range searches
+   * @param shardFactory creates the engine of each shard
+   */
+  public ShardedUserStore(int shards, int parallelism, Supplier<UserStore> shardFactory) {
+
+    if (shards < 1) {
+      throw new IllegalArgumentException("A sharded store needs at least one shard");
+    }
+    this.shards = new UserStore[shards];
+    Arrays.setAll(this.shards, shard -> shardFactory.get());
+    this.pool = new ForkJoinPool(parallelism);
+
+  }
+
+  @Override
+  public User find(String email) {
+
+    return shard(email).find(email);
+
+  }
+
+  @Override
+  public boolean insert(User user) {
+
+    snapshotLock.writeLock().lock();
+    try {
+      return shard(user.getEmail()).insert(user);
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+
+  }
+
+  /**
+   * A new email of another shard moves the user: it is inserted there before it is removed from
+   * its old shard.
+   */
+  @Override
+  public void replace(String email, User user) {
+
+    UserStore from = shard(email);
+    UserStore to = shard(user.getEmail());
+    snapshotLock.writeLock().lock();
+    try {
+      if (from == to) {
+        from.replace(email, user);
+      } else {
+        to.insert(user);
+        from.remove(email);
+      }
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+
+  }
+
+  @Override
+  public User remove(String email) {
+
+    snapshotLock.writeLock().lock();
+    try {
+      return shard(email).remove(email);
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+
+  }
+
+  @Override
+  public int size() {
+
+    return Arrays.stream(shards).mapToInt(UserStore::size).sum();
+
+  }
+
+  /**
+   * Summed over the shards, so a date held by several shards counts once per shard.
+   */
+  @Override
+  public int birthDateCount() {
+
+    return Arrays.stream(shards).mapToInt(UserStore::birthDateCount).sum();
+
+  }
+
+  /**
+   * Collects the first shard on the calling thread and the others on the pool, then merges the
+   * per-shard results, each already ordered by birth date.
+   */
+  @Override
+  public Stream<User> findByBirthDateRange(LocalDate from, LocalDate to) {
+
+    List<Stream<User>> ranges = new ArrayList<>(shards.length);
+    snapshotLock.readLock().lock();
+    try {
+      for (UserStore shard : shards) {
+        ranges.add(shard.findByBirthDateRange(from, to));
+      }
+    } catch (RuntimeException e) {
+      ranges.forEach(Stream::close);
+      throw e;
+    } finally {
+      snapshotLock.readLock().unlock();
+    }
+    List<ForkJoinTask<List<User>>> tasks = new ArrayList<>(shards.length - 1);
+    for (Stream<User> range : ranges.subList(1, ranges.size())) {
+      tasks.add(pool.submit(() -> collect(range)));
+    }
+    List<List<User>> runs = new ArrayList<>(shards.length);
+    runs.add(collect(ranges.get(0)));
+    int size = runs.get(0).size();
+    for (ForkJoinTask<List<User>> task : tasks) {
+      runs.add(task.join());
+      size += runs.get(runs.size() - 1).size();
+    }
+    return StreamSupport.stream(Spliterators.spliterator(new Merge(runs), size,
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+
+  }
+
+  @Override
+  public Stream<User> findAll() {
+
+    return Arrays.stream(shards).flatMap(UserStore::findAll);
+
+  }
+
+  @Override
+  public void close() {
+
+    pool.shutdown();
+
+  }
+
+  private static List<User> collect(Stream<User> range) {
+
+    try (range) {
+      return range.toList();
+    }
+
+  }
+
+  private UserStore shard(String email) {
+
+    // Spread the hash bits the way HashMap does, so that similar emails land on different shards
+    int hash = email.hashCode();
+    return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+
+  }
+
+  /**
+   * Merges runs ordered by birth date into one, taking the next user from the run whose next user
+   * was born first.
+   */
+  private static final class Merge implements Iterator<User> {
+
+    private final PriorityQueue<Run> runs =
+        new PriorityQueue<>(Comparator.comparing(Run::peek, BY_BIRTH_DATE));
+
+    Merge(List<List<User>> runs) {
+
+      for (List<User> run : runs) {
+        if (!run.isEmpty()) {
+          this.runs.add(new Run(run));
+        }
+      }
+
+    }
+
+    @Override
+    public boolean hasNext() {
+
+      return !runs.isEmpty();
+
+    }
+
+    @Override
+    public User next() {
+
+      Run run = runs.poll();
+      if (run == null) {
+        throw new NoSuchElementException();
+      }
+      User user = run.users.get(run.next++);
+      if (run.next < run.users.size()) {
+        runs.add(run);
+      }
+      return user;
+
+    }
+
+  }
+
+  private static final class Run {
+
+    private final List<User> users;
+
+    private int next;
+
+    Run(List<User> users) {
+
+      this.users = users;
+
+    }
+
+    User peek() {
+
+      return users.get(next);
+
+    }
+
+  }
+
+}
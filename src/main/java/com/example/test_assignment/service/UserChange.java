@@ -0,0 +1,20 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+
+/**
+ * A committed mutation of the user store, numbered in commit order.
+ *
+ * @param sequence position of the change in the store's history, starting at 1
+ * @param type     the operation that produced the change
+ * @param email    email the user was stored under before the change; differs from
+ *                 {@code user.getEmail()} when a PATCH moved the user to a new email
+ * @param user     state of the user after the change, {@code null} for {@link Type#DELETE}
+ */
+public record UserChange(long sequence, Type type, String email, User user) {
+
+  public enum Type {
+    ADD, UPDATE, PATCH, DELETE
+  }
+
+}
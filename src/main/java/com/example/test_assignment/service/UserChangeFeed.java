@@ -0,0 +1,342 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.UserChangeEvent;
+import com.example.test_assignment.model.UserChangeEvent.Kind;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands every committed change to the subscribers of the change feed, each through a bounded
+ * queue of its own, and keeps the most recent changes so that a subscriber can resume after the
+ * last change it received.
+ *
+ * <p>{@link #onChange} only appends to in-memory queues and never waits. When a subscriber's
+ * queue is full, its {@link Overflow} policy decides whether it loses the change or is cut off;
+ * either way a stalled subscriber never slows down writers.
+ *
+ * <p>At most {@code maxSubscribers} are served at a time; beyond them {@link #subscribe} turns
+ * the subscriber away with an {@link OverloadedException}.
+ */
+public class UserChangeFeed implements UserChangeListener {
+
+  /**
+   * What happens to a subscriber that falls more than the buffer size behind.
+   */
+  public enum Overflow {
+    /**
+     * Skip the changes that do not fit and send a {@link Kind#RESET} in their place.
+     */
+    DROP,
+    /**
+     * End the subscription once the queued changes are sent; the subscriber resumes after the
+     * last one it received.
+     */
+    DISCONNECT
+  }
+
+  private final int backlogSize;
+
+  private final int subscriberBufferSize;
+
+  private final int maxSubscribers;
+
+  private final Duration retryAfter;
+
+  // guarded by this
+  private final Deque<UserChange> backlog = new ArrayDeque<>();
+
+  private final List<Subscription> subscriptions = new ArrayList<>();
+
+  private long lastSequence;
+
+  private final LongAdder droppedChanges = new LongAdder();
+
+  private final LongAdder disconnectedSubscribers = new LongAdder();
+
+  /**
+   * @param backlogSize          number of recent changes kept for subscribers that resume
+   * @param subscriberBufferSize number of changes a subscriber may fall behind
+   * @param maxSubscribers       number of subscribers served at a time
+   * @param retryAfter           how long a subscriber turned away should wait
+   */
+  public UserChangeFeed(int backlogSize, int subscriberBufferSize, int maxSubscribers,
+      Duration retryAfter) {
+
+    if (maxSubscribers < 1) {
+      throw new IllegalArgumentException(
+          String.format("Invalid maximum of %d change feed subscribers", maxSubscribers));
+    }
+    this.backlogSize = backlogSize;
+    this.subscriberBufferSize = subscriberBufferSize;
+    this.maxSubscribers = maxSubscribers;
+    this.retryAfter = retryAfter;
+
+  }
+
+  @Override
+  public synchronized void onChange(UserChange change) {
+
+    lastSequence = change.sequence();
+    backlog.addLast(change);
+    if (backlog.size() > backlogSize) {
+      backlog.removeFirst();
+    }
+    subscriptions.removeIf(subscription -> !subscription.offer(change));
+
+  }
+
+  /**
+   * Starts collecting changes for a subscriber.
+   *
+   * @param lastSequence sequence of the last change the subscriber received, {@code null} to
+   *                     start with the next change. If the backlog no longer holds every change
+   *                     after it, the subscription starts with a {@link Kind#RESET}.
+   * @throws OverloadedException if {@code maxSubscribers} are already subscribed
+   */
+  public synchronized Subscription subscribe(Long lastSequence, Overflow overflow) {
+
+    if (subscriptions.size() >= maxSubscribers) {
+      throw new OverloadedException(String.format(
+          "Too many change feed subscribers, retry in %d s", retryAfter.toSeconds()), retryAfter);
+    }
+    Subscription subscription = new Subscription(overflow);
+    if (lastSequence == null) {
+      subscription.lastDelivered = knownSequence();
+    } else if (resumable(lastSequence)) {
+      subscription.lastDelivered = lastSequence;
+      for (UserChange change : backlog) {
+        if (change.sequence() > lastSequence) {
+          subscription.changes.add(change);
+        }
+      }
+    } else {
+      subscription.pending = reset(this.lastSequence);
+      subscription.lastDelivered = knownSequence();
+    }
+    subscriptions.add(subscription);
+    return subscription;
+
+  }
+
+  /**
+   * Number of subscribers currently receiving changes.
+   */
+  public synchronized int subscribers() {
+
+    return subscriptions.size();
+
+  }
+
+  /**
+   * Changes skipped for {@link Overflow#DROP} subscribers, counted once per subscriber.
+   */
+  public long droppedChanges() {
+
+    return droppedChanges.sum();
+
+  }
+
+  /**
+   * {@link Overflow#DISCONNECT} subscribers cut off for falling behind.
+   */
+  public long disconnectedSubscribers() {
+
+    return disconnectedSubscribers.sum();
+
+  }
+
+  private synchronized void unsubscribe(Subscription subscription) {
+
+    subscriptions.remove(subscription);
+
+  }
+
+  /**
+   * The sequence the next change follows, {@code -1} before the first change seen here: changes
+   * restored from disk are never published, so the store may already be further.
+   */
+  private long knownSequence() {
+
+    return lastSequence > 0 ? lastSequence : -1;
+
+  }
+
+  private boolean resumable(long sequence) {
+
+    if (sequence > lastSequence || lastSequence - sequence > subscriberBufferSize) {
+      return false;
+    }
+    if (sequence == lastSequence) {
+      return lastSequence > 0;
+    }
+    UserChange oldest = backlog.peekFirst();
+    return oldest != null && sequence >= oldest.sequence() - 1;
+
+  }
+
+  private static UserChangeEvent reset(long missedUpTo) {
+
+    return UserChangeEvent.builder()
+        .sequence(Math.max(0, missedUpTo))
+        .kind(Kind.RESET)
+        .build();
+
+  }
+
+  /**
+   * Changes queued for one subscriber. Events are taken by one consumer at a time, which closes
+   * the subscription once done.
+   */
+  public final class Subscription implements AutoCloseable {
+
+    private final BlockingQueue<UserChange> changes;
+
+    private final Overflow overflow;
+
+    /**
+     * Sequence of the last change skipped, {@code 0} if none.
+     */
+    private volatile long lastDropped;
+
+    private volatile boolean overflowed;
+
+    private volatile Runnable listener;
+
+    // consumer side
+
+    private long lastDelivered;
+
+    private UserChangeEvent pending;
+
+    private Subscription(Overflow overflow) {
+
+      this.changes = new ArrayBlockingQueue<>(subscriberBufferSize);
+      this.overflow = overflow;
+
+    }
+
+    /**
+     * Calls {@code listener} whenever a change is queued or skipped, from the writing thread
+     * under the store's write lock; it must only schedule the consumer.
+     */
+    public void onAvailable(Runnable listener) {
+
+      this.listener = listener;
+
+    }
+
+    /**
+     * The next event, or {@code null} if there is none yet.
+     */
+    public UserChangeEvent poll() {
+
+      if (pending != null) {
+        UserChangeEvent event = pending;
+        pending = null;
+        return event;
+      }
+      // Read before polling: every change up to it was then either queued or skipped
+      long dropped = lastDropped;
+      UserChange change = changes.poll();
+      return change != null ? deliver(change) : missedUpTo(dropped);
+
+    }
+
+    /**
+     * The next event, waiting up to {@code timeout} for one.
+     */
+    public UserChangeEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+      UserChangeEvent event = poll();
+      if (event == null) {
+        UserChange change = changes.poll(timeout, unit);
+        event = change != null ? deliver(change) : poll();
+      }
+      return event;
+
+    }
+
+    /**
+     * Whether the subscriber was cut off and has taken every event queued before.
+     */
+    public boolean isClosed() {
+
+      return overflowed && pending == null && changes.isEmpty();
+
+    }
+
+    @Override
+    public void close() {
+
+      unsubscribe(this);
+
+    }
+
+    /**
+     * Called under the feed's lock.
+     *
+     * @return whether the subscriber keeps receiving changes
+     */
+    private boolean offer(UserChange change) {
+
+      boolean subscribed = true;
+      if (!changes.offer(change)) {
+        if (overflow == Overflow.DROP) {
+          lastDropped = change.sequence();
+          droppedChanges.increment();
+        } else {
+          overflowed = true;
+          disconnectedSubscribers.increment();
+          subscribed = false;
+        }
+      }
+      Runnable current = listener;
+      if (current != null) {
+        current.run();
+      }
+      return subscribed;
+
+    }
+
+    /**
+     * Sequences of published changes have no holes, so one that does not follow the last
+     * delivered change means the ones in between were skipped.
+     */
+    private UserChangeEvent deliver(UserChange change) {
+
+      long previous = lastDelivered;
+      lastDelivered = change.sequence();
+      UserChangeEvent event = UserChangeEvent.builder()
+          .sequence(change.sequence())
+          .kind(Kind.valueOf(change.type().name()))
+          .email(change.email())
+          .user(change.user())
+          .build();
+      if (previous >= 0 && change.sequence() > previous + 1) {
+        pending = event;
+        return reset(change.sequence() - 1);
+      }
+      return event;
+
+    }
+
+    private UserChangeEvent missedUpTo(long dropped) {
+
+      if (dropped == 0 || dropped <= lastDelivered) {
+        return null;
+      }
+      lastDelivered = dropped;
+      return reset(dropped);
+
+    }
+
+  }
+
+}
@@ -0,0 +1,36 @@
+package com.example.test_assignment.service;
+
+/**
+ * Receives every change committed by {@link UserService}.
+ *
+ * <p>A change is all-or-nothing: either the store, its indexes and every listener see it, or none
+ * of them does. Listeners that may fail to take a change, e.g. because they can no longer record
+ * it, refuse it in {@link #prepare}, before anything has seen it.
+ */
+public interface UserChangeListener {
+
+  /**
+   * Called under the store's write lock before the change is applied to the store or passed to
+   * any listener's {@link #onChange}. Throwing refuses the change, which then fails with that
+   * exception and leaves everything as it was. Must not have side effects, since a listener after
+   * this one may still refuse the change.
+   */
+  default void prepare(UserChange change) {
+  }
+
+  /**
+   * Called under the store's write lock, in sequence order, once every listener has accepted the
+   * change and it is in the store. Must be fast, must not call back into {@link UserService} and
+   * must not throw: a listener that fails here has the change undone in the store, and the
+   * listeners called before it get a second change, numbered next, that undoes it for them.
+   */
+  void onChange(UserChange change);
+
+  /**
+   * Called on the writing thread after the write lock is released, before the mutating call
+   * returns. Suitable for waiting on slow work started in {@link #onChange}.
+   */
+  default void afterCommit(UserChange change) {
+  }
+
+}
@@ -1,15 +1,43 @@
 package com.example.test_assignment.service;
 
 import com.example.test_assignment.mapper.UserMapper;
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BatchItemResult.Status;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
 import com.example.test_assignment.model.User;
 import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.model.UserPatch;
+import com.example.test_assignment.service.UserChange.Type;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import jakarta.validation.metadata.BeanDescriptor;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.webjars.NotFoundException;
@@ -18,29 +46,224 @@ import org.webjars.NotFoundException;
 @Service
 public class UserService {
 
+  private static final int MAX_TEXT_SEARCH_LIMIT = 1000;
+
+  /**
+   * Buckets of one {@link #countUsersByBirthDate} call, a century of months.
+   */
+  private static final int MAX_BIRTH_DATE_BUCKETS = 1200;
+
   @Value("${minimum-age}")
   private int minimumAge;
 
-  protected final List<User> users = new ArrayList<>();
+  /**
+   * Width of the age bands of {@link #countUsersByBirthDate} above {@link #minimumAge}.
+   */
+  @Value("${age-band-years:10}")
+  private int ageBandYears = 10;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired(required = false)
+  private List<UserChangeListener> changeListeners = List.of();
+
+  /**
+   * Users indexed by email and birth date. Reads go straight to the store, mutations are
+   * serialized by {@link #writeLock} so that compound changes (e.g. moving a user to a new email)
+   * are atomic. Stored users are never modified in place; an update stores a modified copy.
+   */
+  @Autowired(required = false)
+  protected UserStore store = new ObjectUserStore();
+
+  /**
+   * Receives a {@code user.service} timer per operation; without a registry the timers are
+   * no-ops.
+   */
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry = new CompositeMeterRegistry();
+
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * Results of {@link #searchUsersByBirthDateRange}; every change to a user drops the cached
+   * ranges holding its old or new birth date.
+   */
+  @Autowired(required = false)
+  private BirthDateRangeCache rangeCache = new BirthDateRangeCache(0);
+
+  /**
+   * Names and emails for {@link #searchUsersByText}.
+   */
+  @Autowired(required = false)
+  private UserTextIndex textIndex = new UserTextIndex(true);
+
+  /**
+   * Refuses writes and stale reads when this instance is a replication follower.
+   */
+  @Autowired(required = false)
+  private ReplicaRole replicaRole = ReplicaRole.LEADER;
+
+  private final PhoneNumberIndex phoneNumberIndex = new PhoneNumberIndex();
+
+  private final BirthDateVersions birthDateVersions = new BirthDateVersions();
+
+  private final BirthDateCounts birthDateCounts = new BirthDateCounts();
+
+  /**
+   * Distinguishes version tags of this instance from those handed out before a restart, when
+   * sequence numbers may have started over.
+   */
+  private final String versionEpoch = Long.toString(System.currentTimeMillis(), 36);
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  /**
+   * See {@link #constrainedPatchFields()}; computed on first use, immutable.
+   */
+  private Set<UserPatch.Field> constrainedPatchFields;
+
+  /**
+   * Changes published under the current hold of {@link #writeLock}, handed to
+   * {@link UserChangeListener#afterCommit} once it is released.
+   */
+  private final List<UserChange> uncommittedChanges = new ArrayList<>();
+
+  private volatile long sequence;
+
+  @PostConstruct
+  void checkAgeBands() {
+
+    if (ageBandYears < 1) {
+      throw new IllegalArgumentException(
+          String.format("age-band-years must be at least 1, got %d", ageBandYears));
+    }
+
+  }
 
   protected User findUserByEmail(String email) {
 
     log.debug("findUserByEmail");
-    return users.stream()
-        .filter(u -> u.getEmail().equals(email))
-        .findFirst()
-        .orElseThrow(() -> new NotFoundException(
-            String.format("User with email %s not found", email)));
+    return timed("findUserByEmail", () -> {
+      User user = store.find(email);
+      if (user == null) {
+        throw new NotFoundException(String.format("User with email %s not found", email));
+      }
+      return user;
+    });
   }
 
   public User addUser(UserDto userDto) {
 
     log.debug("addUser");
-    checkAge(userDto.getBirthDate());
+    return timed("addUser", () -> {
+      checkAge(userDto.getBirthDate());
 
-    User user = UserMapper.dtoToUser(userDto);
-    users.add(user);
-    return user;
+      User user = withCanonicalPhoneNumber(UserMapper.dtoToUser(userDto));
+      insertUser(user);
+      return user;
+    });
+
+  }
+
+  /**
+   * Validates and age-checks every entry in parallel, then inserts the valid ones in a single
+   * pass under the write lock. A bad entry is reported in its result and never fails the batch.
+   */
+  public List<BatchItemResult> addUsers(List<UserDto> userDtos) {
+
+    log.debug("addUsers");
+    return timed("addUsers", () -> {
+      BatchItemResult[] results = new BatchItemResult[userDtos.size()];
+      User[] accepted = new User[userDtos.size()];
+      IntStream.range(0, userDtos.size()).parallel().forEach(i -> {
+        UserDto userDto = userDtos.get(i);
+        if (userDto == null) {
+          results[i] = batchItemResult(i, null, Status.INVALID,
+              Map.of("user", "must not be null"));
+          return;
+        }
+        Map<String, String> errors = validate(userDto);
+        if (errors.isEmpty()) {
+          accepted[i] = withCanonicalPhoneNumber(UserMapper.dtoToUser(userDto));
+        } else {
+          results[i] = batchItemResult(i, userDto.getEmail(), Status.INVALID, errors);
+        }
+      });
+
+      write(() -> {
+        for (int i = 0; i < accepted.length; i++) {
+          User user = accepted[i];
+          if (user == null) {
+            continue;
+          }
+          if (store.find(user.getEmail()) == null) {
+            commit(Type.ADD, null, user);
+            results[i] = batchItemResult(i, user.getEmail(), Status.CREATED, null);
+          } else {
+            results[i] = batchItemResult(i, user.getEmail(), Status.CONFLICT, Map.of("Email",
+                String.format("User with email %s already exists", user.getEmail())));
+          }
+        }
+        return null;
+      });
+      return Arrays.asList(results);
+    });
+
+  }
+
+  private Map<String, String> validate(UserDto userDto) {
+
+    Map<String, String> errors = new HashMap<>();
+    validator.validate(userDto).forEach(violation ->
+        errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+    if (userDto.getBirthDate() != null) {
+      try {
+        checkAge(userDto.getBirthDate());
+      } catch (ValidationException e) {
+        errors.put("birthDate", e.getMessage());
+      }
+    }
+    return errors;
+
+  }
+
+  private static BatchItemResult batchItemResult(int index, String email, Status status,
+      Map<String, String> errors) {
+
+    return BatchItemResult.builder()
+        .index(index)
+        .email(email)
+        .status(status)
+        .errors(errors)
+        .build();
+
+  }
+
+  protected void insertUser(User user) {
+
+    write(() -> {
+      if (store.find(user.getEmail()) != null) {
+        throw new ValidationException(
+            String.format("User with email %s already exists", user.getEmail()));
+      }
+      commit(Type.ADD, null, user);
+      return null;
+    });
+
+  }
+
+  /**
+   * Stores phone numbers in their canonical form, so that every spelling of a number finds the
+   * same users.
+   */
+  private static User withCanonicalPhoneNumber(User user) {
+
+    String phoneNumber = PhoneNumberIndex.normalize(user.getPhoneNumber());
+    if (Objects.equals(phoneNumber, user.getPhoneNumber())) {
+      return user;
+    }
+    return user.toBuilder().phoneNumber(phoneNumber).build();
 
   }
 
@@ -57,58 +280,657 @@ public class UserService {
 
   public User updateUserFields(String email, Map<String, Object> update) {
 
+    return updateUserFields(email, UserPatch.of(update));
+
+  }
+
+  /**
+   * Validates every field of {@code patch} before taking the write lock, then applies them all to a
+   * copy of the user and stores the copy. Either the whole patch is stored or none of it.
+   */
+  public User updateUserFields(String email, UserPatch patch) {
+
     log.debug("updateUserFields");
-    User user = findUserByEmail(email);
-    for (Entry<String, Object> entry : update.entrySet()) {
-      String fieldName = entry.getKey();
-      Object value = entry.getValue();
-      switch (fieldName) {
-        case "Email" -> user.setEmail((String) value);
-        case "First name" -> user.setFirstName((String) value);
-        case "Last name" -> user.setLastName((String) value);
-        case "Birth date" -> user.setBirthDate(LocalDate.parse((CharSequence) value));
-        case "Address" -> user.setAddress((String) value);
-        case "Phone number" -> user.setPhoneNumber((String) value);
-        default -> throw new ValidationException(String.format("Field %s not found", fieldName));
+    return timed("updateUserFields", () -> {
+      Map<String, String> errors = validate(patch);
+      if (!errors.isEmpty()) {
+        throw new ValidationException(errors.entrySet().stream()
+            .map(error -> error.getKey() + ": " + error.getValue())
+            .collect(Collectors.joining("; ")));
+      }
+      return write(() -> patchUser(findUserByEmail(email), patch));
+    });
+
+  }
+
+  /**
+   * Validates all patches first, then applies the valid ones under a single acquisition of the
+   * write lock. Unknown emails are reported as {@code NOT_FOUND} without going through
+   * {@link NotFoundException}.
+   */
+  public List<BatchItemResult> updateUsersFields(Map<String, Map<String, Object>> updates) {
+
+    log.debug("updateUsersFields");
+    return timed("updateUsersFields", () -> {
+      BatchItemResult[] results = new BatchItemResult[updates.size()];
+      String[] emails = new String[updates.size()];
+      UserPatch[] patches = new UserPatch[updates.size()];
+      int index = 0;
+      for (Entry<String, Map<String, Object>> entry : updates.entrySet()) {
+        emails[index] = entry.getKey();
+        UserPatch patch = UserPatch.of(entry.getValue());
+        Map<String, String> errors = validate(patch);
+        if (errors.isEmpty()) {
+          patches[index] = patch;
+        } else {
+          results[index] = batchItemResult(index, entry.getKey(), Status.INVALID, errors);
+        }
+        index++;
+      }
+
+      write(() -> {
+        for (int i = 0; i < patches.length; i++) {
+          if (patches[i] == null) {
+            continue;
+          }
+          User user = emails[i] != null ? store.find(emails[i]) : null;
+          if (user == null) {
+            results[i] = batchItemResult(i, emails[i], Status.NOT_FOUND, null);
+            continue;
+          }
+          try {
+            User patched = patchUser(user, patches[i]);
+            results[i] = batchItemResult(i, patched.getEmail(), Status.UPDATED, null);
+          } catch (ValidationException e) {
+            results[i] = batchItemResult(i, emails[i], Status.INVALID,
+                Map.of("Email", e.getMessage()));
+          }
+        }
+        return null;
+      });
+      return Arrays.asList(results);
+    });
+
+  }
+
+  /**
+   * Checks every field of {@code patch} against the constraints of the same {@link UserDto}
+   * property, and a new birth date against the minimum age, without looking at any stored user.
+   */
+  private Map<String, String> validate(UserPatch patch) {
+
+    Map<String, String> errors = new LinkedHashMap<>(patch.errors());
+    Set<UserPatch.Field> constrained = constrainedPatchFields();
+    patch.forEach((field, value) -> {
+      if (constrained.contains(field)) {
+        validator.validateValue(UserDto.class, field.property(), value).forEach(violation ->
+            errors.putIfAbsent(field.jsonName(), violation.getMessage()));
+      }
+      if (field == UserPatch.Field.BIRTH_DATE && value != null
+          && !errors.containsKey(field.jsonName())) {
+        try {
+          checkAge((LocalDate) value);
+        } catch (ValidationException e) {
+          errors.put(field.jsonName(), e.getMessage());
+        }
       }
+    });
+    return errors;
+
+  }
+
+  /**
+   * Patch fields whose {@link UserDto} property has constraints; validating the others would
+   * only cost allocations.
+   */
+  private Set<UserPatch.Field> constrainedPatchFields() {
+
+    Set<UserPatch.Field> fields = constrainedPatchFields;
+    if (fields == null) {
+      BeanDescriptor userDto = validator.getConstraintsForClass(UserDto.class);
+      fields = Set.copyOf(Arrays.stream(UserPatch.Field.values())
+          .filter(field -> userDto.getConstraintsForProperty(field.property()) != null)
+          .toList());
+      constrainedPatchFields = fields;
     }
-    return user;
+    return fields;
+
+  }
+
+  /**
+   * Applies a validated patch to a copy of {@code user} and stores the copy, unless it would take
+   * the email of another user.
+   */
+  private User patchUser(User user, UserPatch patch) {
+
+    User.UserBuilder builder = user.toBuilder();
+    patch.applyTo(builder);
+    User patched = withCanonicalPhoneNumber(builder.build());
+    if (!patched.getEmail().equals(user.getEmail()) && store.find(patched.getEmail()) != null) {
+      throw new ValidationException(
+          String.format("User with email %s already exists", patched.getEmail()));
+    }
+    commit(Type.PATCH, user, patched);
+    return patched;
 
   }
 
   public User updateUser(UserDto userDto) {
 
     log.debug("updateUser");
-    User user = findUserByEmail(userDto.getEmail());
-    checkAge(userDto.getBirthDate());
-    user.setEmail(userDto.getEmail());
-    user.setFirstName(userDto.getFirstName());
-    user.setLastName(userDto.getLastName());
-    user.setBirthDate(userDto.getBirthDate());
-    user.setAddress(userDto.getAddress());
-    user.setPhoneNumber(userDto.getPhoneNumber());
-    return user;
+    return timed("updateUser", () -> write(() -> {
+      User previous = findUserByEmail(userDto.getEmail());
+      checkAge(userDto.getBirthDate());
+      User user = withCanonicalPhoneNumber(UserMapper.dtoToUser(userDto));
+      commit(Type.UPDATE, previous, user);
+      return user;
+    }));
 
   }
 
   public void deleteUser(String email) {
 
     log.debug("deleteUser");
-    User user = findUserByEmail(email);
-    users.remove(user);
+    timed("deleteUser", () -> write(() -> {
+      if (removeUser(email) == null) {
+        throw new NotFoundException(String.format("User with email %s not found", email));
+      }
+      return null;
+    }));
+
+  }
+
+  /**
+   * Deletes many users under a single acquisition of the write lock, reporting unknown emails as
+   * {@code NOT_FOUND}.
+   */
+  public List<BatchItemResult> deleteUsers(List<String> emails) {
+
+    log.debug("deleteUsers");
+    return timed("deleteUsers", () -> {
+      List<BatchItemResult> results = new ArrayList<>(emails.size());
+      write(() -> {
+        for (int i = 0; i < emails.size(); i++) {
+          String email = emails.get(i);
+          Status status = removeUser(email) != null ? Status.DELETED : Status.NOT_FOUND;
+          results.add(batchItemResult(i, email, status, null));
+        }
+        return null;
+      });
+      return results;
+    });
+
+  }
+
+  private User removeUser(String email) {
+
+    User user = email != null ? store.find(email) : null;
+    if (user != null) {
+      commit(Type.DELETE, user, null);
+    }
+    return user;
 
   }
 
   public List<User> searchUsersByBirthDateRange(LocalDate from, LocalDate to) {
 
+    checkRange(from, to);
+    replicaRole.checkFresh();
+    log.debug("searchUsersByBirthDateRange");
+    return timed("searchUsersByBirthDateRange", () -> rangeCache.get(from, to, () -> {
+      try (Stream<User> users = store.findByBirthDateRange(from, to)) {
+        return users.toList();
+      }
+    }));
+
+  }
+
+  /**
+   * Lazily walks the birth-date index instead of materializing the result, so callers can write
+   * users out as they are produced. The range is validated eagerly. The operation is timed until
+   * the stream is closed, so it includes the time taken to consume it; callers must close it.
+   */
+  public Stream<User> streamUsersByBirthDateRange(LocalDate from, LocalDate to) {
+
+    checkRange(from, to);
+    replicaRole.checkFresh();
+    log.debug("streamUsersByBirthDateRange");
+    Timer timer = timer("streamUsersByBirthDateRange", null);
+    long start = meterRegistry.config().clock().monotonicTime();
+    return store.findByBirthDateRange(from, to).onClose(() -> timer.record(
+        meterRegistry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS));
+
+  }
+
+  /**
+   * Users whose first name, last name or email starts with or contains {@code query}, ignoring
+   * case, at most {@code limit} of them. Through the text index this costs about the same at any
+   * number of users; without it every user is scanned. Substring queries shorter than
+   * {@link UserTextIndex#GRAM} characters match by prefix.
+   */
+  public List<User> searchUsersByText(String query, TextMatch match, int limit) {
+
+    if (query == null || query.isBlank()) {
+      throw new ValidationException("'Query' must not be blank");
+    }
+    if (limit < 1 || limit > MAX_TEXT_SEARCH_LIMIT) {
+      throw new ValidationException(
+          String.format("'Limit' must be between 1 and %d", MAX_TEXT_SEARCH_LIMIT));
+    }
+    replicaRole.checkFresh();
+    log.debug("searchUsersByText");
+    return timed("searchUsersByText", () -> {
+      String text = UserTextIndex.normalize(query);
+      boolean substring = match == TextMatch.SUBSTRING && text.length() >= UserTextIndex.GRAM;
+      Stream<User> candidates = !textIndex.isEnabled() ? store.findAll()
+          : (substring ? textIndex.substringMatches(text) : textIndex.prefixMatches(text))
+              .distinct()
+              .map(store::find)
+              .filter(Objects::nonNull);
+      // The index may lag behind the store, so every candidate is checked again
+      return candidates
+          .filter(user -> matchesText(user.getFirstName(), text, substring)
+              || matchesText(user.getLastName(), text, substring)
+              || matchesText(user.getEmail(), text, substring))
+          .limit(limit)
+          .toList();
+    });
+
+  }
+
+  private static boolean matchesText(String value, String text, boolean substring) {
+
+    String normalized = UserTextIndex.normalize(value);
+    return normalized != null
+        && (substring ? normalized.contains(text) : normalized.startsWith(text));
+
+  }
+
+  /**
+   * Users whose phone number is {@code phoneNumber} in any spelling, e.g. {@code +1 (555) 010-0}
+   * for {@code +15550100}, through a hash index rather than a scan.
+   */
+  public List<User> findUsersByPhoneNumber(String phoneNumber) {
+
+    String canonical = PhoneNumberIndex.normalize(phoneNumber);
+    if (canonical == null) {
+      throw new ValidationException("'Phone number' must not be blank");
+    }
+    replicaRole.checkFresh();
+    log.debug("findUsersByPhoneNumber");
+    return timed("findUsersByPhoneNumber", () -> phoneNumberIndex.find(canonical)
+        .map(store::find)
+        // The index may lag behind the store, so every user is checked again; users restored
+        // from before phone numbers were canonical may still hold another spelling
+        .filter(user -> user != null
+            && canonical.equals(PhoneNumberIndex.normalize(user.getPhoneNumber())))
+        .toList());
+
+  }
+
+  /**
+   * Counts the users born between {@code from} and {@code to} per year, month or age band. The
+   * counts are maintained on every change, so this costs {@code O(log n)} per bucket whatever the
+   * number of users. Age bands are as of today: users under {@link #minimumAge}, then bands of
+   * {@link #ageBandYears} years, youngest first. A window of more than
+   * {@link #MAX_BIRTH_DATE_BUCKETS} buckets is refused.
+   */
+  public List<BirthDateCount> countUsersByBirthDate(LocalDate from, LocalDate to,
+      Grouping groupBy) {
+
+    checkRange(from, to);
+    replicaRole.checkFresh();
+    log.debug("countUsersByBirthDate");
+    return timed("countUsersByBirthDate", () -> {
+      List<BirthDateCount> counts = new ArrayList<>();
+      switch (groupBy) {
+        case YEAR -> {
+          for (int year = from.getYear(); year <= to.getYear(); year++) {
+            checkBuckets(counts);
+            counts.add(countBucket(Integer.toString(year), LocalDate.of(year, 1, 1),
+                LocalDate.of(year, 12, 31), from, to));
+          }
+        }
+        case MONTH -> {
+          for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to));
+              month = month.plusMonths(1)) {
+            checkBuckets(counts);
+            counts.add(countBucket(month.toString(), month.atDay(1), month.atEndOfMonth(),
+                from, to));
+          }
+        }
+        case AGE_BAND -> {
+          LocalDate today = LocalDate.now();
+          long youngest = 0;
+          long oldest = minimumAge > 0 ? minimumAge - 1 : ageBandYears - 1;
+          // Start at the band holding the age of users born on 'to', or the one before it in case
+          // a leap day moves the boundary, rather than walking every band of younger users
+          long ageAtTo = ChronoUnit.YEARS.between(to, today);
+          if (ageAtTo > oldest + ageBandYears) {
+            youngest = oldest + 1 + ((ageAtTo - oldest - 1) / ageBandYears - 1) * ageBandYears;
+            oldest = youngest + ageBandYears - 1;
+          }
+          // Each band is older than the previous one, so stop at the first past the window
+          while (!today.minusYears(youngest).isBefore(from)) {
+            LocalDate firstBirthDate = today.minusYears(oldest + 1L).plusDays(1);
+            if (!firstBirthDate.isAfter(to)) {
+              checkBuckets(counts);
+              counts.add(countBucket(youngest + "-" + oldest, firstBirthDate,
+                  today.minusYears(youngest), from, to));
+            }
+            youngest = oldest + 1;
+            oldest = youngest + ageBandYears - 1;
+          }
+        }
+      }
+      return counts;
+    });
+
+  }
+
+  private static void checkBuckets(List<BirthDateCount> counts) {
+
+    if (counts.size() == MAX_BIRTH_DATE_BUCKETS) {
+      throw new ValidationException(String.format(
+          "More than %d buckets between 'From' and 'To', narrow the range or group it coarser",
+          MAX_BIRTH_DATE_BUCKETS));
+    }
+
+  }
+
+  /**
+   * Counts the users of the bucket from {@code first} to {@code last}, clipped to the window.
+   */
+  private BirthDateCount countBucket(String bucket, LocalDate first, LocalDate last,
+      LocalDate from, LocalDate to) {
+
+    LocalDate clippedFrom = first.isBefore(from) ? from : first;
+    LocalDate clippedTo = last.isAfter(to) ? to : last;
+    return BirthDateCount.builder()
+        .bucket(bucket)
+        .from(clippedFrom)
+        .to(clippedTo)
+        .count(birthDateCounts.count(clippedFrom, clippedTo))
+        .build();
+
+  }
+
+  /**
+   * Opaque tag that changes whenever a user born between {@code from} and {@code to} is added,
+   * changed or removed, e.g. for an HTTP entity tag. Costs a few array reads, not a scan.
+   *
+   * <p>Read the tag before the users it describes: a change in between then only makes the tag
+   * older than the result, which costs the client a full response on its next request instead of
+   * leaving it with a stale result. A follower too far behind its leader refuses the tag like any
+   * other read, so that it cannot answer a conditional request with a stale 304.
+   */
+  public String birthDateRangeVersionTag(LocalDate from, LocalDate to) {
+
+    checkRange(from, to);
+    replicaRole.checkFresh();
+    return versionEpoch + "-" + birthDateVersions.rangeVersion(from, to);
+
+  }
+
+  private void checkRange(LocalDate from, LocalDate to) {
+
     if (!from.isBefore(to)) {
       throw new ValidationException("'From' is not less than 'To'");
     }
-    log.debug("searchUsersByBirthDateRange");
-    return users.stream()
-        .filter(u -> u.getBirthDate().isAfter(from.minusDays(1))
-            && u.getBirthDate().isBefore(to.plusDays(1)))
-        .toList();
+
+  }
+
+  /**
+   * Sequence number of the last committed change.
+   */
+  public long currentSequence() {
+
+    return sequence;
+
+  }
+
+  /**
+   * Moves the sequence forward after a restore, so that new changes are numbered after the
+   * restored ones.
+   */
+  public void advanceSequence(long restoredSequence) {
+
+    writeLock.lock();
+    try {
+      sequence = Math.max(sequence, restoredSequence);
+    } finally {
+      writeLock.unlock();
+    }
+
+  }
+
+  /**
+   * Sets the sequence to exactly {@code snapshotSequence} once the store holds a copy of another
+   * store taken at that sequence, e.g. a replication leader's, whose numbering may be behind this
+   * one's.
+   */
+  public void resetSequence(long snapshotSequence) {
+
+    writeLock.lock();
+    try {
+      sequence = snapshotSequence;
+    } finally {
+      writeLock.unlock();
+    }
+
+  }
+
+  /**
+   * Weakly consistent view of every stored user, e.g. for snapshots.
+   */
+  public Stream<User> streamAllUsers() {
+
+    return store.findAll();
+
+  }
+
+  /**
+   * Applies a change recorded elsewhere (a snapshot, a change log or a replication leader)
+   * without validating it and without notifying listeners. ADD, UPDATE and PATCH are applied as
+   * an upsert of the recorded state, which makes replaying a change more than once harmless.
+   */
+  public void applyChange(UserChange change) {
+
+    writeLock.lock();
+    try {
+      User removed = store.remove(change.email());
+      User replaced = null;
+      if (change.type() != Type.DELETE) {
+        replaced = store.remove(change.user().getEmail());
+        store.insert(change.user());
+      }
+      sequence = Math.max(sequence, change.sequence());
+      indexesChanged(removed, null);
+      indexesChanged(replaced, change.type() != Type.DELETE ? change.user() : null);
+    } finally {
+      writeLock.unlock();
+    }
+
+  }
+
+  /**
+   * Drops the cached ranges, bumps the version and moves the count of the birth dates a change
+   * moved a user out of and into, and re-indexes the user's text and phone number if they
+   * changed. Called once the change is visible in the store and has its sequence number.
+   */
+  private void indexesChanged(User before, User after) {
+
+    if (PhoneNumberIndex.changed(before, after)) {
+      if (before != null) {
+        phoneNumberIndex.remove(before);
+      }
+      if (after != null) {
+        phoneNumberIndex.add(after);
+      }
+    }
+
+    if (UserTextIndex.changed(before, after)) {
+      if (before != null) {
+        textIndex.remove(before);
+      }
+      if (after != null) {
+        textIndex.add(after);
+      }
+    }
+
+    boolean moved = before == null || after == null
+        || !Objects.equals(before.getBirthDate(), after.getBirthDate());
+    if (before != null) {
+      rangeCache.invalidate(before.getBirthDate());
+      birthDateVersions.touch(before.getBirthDate(), sequence);
+      if (moved) {
+        birthDateCounts.add(before.getBirthDate(), -1);
+      }
+    }
+    if (after != null && moved) {
+      rangeCache.invalidate(after.getBirthDate());
+      birthDateVersions.touch(after.getBirthDate(), sequence);
+      birthDateCounts.add(after.getBirthDate(), 1);
+    }
+
+  }
+
+  /**
+   * Records the duration of {@code operation} in the {@code user.service} timer for
+   * {@code name}, tagged with the exception it failed with, if any.
+   */
+  private <T> T timed(String name, Supplier<T> operation) {
+
+    long start = meterRegistry.config().clock().monotonicTime();
+    Throwable failure = null;
+    try {
+      return operation.get();
+    } catch (RuntimeException | Error e) {
+      failure = e;
+      throw e;
+    } finally {
+      timer(name, failure).record(meterRegistry.config().clock().monotonicTime() - start,
+          TimeUnit.NANOSECONDS);
+    }
+
+  }
+
+  /**
+   * Successful operations use a cached timer; failures are rare enough to be looked up in the
+   * registry.
+   */
+  private Timer timer(String name, Throwable failure) {
+
+    if (failure != null) {
+      return userServiceTimer(name, failure.getClass().getSimpleName());
+    }
+    return timers.computeIfAbsent(name, operation -> userServiceTimer(operation, "none"));
+
+  }
+
+  private Timer userServiceTimer(String operation, String exception) {
+
+    return Timer.builder("user.service")
+        .description("Duration of UserService operations")
+        .tag("operation", operation)
+        .tag("exception", exception)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+
+  }
+
+  /**
+   * Stores {@code after} in place of {@code before}, either of which is {@code null} for an add or
+   * a delete, as one change numbered after the last. Listeners may refuse the change before the
+   * store is touched. If one fails once the change is stored, the store is put back as it was and
+   * the listeners that already took the change get a second one, numbered next, that puts the user
+   * back too, so that a change log holding the first replays to the store's state; both sequence
+   * numbers are used up.
+   */
+  private void commit(Type type, User before, User after) {
+
+    UserChange change = new UserChange(sequence + 1, type,
+        before != null ? before.getEmail() : after.getEmail(), after);
+    for (UserChangeListener listener : changeListeners) {
+      listener.prepare(change);
+    }
+    store(before, after);
+    int notified = 0;
+    try {
+      for (UserChangeListener listener : changeListeners) {
+        listener.onChange(change);
+        notified++;
+      }
+    } catch (RuntimeException | Error e) {
+      store(after, before);
+      UserChange rollback = rollback(change, before);
+      for (UserChangeListener listener : changeListeners.subList(0, notified)) {
+        try {
+          listener.onChange(rollback);
+        } catch (RuntimeException | Error rollbackFailure) {
+          e.addSuppressed(rollbackFailure);
+        }
+      }
+      // Readers may have seen the change while it was stored
+      sequence = rollback.sequence();
+      indexesChanged(before, after);
+      indexesChanged(after, before);
+      throw e;
+    }
+    sequence = change.sequence();
+    indexesChanged(before, after);
+    uncommittedChanges.add(change);
+
+  }
+
+  /**
+   * The change, numbered after {@code change}, that puts back {@code before}.
+   */
+  private static UserChange rollback(UserChange change, User before) {
+
+    if (before == null) {
+      return new UserChange(change.sequence() + 1, Type.DELETE, change.user().getEmail(), null);
+    }
+    if (change.user() == null) {
+      return new UserChange(change.sequence() + 1, Type.ADD, before.getEmail(), before);
+    }
+    return new UserChange(change.sequence() + 1, change.type(), change.user().getEmail(), before);
+
+  }
+
+  private void store(User before, User after) {
+
+    if (before == null) {
+      store.insert(after);
+    } else if (after == null) {
+      store.remove(before.getEmail());
+    } else {
+      store.replace(before.getEmail(), after);
+    }
+
+  }
+
+  /**
+   * Runs a mutation under the write lock, then lets listeners finish the work for the changes it
+   * published.
+   */
+  private <T> T write(Supplier<T> mutation) {
+
+    replicaRole.checkWritable();
+    List<UserChange> committed;
+    writeLock.lock();
+    try {
+      return mutation.get();
+    } finally {
+      committed = List.copyOf(uncommittedChanges);
+      uncommittedChanges.clear();
+      writeLock.unlock();
+      for (UserChange change : committed) {
+        for (UserChangeListener listener : changeListeners) {
+          listener.afterCommit(change);
+        }
+      }
+    }
 
   }
 
@@ -0,0 +1,57 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind {@link UserService}: the primary email index plus the birth-date index.
+ *
+ * <p>Stored users are immutable values: a change stores a modified copy. Writes must be
+ * serialized by the caller; reads may run concurrently with them. Whether a range search sees a
+ * single point-in-time state of the store or a weakly consistent one is up to the engine.
+ */
+public interface UserStore {
+
+  /**
+   * @return the user stored under {@code email}, or {@code null}
+   */
+  User find(String email);
+
+  /**
+   * Stores {@code user} unless its email is taken.
+   *
+   * @return {@code false} if another user is already stored under the email
+   */
+  boolean insert(User user);
+
+  /**
+   * Replaces the user stored under {@code email}. The new state may carry a different email,
+   * which the caller has checked to be free.
+   */
+  void replace(String email, User user);
+
+  /**
+   * @return the removed user, or {@code null} if none was stored under {@code email}
+   */
+  User remove(String email);
+
+  int size();
+
+  /**
+   * @return the number of distinct birth dates in the birth-date index
+   */
+  int birthDateCount();
+
+  /**
+   * Users born between {@code from} and {@code to}, both inclusive, produced lazily. The caller
+   * must close the stream, as the engine may hold on to a snapshot until then.
+   */
+  Stream<User> findByBirthDateRange(LocalDate from, LocalDate to);
+
+  /**
+   * Weakly consistent view of every stored user.
+   */
+  Stream<User> findAll();
+
+}
@@ -0,0 +1,378 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Index of the lower-cased first names, last names and emails of the users, for prefix and
+ * substring search.
+ *
+ * <p>Every distinct value is kept once, with an id and the emails of the users having it, in a
+ * sorted map that answers prefix queries; a value of a single user, such as an email, holds that
+ * user's email alone instead of a set. Substring queries go through the trigrams of the values:
+ * each trigram has an append-only array of the ids of the values containing it, in increasing
+ * order, and a query walks the arrays of all its trigrams together, so only the values holding
+ * every trigram are checked.
+ *
+ * <p>Removing a value frees its id but leaves it in the trigram arrays, where it is skipped. When
+ * the stale ids outnumber the live ones, the live values are renumbered into a new generation of
+ * arrays; readers keep using the generation they started with.
+ *
+ * <p>Writers must be serialized by the caller; readers may run concurrently with them and see a
+ * weakly consistent view, so callers check every user they get against its current state.
+ */
+public class UserTextIndex {
+
+  static final int GRAM = 3;
+
+  private final boolean enabled;
+
+  private final ConcurrentNavigableMap<String, Value> valuesByText =
+      new ConcurrentSkipListMap<>();
+
+  private volatile Generation generation = new Generation();
+
+  private long liveEntries;
+
+  private long staleEntries;
+
+  /**
+   * @param enabled {@code false} keeps the index empty; callers then scan every user instead
+   */
+  public UserTextIndex(boolean enabled) {
+
+    this.enabled = enabled;
+
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+
+  }
+
+  static String normalize(String text) {
+
+    return text != null ? text.toLowerCase(Locale.ROOT) : null;
+
+  }
+
+  /**
+   * Whether a change from {@code before} to {@code after} changes any indexed value.
+   */
+  static boolean changed(User before, User after) {
+
+    return before == null || after == null
+        || !Objects.equals(before.getEmail(), after.getEmail())
+        || !Objects.equals(before.getFirstName(), after.getFirstName())
+        || !Objects.equals(before.getLastName(), after.getLastName());
+
+  }
+
+  void add(User user) {
+
+    if (!enabled) {
+      return;
+    }
+    for (String text : texts(user)) {
+      if (text == null) {
+        continue;
+      }
+      Value value = valuesByText.get(text);
+      if (value == null) {
+        value = new Value(user.getEmail());
+        generation.add(value, text);
+        liveEntries += grams(text);
+        valuesByText.put(text, value);
+      } else {
+        value.addEmail(user.getEmail());
+      }
+    }
+
+  }
+
+  void remove(User user) {
+
+    if (!enabled) {
+      return;
+    }
+    for (String text : texts(user)) {
+      Value value = text != null ? valuesByText.get(text) : null;
+      if (value != null && value.removeEmail(user.getEmail())) {
+        valuesByText.remove(text);
+        generation.texts[value.id] = null;
+        liveEntries -= grams(text);
+        staleEntries += grams(text);
+      }
+    }
+    if (staleEntries > liveEntries) {
+      Generation renumbered = new Generation();
+      valuesByText.forEach((text, value) -> renumbered.add(value, text));
+      generation = renumbered;
+      staleEntries = 0;
+    }
+
+  }
+
+  /**
+   * Emails of the users with a value starting with {@code prefix}, in the order of the values. An
+   * email may come more than once.
+   */
+  Stream<String> prefixMatches(String prefix) {
+
+    return valuesByText.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()
+        .stream()
+        .flatMap(Value::emails);
+
+  }
+
+  /**
+   * Emails of the users with a value containing {@code text}, which has at least {@link #GRAM}
+   * characters. An email may come more than once.
+   */
+  Stream<String> substringMatches(String text) {
+
+    Generation current = generation;
+    List<Postings> postings = new ArrayList<>();
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      Postings gramPostings = current.postingsByGram.get(text.substring(i, i + GRAM));
+      if (gramPostings == null) {
+        return Stream.empty();
+      }
+      postings.add(gramPostings);
+    }
+    Intersection ids = new Intersection(postings);
+    // The texts after the sizes: the writer grows them before posting an id, so they hold every id
+    // the intersection can produce
+    String[] texts = current.texts;
+    return StreamSupport.stream(ids, false)
+        .map(id -> texts[id])
+        .filter(candidate -> candidate != null && candidate.contains(text))
+        .map(valuesByText::get)
+        .filter(Objects::nonNull)
+        .flatMap(Value::emails);
+
+  }
+
+  private static int grams(String text) {
+
+    return Math.max(0, text.length() - GRAM + 1);
+
+  }
+
+  private static String[] texts(User user) {
+
+    return new String[] {normalize(user.getEmail()), normalize(user.getFirstName()),
+        normalize(user.getLastName())};
+
+  }
+
+  /**
+   * Value ids with the text of each and the trigram arrays. Ids only grow within a generation, so
+   * every array is sorted. Changed by the writer only.
+   */
+  private static final class Generation {
+
+    /**
+     * Text of each value id, {@code null} once the value is removed.
+     */
+    volatile String[] texts = new String[1024];
+
+    final Map<String, Postings> postingsByGram = new ConcurrentHashMap<>();
+
+    int nextId;
+
+    void add(Value value, String text) {
+
+      int id = nextId++;
+      String[] current = texts;
+      if (id == current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+      }
+      current[id] = text;
+      texts = current;
+      value.id = id;
+      for (int i = 0; i + GRAM <= text.length(); i++) {
+        postingsByGram.computeIfAbsent(text.substring(i, i + GRAM), gram -> new Postings())
+            .add(id);
+      }
+
+    }
+
+  }
+
+  /**
+   * A distinct text with its id and the emails of the users having it: a {@code String} for one
+   * user, a {@code Set<String>} for more.
+   */
+  private static final class Value {
+
+    /**
+     * Id in the current generation; used by the writer only.
+     */
+    int id;
+
+    volatile Object emails;
+
+    Value(String email) {
+
+      this.emails = email;
+
+    }
+
+    void addEmail(String email) {
+
+      if (emails instanceof Set<?> set) {
+        emailSet(set).add(email);
+      } else if (!emails.equals(email)) {
+        Set<String> set = ConcurrentHashMap.newKeySet();
+        set.add((String) emails);
+        set.add(email);
+        emails = set;
+      }
+
+    }
+
+    /**
+     * @return whether no user has the text any more
+     */
+    boolean removeEmail(String email) {
+
+      if (emails instanceof Set<?> set) {
+        set.remove(email);
+        return set.isEmpty();
+      }
+      return emails.equals(email);
+
+    }
+
+    Stream<String> emails() {
+
+      Object current = emails;
+      return current instanceof Set<?> set ? emailSet(set).stream() : Stream.of((String) current);
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> emailSet(Set<?> emails) {
+
+      return (Set<String>) emails;
+
+    }
+
+  }
+
+  /**
+   * Append-only array of value ids. The writer stores an id before publishing the new size, so a
+   * reader sees every id below the size it read.
+   */
+  private static final class Postings {
+
+    volatile int[] ids = new int[4];
+
+    volatile int size;
+
+    void add(int id) {
+
+      int[] current = ids;
+      if (size == current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+        ids = current;
+      }
+      current[size] = id;
+      size = size + 1;
+
+    }
+
+  }
+
+  /**
+   * Ids found in every one of a set of trigram arrays, produced lazily by walking the shortest
+   * array and moving a cursor forward in each of the others.
+   */
+  private static final class Intersection extends Spliterators.AbstractSpliterator<Integer> {
+
+    private final int[][] ids;
+
+    private final int[] sizes;
+
+    private final int[] cursors;
+
+    Intersection(List<Postings> postings) {
+
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+      int count = postings.size();
+      ids = new int[count][];
+      sizes = new int[count];
+      cursors = new int[count];
+      for (int i = 0; i < count; i++) {
+        // The size first: the array read after it holds every id below it
+        sizes[i] = postings.get(i).size;
+        ids[i] = postings.get(i).ids;
+      }
+      int shortest = 0;
+      for (int i = 1; i < count; i++) {
+        if (sizes[i] < sizes[shortest]) {
+          shortest = i;
+        }
+      }
+      swap(0, shortest);
+
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Integer> action) {
+
+      while (cursors[0] < sizes[0]) {
+        int id = ids[0][cursors[0]++];
+        if (inAllOthers(id)) {
+          action.accept(id);
+          return true;
+        }
+      }
+      return false;
+
+    }
+
+    private boolean inAllOthers(int id) {
+
+      for (int i = 1; i < ids.length; i++) {
+        while (cursors[i] < sizes[i] && ids[i][cursors[i]] < id) {
+          cursors[i]++;
+        }
+        if (cursors[i] == sizes[i] || ids[i][cursors[i]] != id) {
+          return false;
+        }
+      }
+      return true;
+
+    }
+
+    private void swap(int first, int second) {
+
+      int[] firstIds = ids[first];
+      ids[first] = ids[second];
+      ids[second] = firstIds;
+      int firstSize = sizes[first];
+      sizes[first] = sizes[second];
+      sizes[second] = firstSize;
+
+    }
+
+  }
+
+}
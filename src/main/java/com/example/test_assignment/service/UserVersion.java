@@ -0,0 +1,37 @@
+package com.example.test_assignment.service;
+
+import com.example.test_assignment.model.User;
+
+/**
+ * One immutable state of a stored user, visible to snapshots taken from commit {@code from} up to
+ * but excluding commit {@code to}. Identity matters: two versions of equal users are still
+ * distinct entries in the index.
+ */
+final class UserVersion {
+
+  static final long CURRENT = Long.MAX_VALUE;
+
+  final User user;
+
+  final long from;
+
+  /**
+   * Commit that superseded this version, {@link #CURRENT} while it is the latest one. Set once, by
+   * the writer, before that commit is published.
+   */
+  volatile long to = CURRENT;
+
+  UserVersion(User user, long from) {
+
+    this.user = user;
+    this.from = from;
+
+  }
+
+  boolean visibleAt(long snapshot) {
+
+    return from <= snapshot && snapshot < to;
+
+  }
+
+}
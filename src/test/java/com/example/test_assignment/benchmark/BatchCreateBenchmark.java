@@ -0,0 +1,133 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+
+/**
+ * Compares user creation throughput of single {@code POST /api/v1/users} calls with
+ * {@code POST /api/v1/users/batch} in JSON array and NDJSON form.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.BatchCreateBenchmark
+ * -Dexec.args="100000 1000 8"} (users per round, batch size, client threads)
+ */
+public class BatchCreateBenchmark {
+
+  private static final int ROUNDS = 3;
+
+  private static final AtomicInteger sequence = new AtomicInteger();
+
+  public static void main(String[] args) throws Exception {
+
+    int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+    int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+            .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn")
+            .run()) {
+
+      ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+      String port = context.getEnvironment().getProperty("local.server.port");
+      URI single = URI.create(String.format("http://localhost:%s/api/v1/users", port));
+      URI batch = URI.create(String.format("http://localhost:%s/api/v1/users/batch", port));
+      HttpClient client = HttpClient.newHttpClient();
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+      System.out.printf("%d users per round, batch size %d, %d client threads%n",
+          userCount, batchSize, threads);
+      System.out.printf("%-8s %12s %14s%n", "mode", "total ms", "users/s");
+      try {
+        for (int round = 0; round < ROUNDS; round++) {
+          run("single", executor, userCount, 1, users -> client.send(
+              HttpRequest.newBuilder(single)
+                  .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                  .POST(BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(users.get(0))))
+                  .build(), BodyHandlers.discarding()));
+          run("batch", executor, userCount, batchSize, users -> client.send(
+              HttpRequest.newBuilder(batch)
+                  .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                  .POST(BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(users)))
+                  .build(), BodyHandlers.discarding()));
+          run("ndjson", executor, userCount, batchSize, users -> {
+            StringBuilder body = new StringBuilder();
+            for (UserDto userDto : users) {
+              body.append(objectMapper.writeValueAsString(userDto)).append('\n');
+            }
+            return client.send(HttpRequest.newBuilder(batch)
+                .header("Content-Type", MediaType.APPLICATION_NDJSON_VALUE)
+                .POST(BodyPublishers.ofString(body.toString()))
+                .build(), BodyHandlers.discarding());
+          });
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+  }
+
+  private interface Call {
+
+    Object send(List<UserDto> users) throws Exception;
+
+  }
+
+  private static void run(String mode, ExecutorService executor, int userCount, int batchSize,
+      Call call) throws Exception {
+
+    List<List<UserDto>> requests = new ArrayList<>();
+    for (int i = 0; i < userCount; i += batchSize) {
+      List<UserDto> users = new ArrayList<>(batchSize);
+      for (int j = i; j < Math.min(userCount, i + batchSize); j++) {
+        users.add(newUser());
+      }
+      requests.add(users);
+    }
+
+    long start = System.nanoTime();
+    List<Future<Object>> futures = new ArrayList<>();
+    for (List<UserDto> users : requests) {
+      futures.add(executor.submit(() -> call.send(users)));
+    }
+    for (Future<Object> future : futures) {
+      future.get();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("%-8s %12.1f %14.0f%n", mode, elapsed / 1e6, userCount / (elapsed / 1e9));
+
+  }
+
+  private static UserDto newUser() {
+
+    int i = sequence.incrementAndGet();
+    return UserDto.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(LocalDate.of(1950, 1, 1).plusDays(i % 18_000))
+        .address(i + " Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+
+  }
+
+}
@@ -0,0 +1,127 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.UserService;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+
+/**
+ * Compares the list-based JSON response of {@code GET /api/v1/users} with the NDJSON streaming
+ * mode on a wide birth-date range: peak heap above the post-GC baseline, time to first byte and
+ * total latency.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.BirthDateRangeStreamingBenchmark
+ * -Dexec.args=500000}
+ */
+public class BirthDateRangeStreamingBenchmark {
+
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+
+    int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+            .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn")
+            .run()) {
+
+      UserService userService = context.getBean(UserService.class);
+      LocalDate firstBirthDate = LocalDate.of(1950, 1, 1);
+      for (int i = 0; i < userCount; i++) {
+        userService.addUser(UserDto.builder()
+            .email(String.format("user%d@example.com", i))
+            .firstName("First" + i)
+            .lastName("Last" + i)
+            .birthDate(firstBirthDate.plusDays(i % 18_000))
+            .address(i + " Main St")
+            .phoneNumber("123-456-7890")
+            .build());
+      }
+
+      String port = context.getEnvironment().getProperty("local.server.port");
+      URI uri = URI.create(String.format("http://localhost:%s/api/v1/users?from=%s&to=%s",
+          port, firstBirthDate, LocalDate.of(2000, 1, 1)));
+      HttpClient client = HttpClient.newHttpClient();
+
+      System.out.printf("%d users in range%n", userCount);
+      System.out.printf("%-8s %12s %12s %14s %12s%n",
+          "mode", "ttfb ms", "total ms", "heap +MB", "bytes");
+      for (int round = 0; round < ROUNDS; round++) {
+        measure(client, uri, MediaType.APPLICATION_JSON_VALUE, "json");
+        measure(client, uri, MediaType.APPLICATION_NDJSON_VALUE, "ndjson");
+      }
+    }
+
+  }
+
+  private static void measure(HttpClient client, URI uri, String accept, String mode)
+      throws Exception {
+
+    System.gc();
+    long baseline = currentHeap();
+    resetPeakHeap();
+    HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", accept).build();
+
+    long start = System.nanoTime();
+    HttpResponse<InputStream> response =
+        client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    long bytes = 0;
+    long firstByte = 0;
+    byte[] buffer = new byte[8192];
+    try (InputStream body = response.body()) {
+      for (int read; (read = body.read(buffer)) != -1; ) {
+        if (bytes == 0) {
+          firstByte = System.nanoTime();
+        }
+        bytes += read;
+      }
+    }
+    long end = System.nanoTime();
+
+    System.out.printf("%-8s %12.1f %12.1f %14.1f %12d%n", mode,
+        (firstByte - start) / 1e6, (end - start) / 1e6, (peakHeap() - baseline) / 1048576.0, bytes);
+
+  }
+
+  private static void resetPeakHeap() {
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+
+  }
+
+  private static long currentHeap() {
+
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+  }
+
+  private static long peakHeap() {
+
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+
+  }
+
+}
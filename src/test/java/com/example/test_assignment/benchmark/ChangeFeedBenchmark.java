@@ -0,0 +1,161 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.UserChangeFeed;
+import com.example.test_assignment.service.UserService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures {@code addUser} latency with no change feed subscribers, with subscribers that keep
+ * up, and with the same subscribers plus two that connect and never read, one for each overflow
+ * policy. The stalled ones should cost the writer nothing.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.ChangeFeedBenchmark
+ * -Dexec.args="200000 4"} (writes, reading subscribers).
+ */
+public class ChangeFeedBenchmark {
+
+  public static void main(String[] args) throws Exception {
+
+    int writes = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    System.out.printf("%d addUser calls%n", writes);
+    System.out.printf("%-22s %10s %8s %8s %8s %9s %12s %8s %12s%n", "subscribers", "writes/s",
+        "p50 us", "p99 us", "p999 us", "max us", "events/read", "dropped", "disconnected");
+    run("none", writes, 0, false);
+    run(readers + " reading", writes, readers, false);
+    run(readers + " reading, 2 stalled", writes, readers, true);
+
+  }
+
+  private static void run(String name, int writes, int readers, boolean stalled)
+      throws Exception {
+
+    try (ConfigurableApplicationContext context = start()) {
+      int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+      UserService userService = context.getBean(UserService.class);
+      UserChangeFeed feed = context.getBean(UserChangeFeed.class);
+      List<Socket> sockets = new ArrayList<>();
+      AtomicLong received = new AtomicLong();
+      try {
+        for (int i = 0; i < readers; i++) {
+          Socket socket = subscribe(port, "DISCONNECT", false);
+          sockets.add(socket);
+          Thread reader = new Thread(() -> read(socket, received));
+          reader.setDaemon(true);
+          reader.start();
+        }
+        if (stalled) {
+          sockets.add(subscribe(port, "DROP", true));
+          sockets.add(subscribe(port, "DISCONNECT", true));
+        }
+        while (feed.subscribers() < sockets.size()) {
+          Thread.sleep(10);
+        }
+        // Warm up on other users first
+        for (int i = 0; i < writes / 10; i++) {
+          userService.addUser(user(-1 - i));
+        }
+        long[] latencies = new long[writes];
+        long start = System.nanoTime();
+        for (int i = 0; i < writes; i++) {
+          UserDto userDto = user(i);
+          long begin = System.nanoTime();
+          userService.addUser(userDto);
+          latencies[i] = System.nanoTime() - begin;
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.printf("%-22s %10.0f %8.1f %8.1f %8.1f %9.1f %12d %8d %12d%n", name,
+            writes * 1e9 / elapsed, percentile(latencies, 0.5), percentile(latencies, 0.99),
+            percentile(latencies, 0.999), latencies[writes - 1] / 1e3,
+            readers > 0 ? received.get() / readers : 0, feed.droppedChanges(),
+            feed.disconnectedSubscribers());
+      } finally {
+        for (Socket socket : sockets) {
+          socket.close();
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Opens the change feed on a raw connection; a stalled one also keeps its receive buffer small,
+   * so the server soon has nowhere to put its events.
+   */
+  private static Socket subscribe(int port, String overflow, boolean stalled) throws IOException {
+
+    Socket socket = new Socket();
+    if (stalled) {
+      socket.setReceiveBufferSize(4096);
+    }
+    socket.connect(new InetSocketAddress("localhost", port));
+    OutputStream out = socket.getOutputStream();
+    out.write(("GET /api/v1/users/changes?overflow=" + overflow + " HTTP/1.1\r\n"
+        + "Host: localhost\r\nAccept: text/event-stream\r\n\r\n")
+        .getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+    return socket;
+
+  }
+
+  private static void read(Socket socket, AtomicLong received) {
+
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        if (line.startsWith("id:")) {
+          received.incrementAndGet();
+        }
+      }
+    } catch (IOException e) {
+      // Closed at the end of the run
+    }
+
+  }
+
+  private static ConfigurableApplicationContext start() {
+
+    return new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+        .run("--server.port=0", "--spring.main.banner-mode=off", "--logging.level.root=warn");
+
+  }
+
+  private static UserDto user(int i) {
+
+    return UserDto.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(LocalDate.of(1950, 1, 1).plusDays(Math.floorMod(i, 18_000)))
+        .address(i + " Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+
+    return sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1e3;
+
+  }
+
+}
@@ -0,0 +1,364 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+
+/**
+ * Open-model HTTP load test of the {@code /api/v1/users} endpoints through the full stack
+ * (Tomcat, Jackson, bean validation, {@code AdviceController}).
+ *
+ * <p>Requests are started on a fixed schedule at the target rate and sent with the non-blocking
+ * {@link HttpClient#sendAsync} API, so a slow response never delays the requests behind it.
+ * Latency is measured from the time a request was <em>scheduled</em> to start, not from when it
+ * was actually sent, so stalls of the server (or of the generator) show up in the percentiles
+ * instead of being hidden by coordinated omission.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.HttpLoadBenchmark
+ * -Dexec.args="2000 30 10000 post=20,put=15,patch=15,delete=10,get=40"}
+ * (requests/s, seconds, pre-loaded users, endpoint mix weights). Add
+ * {@code -Dspring.profiles.active=reactive} to load the WebFlux stack instead.
+ *
+ * <p>{@code poll} is a GET of one of a few fixed ranges that sends back the entity tag of the last
+ * response for that range, as a client polling for changes would. Comparing the CPU time per
+ * request of e.g. {@code get=100} and {@code poll=95,patch=5} shows what conditional requests
+ * save; it is the CPU time of the whole process, load generator included.
+ */
+public class HttpLoadBenchmark {
+
+  private static final int WARMUP_SECONDS = 10;
+
+  private static final int RANGE_DAYS = 30;
+
+  private static final int BIRTH_DATE_DAYS = 18_000;
+
+  private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+  private static final int POLL_RANGES = 100;
+
+  private enum Endpoint { POST, PUT, PATCH, DELETE, GET, POLL }
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private final ObjectMapper objectMapper;
+
+  private final String baseUri;
+
+  private final int userCount;
+
+  private final AtomicInteger nextUser;
+
+  /**
+   * Users created by the benchmark that DELETE may remove; the pre-loaded users
+   * {@code 0 .. userCount - 1} are only read and updated.
+   */
+  private final Queue<String> deletable = new ConcurrentLinkedQueue<>();
+
+  private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+
+  private final Map<Endpoint, AtomicLong> errors = new EnumMap<>(Endpoint.class);
+
+  /**
+   * Entity tag of the last full response for each polled range.
+   */
+  private final Map<Integer, String> pollETags = new ConcurrentHashMap<>();
+
+  private final AtomicLong notModified = new AtomicLong();
+
+  private HttpLoadBenchmark(ObjectMapper objectMapper, String baseUri, int userCount) {
+
+    this.objectMapper = objectMapper;
+    this.baseUri = baseUri;
+    this.userCount = userCount;
+    this.nextUser = new AtomicInteger(userCount);
+    for (Endpoint endpoint : Endpoint.values()) {
+      latencies.put(endpoint, new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3));
+      errors.put(endpoint, new AtomicLong());
+    }
+
+  }
+
+  public static void main(String[] args) throws Exception {
+
+    int rate = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    int userCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+    Endpoint[] mix = parseMix(args.length > 3 ? args[3]
+        : "post=20,put=15,patch=15,delete=10,get=40");
+
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+            .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn")
+            .run()) {
+
+      String port = context.getEnvironment().getProperty("local.server.port");
+      HttpLoadBenchmark benchmark = new HttpLoadBenchmark(context.getBean(ObjectMapper.class),
+          String.format("http://localhost:%s/api/v1/users", port), userCount);
+      benchmark.preload();
+
+      System.out.printf("%d requests/s for %d s (after %d s warm-up), %d pre-loaded users%n",
+          rate, seconds, WARMUP_SECONDS, userCount);
+      benchmark.run(mix, rate, WARMUP_SECONDS);
+      benchmark.reset();
+      long cpuStart = processCpuTime();
+      long elapsed = benchmark.run(mix, rate, seconds);
+      long cpu = processCpuTime() - cpuStart;
+      benchmark.report(elapsed);
+      System.out.printf("%d not modified, process CPU %.1f%%, %.1f us per request%n",
+          benchmark.notModified.get(), 100.0 * cpu / elapsed,
+          cpu / 1e3 / ((long) rate * seconds));
+    }
+
+  }
+
+  /**
+   * Creates the users read and updated by the mix, and as many again for DELETE to remove.
+   */
+  private void preload() throws Exception {
+
+    int batchSize = 1000;
+    for (int i = 0; i < 2 * userCount; i += batchSize) {
+      List<UserDto> batch = new ArrayList<>(batchSize);
+      for (int j = i; j < Math.min(2 * userCount, i + batchSize); j++) {
+        batch.add(user(j));
+        if (j >= userCount) {
+          deletable.add(email(j));
+        }
+      }
+      client.send(HttpRequest.newBuilder(URI.create(baseUri + "/batch"))
+          .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+          .POST(BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(batch)))
+          .build(), BodyHandlers.discarding());
+    }
+    nextUser.set(2 * userCount);
+
+  }
+
+  /**
+   * Starts {@code rate} requests per second for {@code seconds}, then waits for the outstanding
+   * ones.
+   *
+   * @return the length of the run in nanoseconds
+   */
+  private long run(Endpoint[] mix, int rate, int seconds) {
+
+    long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+    long requests = (long) rate * seconds;
+    AtomicLong outstanding = new AtomicLong();
+    long start = System.nanoTime();
+    for (long n = 0; n < requests; n++) {
+      long scheduled = start + n * interval;
+      long delay;
+      while ((delay = scheduled - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(delay);
+      }
+      Endpoint endpoint = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+      outstanding.incrementAndGet();
+      send(endpoint, scheduled).whenComplete((response, failure) -> outstanding.decrementAndGet());
+    }
+    while (outstanding.get() > 0) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    return System.nanoTime() - start;
+
+  }
+
+  private CompletableFuture<?> send(Endpoint endpoint, long scheduled) {
+
+    String createdEmail = null;
+    Integer polledRange = null;
+    HttpRequest request;
+    try {
+      request = switch (endpoint) {
+        case POST -> {
+          UserDto userDto = user(nextUser.getAndIncrement());
+          createdEmail = userDto.getEmail();
+          yield json(URI.create(baseUri)).POST(body(userDto)).build();
+        }
+        case PUT -> {
+          UserDto userDto = user(randomUser());
+          userDto.setAddress("Replaced St");
+          yield json(URI.create(baseUri)).PUT(body(userDto)).build();
+        }
+        case PATCH -> json(URI.create(baseUri + "?email=" + email(randomUser())))
+            .method("PATCH", body(Map.of("First name", "Patched")))
+            .build();
+        case DELETE -> {
+          // With more deletes than creates in the mix the pool runs dry; those count as errors
+          String email = deletable.poll();
+          yield HttpRequest.newBuilder(URI.create(baseUri + "?email="
+              + (email != null ? email : "nobody@example.com"))).DELETE().build();
+        }
+        case GET -> {
+          LocalDate from = FIRST_BIRTH_DATE.plusDays(
+              ThreadLocalRandom.current().nextInt(BIRTH_DATE_DAYS - RANGE_DAYS));
+          yield HttpRequest.newBuilder(URI.create(String.format("%s?from=%s&to=%s", baseUri,
+              from, from.plusDays(RANGE_DAYS)))).GET().build();
+        }
+        case POLL -> {
+          polledRange = ThreadLocalRandom.current().nextInt(POLL_RANGES);
+          LocalDate from = FIRST_BIRTH_DATE.plusDays(
+              (long) polledRange * (BIRTH_DATE_DAYS / POLL_RANGES));
+          HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(String.format(
+              "%s?from=%s&to=%s", baseUri, from, from.plusDays(RANGE_DAYS))));
+          String eTag = pollETags.get(polledRange);
+          if (eTag != null) {
+            builder.header("If-None-Match", eTag);
+          }
+          yield builder.GET().build();
+        }
+      };
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+
+    String created = createdEmail;
+    Integer polled = polledRange;
+    return client.sendAsync(request, BodyHandlers.discarding())
+        .whenComplete((response, failure) -> {
+          latencies.get(endpoint).recordValue(System.nanoTime() - scheduled);
+          if (failure != null || response.statusCode() >= 400) {
+            errors.get(endpoint).incrementAndGet();
+            return;
+          }
+          if (created != null) {
+            deletable.add(created);
+          }
+          if (response.statusCode() == 304) {
+            notModified.incrementAndGet();
+          } else if (polled != null) {
+            response.headers().firstValue("ETag").ifPresent(tag -> pollETags.put(polled, tag));
+          }
+        });
+
+  }
+
+  private void reset() {
+
+    latencies.values().forEach(Histogram::reset);
+    errors.values().forEach(count -> count.set(0));
+    notModified.set(0);
+
+  }
+
+  private void report(long elapsed) {
+
+    System.out.printf("%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+        "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    Histogram all = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+    long allErrors = 0;
+    for (Endpoint endpoint : Endpoint.values()) {
+      Histogram histogram = latencies.get(endpoint);
+      if (histogram.getTotalCount() > 0) {
+        print(endpoint.name(), histogram, errors.get(endpoint).get(), elapsed);
+        all.add(histogram);
+        allErrors += errors.get(endpoint).get();
+      }
+    }
+    print("all", all, allErrors, elapsed);
+
+  }
+
+  private static void print(String name, Histogram histogram, long errors, long elapsed) {
+
+    System.out.printf("%-8s %10d %8d %10.0f %10.2f %10.2f %10.2f %10.2f%n", name,
+        histogram.getTotalCount(), errors, histogram.getTotalCount() / (elapsed / 1e9),
+        histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+        histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMaxValue() / 1e6);
+
+  }
+
+  /**
+   * Expands {@code post=20,get=80} into an array with each endpoint repeated by its weight, so a
+   * uniform pick follows the mix.
+   */
+  private static Endpoint[] parseMix(String mix) {
+
+    List<Endpoint> endpoints = new ArrayList<>();
+    for (String entry : mix.split(",")) {
+      String[] weight = entry.split("=");
+      Endpoint endpoint = Endpoint.valueOf(weight[0].trim().toUpperCase());
+      for (int i = 0; i < Integer.parseInt(weight[1].trim()); i++) {
+        endpoints.add(endpoint);
+      }
+    }
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException("Empty endpoint mix " + mix);
+    }
+    return endpoints.toArray(Endpoint[]::new);
+
+  }
+
+  private static long processCpuTime() {
+
+    return ((com.sun.management.OperatingSystemMXBean)
+        ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+
+  }
+
+  private HttpRequest.Builder json(URI uri) {
+
+    return HttpRequest.newBuilder(uri).header("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+
+  }
+
+  private HttpRequest.BodyPublisher body(Object value) throws JsonProcessingException {
+
+    return BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));
+
+  }
+
+  private int randomUser() {
+
+    return ThreadLocalRandom.current().nextInt(userCount);
+
+  }
+
+  private static String email(int i) {
+
+    return String.format("user%d@example.com", i);
+
+  }
+
+  private static UserDto user(int i) {
+
+    return UserDto.builder()
+        .email(email(i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(FIRST_BIRTH_DATE.plusDays(i % BIRTH_DATE_DAYS))
+        .address(i + " Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+
+  }
+
+}
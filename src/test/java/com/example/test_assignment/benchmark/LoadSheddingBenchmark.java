@@ -0,0 +1,323 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+
+/**
+ * Overload test of the concurrency limits of {@code /api/v1/users}: a steady stream of point
+ * writes (PATCH of one user) runs alongside wide birth-date range searches at a rate the server
+ * cannot keep up with, without the limits or with them.
+ *
+ * <p>Both streams are open-model, as in {@link HttpLoadBenchmark}: requests start on a fixed
+ * schedule whatever happened to the previous ones, and latency counts from the scheduled start.
+ * Each request is sent on a connection of its own from a thread of its own and its response is
+ * read as raw bytes, which keeps the load generator, on the same machine, as cheap as possible.
+ * The server's own view, the {@code http.server.requests} percentiles of successful requests, is
+ * printed after each run along with where the limits ended.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.LoadSheddingBenchmark
+ * -Dexec.args="100000 200 40 20 off"}
+ * (pre-loaded users, writes/s, searches/s, seconds, {@code off} or {@code on} for the limits,
+ * then any application arguments, e.g. {@code --user-json.cache-bytes=false}). Run each setting
+ * in a JVM of its own, so that neither profits from the JIT warmed by the other.
+ */
+public class LoadSheddingBenchmark {
+
+  private static final int WARMUP_SECONDS = 10;
+
+  private static final int BIRTH_DATE_DAYS = 18_000;
+
+  private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+  /**
+   * Days covered by each search, a fifth of all birth dates.
+   */
+  private static final int SEARCH_DAYS = BIRTH_DATE_DAYS / 5;
+
+  private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+  private final int port;
+
+  private final int userCount;
+
+  private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable);
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private LoadSheddingBenchmark(int port, int userCount) {
+
+    this.port = port;
+    this.userCount = userCount;
+
+  }
+
+  public static void main(String[] args) throws Exception {
+
+    int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int writeRate = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int searchRate = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+    int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+    boolean limited = args.length > 4 && args[4].equals("on");
+    String[] applicationArgs = Stream.concat(Stream.of("--server.port=0",
+            "--spring.main.banner-mode=off", "--logging.level.root=warn",
+            "--management.metrics.distribution.percentiles.http.server.requests=0.5,0.99,0.999",
+            "--user-api.concurrency-limit.enabled=" + limited),
+        Arrays.stream(args).skip(5)).toArray(String[]::new);
+
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+            .run(applicationArgs)) {
+      int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+      LoadSheddingBenchmark benchmark = new LoadSheddingBenchmark(port, userCount);
+      benchmark.preload(context.getBean(ObjectMapper.class));
+      // Warm up below capacity
+      benchmark.run(writeRate, Math.max(1, searchRate / 10), WARMUP_SECONDS);
+
+      System.out.printf("limits %s: %d users, %d writes/s and %d searches/s of %d days for %d s%n",
+          limited ? "on" : "off", userCount, writeRate, searchRate, SEARCH_DAYS, seconds);
+      System.out.printf("%-7s %8s %8s %8s %8s %9s %9s %9s %9s%n", "request", "sent", "ok", "503",
+          "failed", "p50 ms", "p99 ms", "p999 ms", "max ms");
+      MeterRegistry registry = context.getBean(MeterRegistry.class);
+      registry.clear();
+      for (RequestStream stream : benchmark.run(writeRate, searchRate, seconds)) {
+        stream.print();
+      }
+      printServerLatencies(registry);
+      context.getBeansOfType(AdaptiveConcurrencyLimit.class).forEach((name, limit) ->
+          System.out.printf("%s ended at %d, %d rejected%n", name, limit.limit(),
+              limit.rejected()));
+    }
+
+  }
+
+  private void preload(ObjectMapper objectMapper) throws Exception {
+
+    HttpClient client = HttpClient.newHttpClient();
+    int batchSize = 1000;
+    for (int i = 0; i < userCount; i += batchSize) {
+      List<UserDto> batch = new ArrayList<>(batchSize);
+      for (int j = i; j < Math.min(userCount, i + batchSize); j++) {
+        batch.add(user(j));
+      }
+      client.send(HttpRequest.newBuilder(
+              URI.create(String.format("http://localhost:%d/api/v1/users/batch", port)))
+          .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+          .POST(BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(batch)))
+          .build(), BodyHandlers.discarding());
+    }
+
+  }
+
+  /**
+   * Runs both streams for {@code seconds}, then waits for their outstanding requests.
+   */
+  private List<RequestStream> run(int writeRate, int searchRate, int seconds)
+      throws InterruptedException {
+
+    RequestStream writes = new RequestStream("write", writeRate, seconds, n -> {
+      String body = "{\"First name\":\"Patched" + n + "\"}";
+      return String.format("PATCH /api/v1/users?email=%s HTTP/1.1\r\nHost: localhost\r\n"
+              + "Content-Type: application/json\r\nContent-Length: %d\r\n"
+              + "Connection: close\r\n\r\n%s", email(randomUser()), body.length(), body);
+    });
+    RequestStream searches = new RequestStream("search", searchRate, seconds, n -> {
+      LocalDate from = FIRST_BIRTH_DATE.plusDays(
+          ThreadLocalRandom.current().nextInt(BIRTH_DATE_DAYS - SEARCH_DAYS));
+      return String.format("GET /api/v1/users?from=%s&to=%s HTTP/1.1\r\nHost: localhost\r\n"
+          + "Connection: close\r\n\r\n", from, from.plusDays(SEARCH_DAYS));
+    });
+    Thread writer = new Thread(writes::run);
+    Thread searcher = new Thread(searches::run);
+    writer.start();
+    searcher.start();
+    writer.join();
+    searcher.join();
+    return List.of(writes, searches);
+
+  }
+
+  /**
+   * Sends a request on a new connection and reads the response to the end.
+   *
+   * @return the status code
+   */
+  private int send(String request) throws IOException {
+
+    try (Socket socket = new Socket("localhost", port)) {
+      socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+      OutputStream out = socket.getOutputStream();
+      out.write(request.getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      InputStream in = socket.getInputStream();
+      byte[] buffer = new byte[64 * 1024];
+      int read = in.readNBytes(buffer, 0, 12);
+      if (read < 12) {
+        throw new IOException("Incomplete status line");
+      }
+      int status = Integer.parseInt(new String(buffer, 9, 3, StandardCharsets.US_ASCII));
+      while (in.read(buffer) >= 0) {
+        // Drain the body until the server closes the connection
+      }
+      return status;
+    }
+
+  }
+
+  private static void printServerLatencies(MeterRegistry registry) {
+
+    for (String method : List.of("PATCH", "GET")) {
+      Timer timer = registry.find("http.server.requests").tag("method", method)
+          .tag("status", "200").timer();
+      if (timer != null) {
+        ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+        System.out.printf("server %-5s p50 %.1f ms, p99 %.1f ms, p999 %.1f ms%n", method,
+            percentiles[0].value(TimeUnit.MILLISECONDS),
+            percentiles[1].value(TimeUnit.MILLISECONDS),
+            percentiles[2].value(TimeUnit.MILLISECONDS));
+      }
+    }
+
+  }
+
+  private int randomUser() {
+
+    return ThreadLocalRandom.current().nextInt(userCount);
+
+  }
+
+  private static String email(int i) {
+
+    return String.format("user%d@example.com", i);
+
+  }
+
+  private static UserDto user(int i) {
+
+    return UserDto.builder()
+        .email(email(i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(FIRST_BIRTH_DATE.plusDays(i % BIRTH_DATE_DAYS))
+        .address(i + " Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+
+  }
+
+  /**
+   * Requests started at a fixed rate; latencies are of the successful ones.
+   */
+  private class RequestStream {
+
+    private final String name;
+
+    private final int rate;
+
+    private final int seconds;
+
+    private final LongFunction<String> requests;
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(2), 3);
+
+    private final AtomicLong sent = new AtomicLong();
+
+    private final AtomicLong shed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    RequestStream(String name, int rate, int seconds, LongFunction<String> requests) {
+
+      this.name = name;
+      this.rate = rate;
+      this.seconds = seconds;
+      this.requests = requests;
+
+    }
+
+    void run() {
+
+      long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+      long count = (long) rate * seconds;
+      AtomicLong outstanding = new AtomicLong();
+      long start = System.nanoTime();
+      for (long n = 0; n < count; n++) {
+        long scheduled = start + n * interval;
+        long delay;
+        while ((delay = scheduled - System.nanoTime()) > 0) {
+          LockSupport.parkNanos(delay);
+        }
+        String request = requests.apply(n);
+        sent.incrementAndGet();
+        outstanding.incrementAndGet();
+        senders.execute(() -> {
+          try {
+            int status = send(request);
+            if (status == 503) {
+              shed.incrementAndGet();
+            } else if (status >= 400) {
+              failed.incrementAndGet();
+            } else {
+              latencies.recordValue(Math.min(System.nanoTime() - scheduled,
+                  latencies.getHighestTrackableValue()));
+            }
+          } catch (IOException e) {
+            failed.incrementAndGet();
+          } finally {
+            outstanding.decrementAndGet();
+          }
+        });
+      }
+      while (outstanding.get() > 0) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+      }
+
+    }
+
+    void print() {
+
+      System.out.printf("%-7s %8d %8d %8d %8d %9.1f %9.1f %9.1f %9.1f%n", name, sent.get(),
+          latencies.getTotalCount(), shed.get(), failed.get(),
+          latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(99) / 1e6,
+          latencies.getValueAtPercentile(99.9) / 1e6, latencies.getMaxValue() / 1e6);
+
+    }
+
+  }
+
+}
@@ -0,0 +1,154 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.UserStore;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Lock-based baseline for the {@code object} engine: plain maps behind a
+ * {@link ReentrantReadWriteLock}. A range search is consistent because it copies its result under
+ * the read lock, which keeps writers out for the whole scan. Selected with {@code -p engine=locked}.
+ */
+class LockedUserStore implements UserStore {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, User> users = new HashMap<>();
+
+  private final NavigableMap<LocalDate, Map<String, User>> usersByBirthDate = new TreeMap<>();
+
+  @Override
+  public User find(String email) {
+
+    return read(() -> users.get(email));
+
+  }
+
+  @Override
+  public boolean insert(User user) {
+
+    return write(() -> {
+      if (users.putIfAbsent(user.getEmail(), user) != null) {
+        return false;
+      }
+      index(user);
+      return true;
+    });
+
+  }
+
+  @Override
+  public void replace(String email, User user) {
+
+    write(() -> {
+      User previous = users.remove(email);
+      users.put(user.getEmail(), user);
+      unindex(previous);
+      index(user);
+      return null;
+    });
+
+  }
+
+  @Override
+  public User remove(String email) {
+
+    return write(() -> {
+      User user = users.remove(email);
+      unindex(user);
+      return user;
+    });
+
+  }
+
+  @Override
+  public int size() {
+
+    return read(users::size);
+
+  }
+
+  @Override
+  public int birthDateCount() {
+
+    return read(usersByBirthDate::size);
+
+  }
+
+  @Override
+  public Stream<User> findByBirthDateRange(LocalDate from, LocalDate to) {
+
+    return read(() -> {
+      List<User> result = new ArrayList<>();
+      for (Map<String, User> bucket : usersByBirthDate.subMap(from, true, to, true).values()) {
+        result.addAll(bucket.values());
+      }
+      return result;
+    }).stream();
+
+  }
+
+  @Override
+  public Stream<User> findAll() {
+
+    return read(() -> List.copyOf(users.values())).stream();
+
+  }
+
+  private void index(User user) {
+
+    if (user.getBirthDate() != null) {
+      usersByBirthDate.computeIfAbsent(user.getBirthDate(), date -> new HashMap<>())
+          .put(user.getEmail(), user);
+    }
+
+  }
+
+  private void unindex(User user) {
+
+    if (user == null || user.getBirthDate() == null) {
+      return;
+    }
+    Map<String, User> bucket = usersByBirthDate.get(user.getBirthDate());
+    if (bucket != null) {
+      bucket.remove(user.getEmail());
+      if (bucket.isEmpty()) {
+        usersByBirthDate.remove(user.getBirthDate());
+      }
+    }
+
+  }
+
+  private <T> T read(Supplier<T> reader) {
+
+    lock.readLock().lock();
+    try {
+      return reader.get();
+    } finally {
+      lock.readLock().unlock();
+    }
+
+  }
+
+  private <T> T write(Supplier<T> writer) {
+
+    lock.writeLock().lock();
+    try {
+      return writer.get();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+  }
+
+}
@@ -0,0 +1,176 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.persistence.FsyncPolicy;
+import com.example.test_assignment.persistence.UserStorePersistence;
+import com.example.test_assignment.service.UserService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures the write path of {@link UserService} with the change log under each
+ * {@link FsyncPolicy}, and the time to recover the store from a snapshot plus log tail.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.PersistenceBenchmark
+ * -Dexec.args="latency 16 2000"} (threads, writes per thread) or
+ * {@code -Dexec.args="recovery 10000000"} (users; give the JVM a few GB of heap through
+ * {@code MAVEN_OPTS}).
+ */
+public class PersistenceBenchmark {
+
+  public static void main(String[] args) throws Exception {
+
+    String mode = args.length > 0 ? args[0] : "latency";
+    if (mode.equals("recovery")) {
+      recovery(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+    } else {
+      int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+      int writes = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+      System.out.printf("%d threads x %d addUser calls%n", threads, writes);
+      System.out.printf("%-10s %12s %10s %10s %10s %10s%n",
+          "policy", "writes/s", "p50 us", "p99 us", "p999 us", "max us");
+      latency("disabled", null, threads, writes);
+      for (FsyncPolicy policy : FsyncPolicy.values()) {
+        latency(policy.name(), policy, threads, writes);
+      }
+    }
+
+  }
+
+  private static void latency(String name, FsyncPolicy policy, int threads, int writes)
+      throws Exception {
+
+    Path directory = Files.createTempDirectory("user-store");
+    try (ConfigurableApplicationContext context = start(directory, policy)) {
+      UserService userService = context.getBean(UserService.class);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      long[][] latencies = new long[threads][writes];
+      long start = System.nanoTime();
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+          int id = thread;
+          futures.add(executor.submit(() -> {
+            for (int i = 0; i < writes; i++) {
+              UserDto userDto = user(id * writes + i);
+              long begin = System.nanoTime();
+              userService.addUser(userDto);
+              latencies[id][i] = System.nanoTime() - begin;
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      long elapsed = System.nanoTime() - start;
+
+      long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+      System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f %10.1f%n", name,
+          all.length / (elapsed / 1e9), percentile(all, 0.5), percentile(all, 0.99),
+          percentile(all, 0.999), all[all.length - 1] / 1e3);
+    } finally {
+      delete(directory);
+    }
+
+  }
+
+  private static void recovery(int userCount) throws Exception {
+
+    Path directory = Files.createTempDirectory("user-store");
+    try {
+      int tail = Math.max(1, userCount / 10);
+      try (ConfigurableApplicationContext context = start(directory, FsyncPolicy.NEVER)) {
+        UserService userService = context.getBean(UserService.class);
+        populate(userService, 0, userCount - tail);
+        long start = System.nanoTime();
+        context.getBean(UserStorePersistence.class).snapshot();
+        System.out.printf("snapshot of %d users written in %.0f ms%n", userCount - tail,
+            (System.nanoTime() - start) / 1e6);
+        populate(userService, userCount - tail, userCount);
+      }
+      System.gc();
+
+      try (ConfigurableApplicationContext context = start(directory, FsyncPolicy.NEVER)) {
+        UserStorePersistence persistence = context.getBean(UserStorePersistence.class);
+        System.out.printf("recovered %d users (snapshot + %d log records) in %d ms%n",
+            persistence.getRecoveredUsers(), tail, persistence.getRecoveryMillis());
+      }
+    } finally {
+      delete(directory);
+    }
+
+  }
+
+  private static void populate(UserService userService, int from, int to) {
+
+    int batchSize = 10_000;
+    for (int i = from; i < to; i += batchSize) {
+      List<UserDto> batch = new ArrayList<>(batchSize);
+      for (int j = i; j < Math.min(to, i + batchSize); j++) {
+        batch.add(user(j));
+      }
+      userService.addUsers(batch);
+    }
+
+  }
+
+  private static ConfigurableApplicationContext start(Path directory, FsyncPolicy policy) {
+
+    return new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+        .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn",
+            "user-store.persistence.enabled=" + (policy != null),
+            "user-store.persistence.directory=" + directory,
+            "user-store.persistence.fsync=" + (policy != null ? policy : FsyncPolicy.ALWAYS),
+            "user-store.persistence.snapshot-interval=0s")
+        .run();
+
+  }
+
+  private static UserDto user(int i) {
+
+    return UserDto.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(LocalDate.of(1950, 1, 1).plusDays(i % 18_000))
+        .address(i + " Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+
+    return sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1e3;
+
+  }
+
+  private static void delete(Path directory) throws IOException {
+
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+
+  }
+
+}
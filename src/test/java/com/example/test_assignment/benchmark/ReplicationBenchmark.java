@@ -0,0 +1,168 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.JavaPracticalTestAssignmentApplication;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.persistence.FollowerStatus;
+import com.example.test_assignment.persistence.ReplicationLeader;
+import com.example.test_assignment.service.UserService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures replication from a leader to followers, each a full application context talking over
+ * TCP on localhost:
+ * <ul>
+ *   <li>{@code lag}: one write at a time, the time from a write returning on the leader until
+ *   every follower has applied it;</li>
+ *   <li>{@code load}: writers saturate the leader while the staleness of every follower is
+ *   sampled every millisecond.</li>
+ * </ul>
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.ReplicationBenchmark
+ * -Dexec.args="lag 2 5000"} (followers, writes) or {@code -Dexec.args="load 2 4 10"}
+ * (followers, writer threads, seconds).
+ *
+ * <p>All instances share this JVM and its cores, so read scaling is measured across JVMs
+ * instead: start a leader and followers with {@code java -jar} and
+ * {@code --user-store.replication.role=leader|follower}, each on its own {@code server.port},
+ * and point one {@link HttpLoadBenchmark}-style client at each.
+ */
+public class ReplicationBenchmark {
+
+  public static void main(String[] args) throws Exception {
+
+    String mode = args.length > 0 ? args[0] : "lag";
+    int followers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    try (ConfigurableApplicationContext leader = start("leader", 0)) {
+      int port = leader.getBean(ReplicationLeader.class).getPort();
+      List<ConfigurableApplicationContext> followerContexts = new ArrayList<>();
+      try {
+        for (int i = 0; i < followers; i++) {
+          followerContexts.add(start("follower", port));
+        }
+        UserService leaderService = leader.getBean(UserService.class);
+        List<UserService> followerServices = followerContexts.stream()
+            .map(context -> context.getBean(UserService.class))
+            .toList();
+        if (mode.equals("load")) {
+          load(leaderService, followerContexts.stream()
+                  .map(context -> context.getBean(FollowerStatus.class)).toList(),
+              args.length > 2 ? Integer.parseInt(args[2]) : 4,
+              args.length > 3 ? Integer.parseInt(args[3]) : 10);
+        } else {
+          lag(leaderService, followerServices, args.length > 2 ? Integer.parseInt(args[2]) : 5000);
+        }
+      } finally {
+        followerContexts.forEach(ConfigurableApplicationContext::close);
+      }
+    }
+
+  }
+
+  private static void lag(UserService leader, List<UserService> followers, int writes) {
+
+    // Warm up the code paths of both sides first
+    for (int i = 0; i < writes; i++) {
+      leader.addUser(user(-1 - i));
+    }
+    long[] lags = new long[writes];
+    for (int i = 0; i < writes; i++) {
+      leader.addUser(user(i));
+      long written = System.nanoTime();
+      long sequence = leader.currentSequence();
+      for (UserService follower : followers) {
+        while (follower.currentSequence() < sequence) {
+          Thread.onSpinWait();
+        }
+      }
+      lags[i] = System.nanoTime() - written;
+    }
+    Arrays.sort(lags);
+    System.out.printf("%d followers, %d writes: replication lag p50 %.1f us, p99 %.1f us, "
+            + "p999 %.1f us, max %.1f us%n", followers.size(), writes, percentile(lags, 0.5),
+        percentile(lags, 0.99), percentile(lags, 0.999), lags[lags.length - 1] / 1e3);
+
+  }
+
+  private static void load(UserService leader, List<FollowerStatus> followers, int threads,
+      int seconds) throws Exception {
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicLong written = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Long> staleness = new ArrayList<>();
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        int id = thread;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; running.get(); i++) {
+            leader.addUser(user(id * 100_000_000 + i));
+            written.incrementAndGet();
+          }
+        }));
+      }
+      long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+      while (System.nanoTime() < end) {
+        for (FollowerStatus follower : followers) {
+          staleness.add(follower.stalenessMillis());
+        }
+        Thread.sleep(1);
+      }
+      running.set(false);
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    long[] sorted = staleness.stream().mapToLong(Long::longValue).sorted().toArray();
+    System.out.printf("%d followers, %d writer threads: %.0f writes/s, follower staleness "
+            + "p50 %d ms, p99 %d ms, max %d ms%n", followers.size(), threads,
+        written.get() / (double) seconds, sorted[sorted.length / 2],
+        sorted[(int) (sorted.length * 0.99)], sorted[sorted.length - 1]);
+
+  }
+
+  private static ConfigurableApplicationContext start(String role, int leaderPort) {
+
+    // As arguments, which unlike default properties override application.properties
+    return new SpringApplicationBuilder(JavaPracticalTestAssignmentApplication.class)
+        .run("--server.port=0", "--spring.main.banner-mode=off", "--logging.level.root=warn",
+            "--user-store.replication.role=" + role,
+            "--user-store.replication.port=" + leaderPort);
+
+  }
+
+  private static UserDto user(int i) {
+
+    return UserDto.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(LocalDate.of(1950, 1, 1).plusDays(Math.floorMod(i, 18_000)))
+        .address(i + " Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+
+    return sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1e3;
+
+  }
+
+}
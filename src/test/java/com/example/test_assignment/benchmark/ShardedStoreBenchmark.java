@@ -0,0 +1,53 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH throughput of wide range searches and point lookups on a store split into
+ * {@code shards} shards, for the scaling curve over the number of client threads.
+ *
+ * <p>Run once per thread count, e.g. {@code for t in 1 2 4 8 16 32; do mvn -Pjmh test-compile
+ * exec:exec -Djmh.args="ShardedStoreBenchmark -t $t -p shards=1,8,32 -p storeSize=1000000";
+ * done}. The curve only means something on a host with at least as many cores as threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ShardedStoreBenchmark {
+
+  /**
+   * About a fiftieth of the users, so that each search has enough work to fan out.
+   */
+  private static final int RANGE_DAYS = 365;
+
+  @Benchmark
+  public List<User> searchUsersByBirthDateRange(UserServiceState state) {
+
+    LocalDate from = UserServiceState.FIRST_BIRTH_DATE.plusDays(ThreadLocalRandom.current()
+        .nextInt(UserServiceState.BIRTH_DATE_DAYS - RANGE_DAYS));
+    return state.userService.searchUsersByBirthDateRange(from, from.plusDays(RANGE_DAYS));
+
+  }
+
+  @Benchmark
+  public User findUserByEmail(UserServiceState state) {
+
+    return state.userService.find(UserServiceState.email(
+        ThreadLocalRandom.current().nextInt(state.storeSize)));
+
+  }
+
+}
@@ -0,0 +1,61 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH throughput of consistent range searches while a writer keeps moving users between birth
+ * dates: three searching threads and one writing thread share the store. Compares the snapshot
+ * reads of the {@code object} engine with the {@link LockedUserStore} baseline, where searches and
+ * writes exclude each other.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec
+ * -Djmh.args="SnapshotReadBenchmark -p engine=object,locked -p storeSize=100000"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SnapshotReadBenchmark {
+
+  private static final int RANGE_DAYS = 30;
+
+  @Benchmark
+  @Group("searchWhileMoving")
+  @GroupThreads(3)
+  public List<User> search(UserServiceState state) {
+
+    LocalDate from = UserServiceState.FIRST_BIRTH_DATE.plusDays(ThreadLocalRandom.current()
+        .nextInt(UserServiceState.BIRTH_DATE_DAYS - RANGE_DAYS));
+    return state.userService.searchUsersByBirthDateRange(from, from.plusDays(RANGE_DAYS));
+
+  }
+
+  @Benchmark
+  @Group("searchWhileMoving")
+  @GroupThreads(1)
+  public User move(UserServiceState state) {
+
+    int i = ThreadLocalRandom.current().nextInt(state.storeSize);
+    LocalDate birthDate = UserServiceState.FIRST_BIRTH_DATE.plusDays(
+        ThreadLocalRandom.current().nextInt(UserServiceState.BIRTH_DATE_DAYS));
+    return state.userService.updateUserFields(UserServiceState.email(i),
+        Map.of("Birth date", birthDate.toString()));
+
+  }
+
+}
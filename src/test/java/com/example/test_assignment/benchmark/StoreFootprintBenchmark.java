@@ -0,0 +1,74 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.CompactUserStore;
+import com.example.test_assignment.service.ObjectUserStore;
+import com.example.test_assignment.service.UserStore;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Compares the retained heap per user of the {@code object} and {@code compact} store engines,
+ * and the time of a birth-date range scan over each.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.StoreFootprintBenchmark
+ * -Dexec.args="1000000"} (users; give the JVM enough heap through {@code MAVEN_OPTS}).
+ */
+public class StoreFootprintBenchmark {
+
+  public static void main(String[] args) {
+
+    int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    System.out.printf("%d users%n", userCount);
+    System.out.printf("%-8s %12s %12s %14s%n", "engine", "heap MB", "bytes/user", "range scan ms");
+    measure("object", ObjectUserStore::new, userCount);
+    measure("compact", CompactUserStore::new, userCount);
+
+  }
+
+  private static void measure(String name, Supplier<UserStore> engine, int userCount) {
+
+    long baseline = usedHeap();
+    UserStore store = engine.get();
+    for (int i = 0; i < userCount; i++) {
+      store.insert(user(i));
+    }
+    long footprint = usedHeap() - baseline;
+
+    long start = System.nanoTime();
+    long found = store.findByBirthDateRange(LocalDate.of(1960, 1, 1), LocalDate.of(1979, 12, 31))
+        .count();
+    long elapsed = System.nanoTime() - start;
+
+    System.out.printf("%-8s %12.1f %12.1f %14.1f (%d users)%n", name, footprint / 1e6,
+        (double) footprint / store.size(), elapsed / 1e6, found);
+
+  }
+
+  private static long usedHeap() {
+
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+
+  }
+
+  private static User user(int i) {
+
+    // Names and addresses repeat the way real data does; emails and phone numbers are unique
+    return User.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i % 5_000)
+        .lastName("Last" + i % 20_000)
+        .birthDate(LocalDate.of(1950, 1, 1).plusDays(i % 18_000))
+        .address(i % 50_000 + " Main St")
+        .phoneNumber(String.format("+1-555-%07d", i))
+        .build();
+
+  }
+
+}
@@ -0,0 +1,116 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.mapper.UserJsonHttpMessageConverter;
+import com.example.test_assignment.mapper.UserMapper;
+import com.example.test_assignment.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * JMH benchmarks of writing a search response of {@code resultSize} users: through the Jackson
+ * converter, through {@link UserJsonHttpMessageConverter} encoding every user, and through it
+ * copying each user's kept bytes. The body goes to a reused in-memory buffer, standing in for the
+ * servlet output buffer.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args=UserJsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+  private static final Type USER_LIST = new ParameterizedTypeReference<List<User>>() { }.getType();
+
+  @Param({"1000", "100000"})
+  public int resultSize;
+
+  private List<User> users;
+
+  private MappingJackson2HttpMessageConverter jackson;
+
+  private UserJsonHttpMessageConverter encoding;
+
+  private UserJsonHttpMessageConverter cached;
+
+  private final HttpOutputMessage response = new HttpOutputMessage() {
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+
+    @Override
+    public OutputStream getBody() {
+      body.reset();
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+  };
+
+  @Setup
+  public void setUp() throws IOException {
+
+    users = IntStream.range(0, resultSize)
+        .mapToObj(i -> UserMapper.dtoToUser(UserServiceState.user(i)))
+        .toList();
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    jackson = new MappingJackson2HttpMessageConverter(objectMapper);
+    encoding = new UserJsonHttpMessageConverter(objectMapper, false);
+    cached = new UserJsonHttpMessageConverter(objectMapper, true);
+    // Fill every user's bytes, as the first response holding it would
+    cached.write(users, USER_LIST, MediaType.APPLICATION_JSON, response);
+
+  }
+
+  @Benchmark
+  public void jackson() throws IOException {
+
+    jackson.write(users, USER_LIST, MediaType.APPLICATION_JSON, response);
+
+  }
+
+  @Benchmark
+  public void encodeEachUser() throws IOException {
+
+    encoding.write(users, USER_LIST, MediaType.APPLICATION_JSON, response);
+
+  }
+
+  @Benchmark
+  public void cachedBytes() throws IOException {
+
+    cached.write(users, USER_LIST, MediaType.APPLICATION_JSON, response);
+
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.mapper.UserMapper;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the {@link UserMapper} conversions.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args=UserMapperBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+  private final UserDto userDto = UserServiceState.user(42);
+
+  private final User user = UserMapper.dtoToUser(userDto);
+
+  @Benchmark
+  public User dtoToUser() {
+
+    return UserMapper.dtoToUser(userDto);
+
+  }
+
+  @Benchmark
+  public UserDto userToDto() {
+
+    return UserMapper.userToDto(user);
+
+  }
+
+}
@@ -0,0 +1,85 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserPatch;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * JMH benchmarks of a PATCH from the request body to the stored user, without the HTTP stack: the
+ * body bound to a {@code Map} as {@code @RequestBody} does, or streamed into a patch as the
+ * controller does. {@code mapBinding} and {@code streamingParse} only build the patch.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec
+ * -Djmh.args="UserPatchBenchmark -p engine=object -p storeSize=100000 -prof gc"}; the
+ * {@code gc.alloc.rate.norm} lines give the bytes allocated per patch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserPatchBenchmark {
+
+  private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() { };
+
+  private static final byte[] BODY = """
+      {"First name": "Patched", "Last name": "User", "Address": "1 Patch St"}"""
+      .getBytes(StandardCharsets.UTF_8);
+
+  private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+  @Benchmark
+  public User mapPatch(UserServiceState state) throws IOException {
+
+    Map<String, Object> update = OBJECT_MAPPER.readValue(BODY, MAP);
+    return state.userService.updateUserFields(randomEmail(state), update);
+
+  }
+
+  @Benchmark
+  public User streamingPatch(UserServiceState state) throws IOException {
+
+    try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(BODY)) {
+      return state.userService.updateUserFields(randomEmail(state), UserPatch.parse(parser));
+    }
+
+  }
+
+  @Benchmark
+  public UserPatch mapBinding() throws IOException {
+
+    return UserPatch.of(OBJECT_MAPPER.readValue(BODY, MAP));
+
+  }
+
+  @Benchmark
+  public UserPatch streamingParse() throws IOException {
+
+    try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(BODY)) {
+      return UserPatch.parse(parser);
+    }
+
+  }
+
+  private static String randomEmail(UserServiceState state) {
+
+    return UserServiceState.email(ThreadLocalRandom.current().nextInt(state.storeSize));
+
+  }
+
+}
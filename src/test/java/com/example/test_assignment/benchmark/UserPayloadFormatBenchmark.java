@@ -0,0 +1,105 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.mapper.UserMapper;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * JMH benchmarks of the payload formats {@code UserController} negotiates: encoding a search
+ * response of {@code resultSize} users and decoding a batch upload of as many users, each as
+ * JSON, CBOR and Smile. The payload sizes are printed during setup.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args=UserPayloadFormatBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserPayloadFormatBenchmark {
+
+  @Param({"json", "cbor", "smile"})
+  public String format;
+
+  @Param({"1000", "100000"})
+  public int resultSize;
+
+  private List<User> users;
+
+  private ObjectWriter writer;
+
+  private ObjectReader reader;
+
+  private byte[] upload;
+
+  private final ByteArrayOutputStream response = new ByteArrayOutputStream(1 << 20);
+
+  @Setup
+  public void setUp() throws IOException {
+
+    List<UserDto> userDtos = IntStream.range(0, resultSize)
+        .mapToObj(UserServiceState::user)
+        .toList();
+    users = userDtos.stream().map(UserMapper::dtoToUser).toList();
+    Jackson2ObjectMapperBuilder builder = switch (format) {
+      case "json" -> Jackson2ObjectMapperBuilder.json();
+      case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+      case "smile" -> Jackson2ObjectMapperBuilder.smile();
+      default -> throw new IllegalArgumentException(format);
+    };
+    // Configured as Spring Boot configures the application's mappers
+    ObjectMapper objectMapper = builder
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .modulesToInstall(ParameterNamesModule.class)
+        .build();
+    writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+        .constructCollectionType(List.class, User.class));
+    reader = objectMapper.readerFor(objectMapper.getTypeFactory()
+        .constructCollectionType(List.class, UserDto.class));
+    upload = objectMapper.writeValueAsBytes(userDtos);
+    // Users and their DTOs have the same fields, so responses and uploads weigh the same
+    System.out.printf("%n%s, %d users: %d bytes (%.1f bytes/user)%n", format, resultSize,
+        upload.length, upload.length / (double) resultSize);
+
+  }
+
+  @Benchmark
+  public int encodeResponse() throws IOException {
+
+    response.reset();
+    writer.writeValue(response, users);
+    return response.size();
+
+  }
+
+  @Benchmark
+  public List<UserDto> decodeUpload() throws IOException {
+
+    return reader.readValue(upload);
+
+  }
+
+}
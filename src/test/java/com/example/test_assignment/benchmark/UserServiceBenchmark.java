@@ -0,0 +1,127 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the {@link com.example.test_assignment.service.UserService} operations that
+ * leave the store size unchanged, each on a random user of the pre-filled store. See
+ * {@link UserServiceWriteBenchmark} for adding and deleting.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args=UserServiceBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class UserServiceBenchmark {
+
+  /**
+   * Days covered by a range search; the result size grows with the store size.
+   */
+  private static final int RANGE_DAYS = 30;
+
+  @Benchmark
+  public User findUserByEmail(UserServiceState state) {
+
+    return state.userService.find(UserServiceState.email(randomUser(state)));
+
+  }
+
+  /**
+   * One user's phone number, spelled differently from the stored canonical form.
+   */
+  @Benchmark
+  public List<User> findUsersByPhoneNumber(UserServiceState state) {
+
+    return state.userService.findUsersByPhoneNumber(
+        String.format("+1 (555) %07d", randomUser(state)));
+
+  }
+
+  @Benchmark
+  public User updateUserFields(UserServiceState state) {
+
+    int i = randomUser(state);
+    return state.userService.updateUserFields(UserServiceState.email(i),
+        Map.of("First name", "Renamed" + (i & 1023)));
+
+  }
+
+  @Benchmark
+  public User updateUser(UserServiceState state) {
+
+    UserDto userDto = UserServiceState.user(randomUser(state));
+    userDto.setAddress("Replaced St");
+    return state.userService.updateUser(userDto);
+
+  }
+
+  @Benchmark
+  public List<User> searchUsersByBirthDateRange(UserServiceState state) {
+
+    LocalDate from = UserServiceState.FIRST_BIRTH_DATE.plusDays(ThreadLocalRandom.current()
+        .nextInt(UserServiceState.BIRTH_DATE_DAYS - RANGE_DAYS));
+    return state.userService.searchUsersByBirthDateRange(from, from.plusDays(RANGE_DAYS));
+
+  }
+
+  /**
+   * A last name prefix shared by about {@code storeSize / 2_000} users, of which the first 20 are
+   * returned.
+   */
+  @Benchmark
+  public List<User> searchUsersByTextPrefix(UserServiceState state) {
+
+    return state.userService.searchUsersByText(
+        "last" + ThreadLocalRandom.current().nextInt(2_000), TextMatch.PREFIX, 20);
+
+  }
+
+  /**
+   * A fragment of one user's email, e.g. {@code 12345@}, also found in the emails of users whose
+   * number ends with it.
+   */
+  @Benchmark
+  public List<User> searchUsersByTextSubstring(UserServiceState state) {
+
+    return state.userService.searchUsersByText(randomUser(state) + "@", TextMatch.SUBSTRING, 20);
+
+  }
+
+  /**
+   * Yearly counts over every stored birth date; the cost depends on the number of years, not on
+   * the store size.
+   */
+  @Benchmark
+  public List<BirthDateCount> countUsersByBirthYear(UserServiceState state) {
+
+    return state.userService.countUsersByBirthDate(UserServiceState.FIRST_BIRTH_DATE,
+        UserServiceState.FIRST_BIRTH_DATE.plusDays(UserServiceState.BIRTH_DATE_DAYS),
+        Grouping.YEAR);
+
+  }
+
+  private static int randomUser(UserServiceState state) {
+
+    return ThreadLocalRandom.current().nextInt(state.storeSize);
+
+  }
+
+}
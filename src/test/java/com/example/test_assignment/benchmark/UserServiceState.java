@@ -0,0 +1,111 @@
+package com.example.test_assignment.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.test_assignment.config.UserStoreConfig;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.ObjectUserStore;
+import com.example.test_assignment.service.UserService;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.validation.Validation;
+import java.time.LocalDate;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * JMH state shared by the {@link UserService} benchmarks: a service without the Spring context,
+ * pre-filled with {@code storeSize} users {@code 0 .. storeSize - 1}.
+ */
+@State(Scope.Benchmark)
+public class UserServiceState {
+
+  static final int BIRTH_DATE_DAYS = 18_000;
+
+  static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+  /**
+   * A {@code user-store.engine}, or {@code locked} for the {@link LockedUserStore} baseline.
+   */
+  @Param({"object", "compact"})
+  public String engine;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int storeSize;
+
+  /**
+   * {@code user-store.shards}; more than one wraps the engine in a sharded store.
+   */
+  @Param({"1"})
+  public int shards;
+
+  /**
+   * {@code none} leaves the service's timers as no-ops; {@code prometheus} records them the way
+   * the application does, to measure the cost of the instrumentation.
+   */
+  @Param({"none"})
+  public String meterRegistry;
+
+  BenchmarkedUserService userService;
+
+  @Setup
+  public void setUp() {
+
+    // Without Spring Boot's logging setup logback defaults to DEBUG
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+    userService = new BenchmarkedUserService();
+    ReflectionTestUtils.setField(userService, "minimumAge", 18);
+    ReflectionTestUtils.setField(userService, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(userService, "store", engine.equals("locked")
+        ? new LockedUserStore() : new UserStoreConfig().userStore(engine, shards,
+            ObjectUserStore.DEFAULT_MAX_RETAINED_VERSIONS));
+    if (meterRegistry.equals("prometheus")) {
+      ReflectionTestUtils.setField(userService, "meterRegistry",
+          new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+    for (int i = 0; i < storeSize; i++) {
+      userService.addUser(user(i));
+    }
+
+  }
+
+  static String email(int i) {
+
+    return "user" + i + "@example.com";
+
+  }
+
+  static UserDto user(int i) {
+
+    return UserDto.builder()
+        .email(email(i))
+        .firstName("First" + i % 5_000)
+        .lastName("Last" + i % 20_000)
+        .birthDate(FIRST_BIRTH_DATE.plusDays(i % BIRTH_DATE_DAYS))
+        .address(i % 50_000 + " Main St")
+        .phoneNumber(String.format("+1-555-%07d", i))
+        .build();
+
+  }
+
+  /**
+   * Exposes the protected lookup to the benchmarks.
+   */
+  static class BenchmarkedUserService extends UserService {
+
+    User find(String email) {
+
+      return findUserByEmail(email);
+
+    }
+
+  }
+
+}
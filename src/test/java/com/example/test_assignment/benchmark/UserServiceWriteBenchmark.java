@@ -0,0 +1,92 @@
+package com.example.test_assignment.benchmark;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.service.UserService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * JMH benchmarks of {@link UserService#addUser} and {@link UserService#deleteUser}.
+ *
+ * <p>Both change the store size, so each iteration is a fixed batch of calls and the store is put
+ * back to {@code storeSize} users between iterations; the score is the time per batch of
+ * {@value #BATCH} calls per thread.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args=UserServiceWriteBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20, batchSize = UserServiceWriteBenchmark.BATCH)
+@Measurement(iterations = 50, batchSize = UserServiceWriteBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class UserServiceWriteBenchmark {
+
+  static final int BATCH = 100;
+
+  @State(Scope.Benchmark)
+  public static class Counters {
+
+    final AtomicInteger added = new AtomicInteger();
+
+    final AtomicInteger deleted = new AtomicInteger();
+
+    /**
+     * Removes the users added and restores the users deleted by the last iteration.
+     */
+    @TearDown(Level.Iteration)
+    public void restore(UserServiceState state) {
+
+      UserService userService = state.userService;
+      for (int i = 0; i < added.get(); i++) {
+        userService.deleteUser(UserServiceState.email(state.storeSize + i));
+      }
+      for (int i = 0; i < deleted.get(); i++) {
+        userService.addUser(UserServiceState.user(i));
+      }
+      added.set(0);
+      deleted.set(0);
+
+    }
+
+    @Setup(Level.Iteration)
+    public void check(UserServiceState state, BenchmarkParams params) {
+
+      if (BATCH * params.getThreads() > state.storeSize) {
+        throw new IllegalStateException(String.format(
+            "A store of %d users cannot take a batch of %d deletes on each of %d threads",
+            state.storeSize, BATCH, params.getThreads()));
+      }
+
+    }
+
+  }
+
+  @Benchmark
+  public User addUser(UserServiceState state, Counters counters) {
+
+    int i = state.storeSize + counters.added.getAndIncrement();
+    return state.userService.addUser(UserServiceState.user(i));
+
+  }
+
+  @Benchmark
+  public void deleteUser(UserServiceState state, Counters counters) {
+
+    state.userService.deleteUser(UserServiceState.email(counters.deleted.getAndIncrement()));
+
+  }
+
+}
@@ -0,0 +1,185 @@
+package com.example.test_assignment.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.persistence.UserSqlMirror;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChangeListener;
+import com.example.test_assignment.service.UserService;
+import jakarta.validation.Validation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Measures the write path of {@link UserService} without an SQL copy, with the
+ * {@link UserSqlMirror} writing behind, and with a baseline that writes every change to the same
+ * H2 database before the write returns. Each thread adds {@code users} users, then keeps patching
+ * them, so later changes coalesce in the mirror.
+ *
+ * <p>Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.test_assignment.benchmark.WriteBehindBenchmark
+ * -Dexec.args="4 20000 1000"} (threads, writes per thread, users per thread).
+ */
+public class WriteBehindBenchmark {
+
+  public static void main(String[] args) throws Exception {
+
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int writes = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+    int users = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+    System.out.printf("%d threads x %d writes over %d users each%n", threads, writes, users);
+    System.out.printf("%-14s %10s %8s %8s %8s %10s %12s%n",
+        "sql copy", "writes/s", "p50 us", "p99 us", "p999 us", "rows", "catch-up ms");
+    for (String mode : List.of("none", "write-behind", "synchronous")) {
+      run(mode, threads, writes, users);
+    }
+
+  }
+
+  private static void run(String mode, int threads, int writes, int users) throws Exception {
+
+    Path directory = Files.createTempDirectory("user-sql");
+    String url = "jdbc:h2:file:" + directory.resolve("users").toAbsolutePath();
+    UserSqlMirror mirror = null;
+    SynchronousSqlWriter synchronous = null;
+    List<UserChangeListener> listeners = List.of();
+    if (mode.equals("write-behind")) {
+      mirror = new UserSqlMirror(url, Duration.ofMillis(100), 1_000, 100_000);
+      mirror.start();
+      listeners = List.of(mirror);
+    } else if (mode.equals("synchronous")) {
+      synchronous = new SynchronousSqlWriter(url);
+      listeners = List.of(synchronous);
+    }
+    UserService userService = new UserService();
+    ReflectionTestUtils.setField(userService, "minimumAge", 18);
+    ReflectionTestUtils.setField(userService, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(userService, "changeListeners", listeners);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long[][] latencies = new long[threads][writes];
+    long start = System.nanoTime();
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        int id = thread;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < writes; i++) {
+            int user = id * users + i % users;
+            long begin = System.nanoTime();
+            if (i < users) {
+              userService.addUser(UserServiceState.user(user));
+            } else {
+              userService.updateUserFields(UserServiceState.email(user),
+                  Map.of("First name", "First" + i));
+            }
+            latencies[id][i] = System.nanoTime() - begin;
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    long elapsed = System.nanoTime() - start;
+    long catchUp = System.nanoTime();
+    long rows = (long) threads * writes;
+    if (mirror != null) {
+      mirror.awaitFlushed(userService.currentSequence());
+      rows = mirror.flushedRows();
+      mirror.close();
+    }
+    catchUp = System.nanoTime() - catchUp;
+    if (synchronous != null) {
+      synchronous.close();
+    }
+
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    System.out.printf("%-14s %10.0f %8.1f %8.1f %8.1f %10d %12.1f%n", mode,
+        all.length * 1e9 / elapsed, percentile(all, 0.5), percentile(all, 0.99),
+        percentile(all, 0.999), rows, catchUp / 1e6);
+
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+
+    return sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1e3;
+
+  }
+
+  /**
+   * Baseline: one auto-committed JDBC statement per change, on the writing thread before the
+   * write returns.
+   */
+  private static class SynchronousSqlWriter implements UserChangeListener {
+
+    private final Connection connection;
+
+    private final PreparedStatement merge;
+
+    SynchronousSqlWriter(String url) throws SQLException {
+
+      // Creates the same tables
+      UserSqlMirror schema = new UserSqlMirror(url, Duration.ofMillis(1), 1, 1);
+      schema.start();
+      schema.close();
+      connection = DriverManager.getConnection(url);
+      merge = connection.prepareStatement("MERGE INTO users (email, first_name, last_name, "
+          + "birth_date, address, phone_number, sequence) KEY (email) VALUES (?, ?, ?, ?, ?, ?, ?)");
+
+    }
+
+    @Override
+    public void onChange(UserChange change) {
+    }
+
+    @Override
+    public synchronized void afterCommit(UserChange change) {
+
+      User user = change.user();
+      try {
+        merge.setString(1, user.getEmail());
+        merge.setString(2, user.getFirstName());
+        merge.setString(3, user.getLastName());
+        merge.setDate(4, Date.valueOf(user.getBirthDate()));
+        merge.setString(5, user.getAddress());
+        merge.setString(6, user.getPhoneNumber());
+        merge.setLong(7, change.sequence());
+        merge.executeUpdate();
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+
+    }
+
+    void close() throws SQLException {
+
+      connection.close();
+
+    }
+
+  }
+
+}
@@ -0,0 +1,382 @@
+package com.example.test_assignment.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BatchItemResult.Status;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChangeFeed;
+import com.example.test_assignment.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.ValidationException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.webjars.NotFoundException;
+
+/**
+ * The {@link UserControllerTest} scenarios against the {@code reactive} profile.
+ */
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWebTestClient
+class ReactiveUserControllerTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @MockBean
+  private UserService userService;
+
+  @Autowired
+  private UserChangeFeed userChangeFeed;
+
+  private final UserDto userDto = UserDto.builder()
+      .email("test@example.com")
+      .firstName("John")
+      .lastName("Doe")
+      .birthDate(LocalDate.parse("1990-01-01"))
+      .address("123 Main St")
+      .phoneNumber("123-456-7890")
+      .build();
+
+  @Test
+  void testAddUser() {
+    when(userService.addUser(any(UserDto.class))).thenReturn(User.builder().build());
+
+    webTestClient.post().uri("/api/v1/users")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(userDto))
+        .exchange()
+        .expectStatus().isOk();
+  }
+
+  @Test
+  void testAddUser_InvalidInput() {
+    webTestClient.post().uri("/api/v1/users")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(UserDto.builder().build()))
+        .exchange()
+        .expectStatus().isBadRequest()
+        .expectBody().jsonPath("$.message.email").exists();
+  }
+
+  @Test
+  void testUpdateUserField() {
+    when(userService.updateUserFields(eq("test@example.com"), any(Map.class))).thenReturn(
+        User.builder().firstName("NewFirstName").build());
+
+    webTestClient.patch().uri("/api/v1/users?email={email}", "test@example.com")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(Map.of("First name", "NewFirstName")))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().jsonPath("$['First name']").isEqualTo("NewFirstName");
+  }
+
+  @Test
+  void testUpdateUserField_UserNotFound() {
+    when(userService.updateUserFields(eq("nonexistent@example.com"), any(Map.class)))
+        .thenThrow(new NotFoundException("User not found."));
+
+    webTestClient.patch().uri("/api/v1/users?email={email}", "nonexistent@example.com")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(Map.of("First name", "NewFirstName")))
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void testUpdateUser() {
+    when(userService.updateUser(any(UserDto.class))).thenReturn(User.builder().build());
+
+    webTestClient.put().uri("/api/v1/users")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(userDto))
+        .exchange()
+        .expectStatus().isOk();
+  }
+
+  @Test
+  void testDeleteUser() {
+    webTestClient.delete().uri("/api/v1/users?email={email}", "test@example.com")
+        .exchange()
+        .expectStatus().isOk();
+  }
+
+  @Test
+  void testDeleteUser_UserNotFound() {
+    doThrow(new NotFoundException("User not found."))
+        .when(userService).deleteUser("nonexistent@example.com");
+
+    webTestClient.delete().uri("/api/v1/users?email={email}", "nonexistent@example.com")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange() {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+    when(userService.streamUsersByBirthDateRange(eq(from), eq(to))).thenReturn(Stream.of(
+        User.builder().email("first@example.com").build(),
+        User.builder().email("second@example.com").build()));
+
+    webTestClient.get().uri("/api/v1/users?from={from}&to={to}", from, to)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, "\"v1\"")
+        .expectBody()
+        .jsonPath("$[0].Email").isEqualTo("first@example.com")
+        .jsonPath("$[1].Email").isEqualTo("second@example.com");
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_NoUsersFound() {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+    when(userService.streamUsersByBirthDateRange(eq(from), eq(to))).thenReturn(Stream.of());
+
+    webTestClient.get().uri("/api/v1/users?from={from}&to={to}", from, to)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().json("[]");
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_InvalidRange() {
+    LocalDate from = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(from)))
+        .thenThrow(new ValidationException("'From' is not less than 'To'"));
+
+    webTestClient.get().uri("/api/v1/users?from={from}&to={to}", from, from)
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_NotModified() {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+
+    webTestClient.get().uri("/api/v1/users?from={from}&to={to}", from, to)
+        .ifNoneMatch("\"v1\"")
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectBody().isEmpty();
+    // Another representation of the range has its own tag
+    when(userService.streamUsersByBirthDateRange(eq(from), eq(to))).thenReturn(Stream.of());
+    webTestClient.get().uri("/api/v1/users?from={from}&to={to}", from, to)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .ifNoneMatch("\"v1\"")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, "\"v1-ndjson\"");
+
+    verify(userService, times(1)).streamUsersByBirthDateRange(from, to);
+  }
+
+  @Test
+  void testSearchUsersByText() {
+    when(userService.searchUsersByText(eq("smith"), eq(TextMatch.SUBSTRING), eq(20))).thenReturn(
+        List.of(User.builder().email("jsmith@example.com").lastName("Smith").build()));
+    when(userService.searchUsersByText(eq(" "), eq(TextMatch.SUBSTRING), eq(20)))
+        .thenThrow(new ValidationException("'Query' must not be blank"));
+
+    webTestClient.get().uri("/api/v1/users/search?q={q}", "smith")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().jsonPath("$[0].Email").isEqualTo("jsmith@example.com");
+    webTestClient.get().uri("/api/v1/users/search?q={q}", " ")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void testFindUsersByPhoneNumber() {
+    when(userService.findUsersByPhoneNumber(eq("+1 555 010 0100"))).thenReturn(
+        List.of(User.builder().email("caller@example.com").phoneNumber("+15550100100").build()));
+
+    webTestClient.get().uri("/api/v1/users/by-phone?number={number}", "+1 555 010 0100")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().jsonPath("$[0].Email").isEqualTo("caller@example.com");
+  }
+
+  @Test
+  void testCountUsersByBirthDate() {
+    LocalDate from = LocalDate.of(1990, 1, 1);
+    LocalDate to = LocalDate.of(1991, 12, 31);
+    when(userService.countUsersByBirthDate(eq(from), eq(to), eq(Grouping.YEAR))).thenReturn(
+        List.of(
+            BirthDateCount.builder().bucket("1990")
+                .from(from).to(LocalDate.of(1990, 12, 31)).count(2).build(),
+            BirthDateCount.builder().bucket("1991")
+                .from(LocalDate.of(1991, 1, 1)).to(to).count(5).build()));
+
+    webTestClient.get().uri("/api/v1/users/birth-date-counts?from={from}&to={to}", from, to)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].bucket").isEqualTo("1990")
+        .jsonPath("$[1].count").isEqualTo(5);
+  }
+
+  @Test
+  void testStreamUsersByBirthDateRange() {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+    when(userService.streamUsersByBirthDateRange(eq(from), eq(to))).thenReturn(Stream.of(
+        User.builder().email("first@example.com").build(),
+        User.builder().email("second@example.com").build()));
+
+    List<User> users = webTestClient.get().uri("/api/v1/users?from={from}&to={to}", from, to)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+        .returnResult(User.class).getResponseBody().collectList().block();
+
+    assertEquals(2, users.size());
+    assertEquals("first@example.com", users.get(0).getEmail());
+    assertEquals("second@example.com", users.get(1).getEmail());
+  }
+
+  @Test
+  void testAddUsers() {
+    when(userService.addUsers(any(List.class))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("first@example.com")
+            .status(Status.CREATED).build(),
+        BatchItemResult.builder().index(1).email("second@example.com")
+            .status(Status.INVALID).errors(Map.of("firstName", "must not be blank")).build()));
+
+    webTestClient.post().uri("/api/v1/users/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(List.of(
+            UserDto.builder().email("first@example.com").build(),
+            UserDto.builder().email("second@example.com").build())))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$[0].status").isEqualTo("CREATED")
+        .jsonPath("$[1].status").isEqualTo("INVALID");
+  }
+
+  @Test
+  void testAddUsersNdjson() {
+    String body = asJsonString(UserDto.builder().email("first@example.com").build()) + "\n"
+        + asJsonString(UserDto.builder().email("second@example.com").build()) + "\n";
+    when(userService.addUsers(any(List.class))).thenAnswer(invocation -> {
+      List<UserDto> userDtos = invocation.getArgument(0);
+      assertEquals(2, userDtos.size());
+      assertEquals("second@example.com", userDtos.get(1).getEmail());
+      return List.of();
+    });
+
+    webTestClient.post().uri("/api/v1/users/batch")
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .bodyValue(body)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().json("[]");
+  }
+
+  @Test
+  void testUpdateUsersFields() {
+    when(userService.updateUsersFields(any(Map.class))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("missing@example.com")
+            .status(Status.NOT_FOUND).build()));
+
+    webTestClient.patch().uri("/api/v1/users/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(Map.of(
+            "missing@example.com", Map.of("First name", "NewFirstName"))))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody().jsonPath("$[0].status").isEqualTo("NOT_FOUND");
+  }
+
+  @Test
+  void testDeleteUsers() {
+    List<String> emails = List.of("test@example.com", "missing@example.com");
+    when(userService.deleteUsers(eq(emails))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("test@example.com")
+            .status(Status.DELETED).build(),
+        BatchItemResult.builder().index(1).email("missing@example.com")
+            .status(Status.NOT_FOUND).build()));
+
+    String body = webTestClient.method(HttpMethod.DELETE)
+        .uri("/api/v1/users/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(asJsonString(emails))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class).returnResult().getResponseBody();
+
+    assertTrue(body.contains("DELETED") && body.contains("NOT_FOUND"));
+  }
+
+  // Utility method to convert object to JSON string
+  @Test
+  void testStreamChanges() {
+    User user = User.builder().email("test@example.com").build();
+    userChangeFeed.onChange(new UserChange(1, UserChange.Type.ADD, "test@example.com", user));
+    userChangeFeed.onChange(new UserChange(2, UserChange.Type.DELETE, "test@example.com", null));
+
+    List<ServerSentEvent<String>> events = webTestClient.get()
+        .uri("/api/v1/users/changes?since=1")
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+        })
+        .getResponseBody().take(1).collectList().block(Duration.ofSeconds(10));
+
+    assertEquals(1, events.size());
+    assertEquals("2", events.get(0).id());
+    assertEquals("delete", events.get(0).event());
+    assertTrue(events.get(0).data().contains("test@example.com"));
+  }
+
+  private static String asJsonString(final Object obj) {
+    try {
+      final ObjectMapper objectMapper = new ObjectMapper();
+      objectMapper.registerModule(new JavaTimeModule());
+      return objectMapper.writeValueAsString(obj);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
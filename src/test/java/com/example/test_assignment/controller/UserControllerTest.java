@@ -1,45 +1,82 @@
 package com.example.test_assignment.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BatchItemResult.Status;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
 import com.example.test_assignment.model.User;
 import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.model.UserPatch;
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit;
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit.Permit;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.OverloadedException;
+import com.example.test_assignment.service.UserChangeFeed;
+import com.example.test_assignment.service.UserChangeFeed.Overflow;
+import com.example.test_assignment.service.UserChangeFeed.Subscription;
 import com.example.test_assignment.service.UserService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
-import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.webjars.NotFoundException;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "user-api.concurrency-limit.enabled=true")
 @AutoConfigureMockMvc(addFilters = false)
 class UserControllerTest {
 
   @Autowired
   private MockMvc mockMvc;
 
-  @Mock
+  @MockBean
   private UserService userService;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private UserChangeFeed userChangeFeed;
+
+  @Autowired
+  @Qualifier("userReadLimit")
+  private AdaptiveConcurrencyLimit userReadLimit;
+
   @BeforeEach
   void setup() {
     MockitoAnnotations.openMocks(this);
@@ -84,7 +121,7 @@ class UserControllerTest {
     update.put("First name", "NewFirstName");
 
     // Mocking the userService.updateUserFields method
-    when(userService.updateUserFields(eq(email), any(Map.class))).thenReturn(
+    when(userService.updateUserFields(eq(email), any(UserPatch.class))).thenReturn(
         User.builder().build());
 
     mockMvc.perform(MockMvcRequestBuilders
@@ -204,6 +241,121 @@ class UserControllerTest {
         .andExpect(MockMvcResultMatchers.status().isBadRequest());
   }
 
+  @Test
+  void testAddUser_Cbor() throws Exception {
+    ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+    UserDto userDto = UserDto.builder()
+        .email("test@example.com")
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(LocalDate.parse("1990-01-01"))
+        .build();
+    when(userService.addUser(eq(userDto))).thenReturn(User.builder()
+        .email("test@example.com")
+        .birthDate(LocalDate.parse("1990-01-01"))
+        .build());
+
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .post("/api/v1/users")
+            .contentType(MediaType.APPLICATION_CBOR)
+            .accept(MediaType.APPLICATION_CBOR)
+            .content(cbor.writeValueAsBytes(userDto)))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    Map<String, Object> user = cbor.readValue(body, new TypeReference<>() {
+    });
+    assertEquals("test@example.com", user.get("Email"));
+    assertEquals("1990-01-01", user.get("Birth date"));
+  }
+
+  @Test
+  void testAddUser_InvalidInputIsRejectedAlikeInEveryFormat() throws Exception {
+    UserDto userDto = UserDto.builder()
+        .email("not an email")
+        .birthDate(LocalDate.now().plusDays(1))
+        .build();
+
+    Map<String, Object> json = invalidUserErrors(MediaType.APPLICATION_JSON,
+        Jackson2ObjectMapperBuilder.json().build(), userDto);
+    Map<String, Object> cbor = invalidUserErrors(MediaType.APPLICATION_CBOR,
+        Jackson2ObjectMapperBuilder.cbor().build(), userDto);
+    Map<String, Object> smile = invalidUserErrors(UserController.APPLICATION_SMILE,
+        Jackson2ObjectMapperBuilder.smile().build(), userDto);
+
+    assertEquals(Set.of("email", "firstName", "lastName", "birthDate"), json.keySet());
+    assertEquals(json, cbor);
+    assertEquals(json, smile);
+  }
+
+  private Map<String, Object> invalidUserErrors(MediaType mediaType, ObjectMapper mapper,
+      UserDto userDto) throws Exception {
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .post("/api/v1/users")
+            .contentType(mediaType)
+            .accept(mediaType)
+            .content(mapper.writeValueAsBytes(userDto)))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest())
+        .andExpect(MockMvcResultMatchers.content().contentType(mediaType))
+        .andReturn().getResponse().getContentAsByteArray();
+    return mapper.convertValue(mapper.readTree(body).get("message"), new TypeReference<>() {
+    });
+  }
+
+  @Test
+  void testErrorsAreCounted() throws Exception {
+    double validation = meterRegistry.counter("user.api.errors", "type", "validation").count();
+    double notFound = meterRegistry.counter("user.api.errors", "type", "not_found").count();
+    doThrow(new NotFoundException("User not found."))
+        .when(userService).deleteUser("nonexistent@example.com");
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .post("/api/v1/users")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(asJsonString(UserDto.builder().build())))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    mockMvc.perform(MockMvcRequestBuilders
+            .delete("/api/v1/users")
+            .param("email", "nonexistent@example.com"))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+    assertEquals(validation + 1,
+        meterRegistry.counter("user.api.errors", "type", "validation").count());
+    assertEquals(notFound + 1,
+        meterRegistry.counter("user.api.errors", "type", "not_found").count());
+  }
+
+  @Test
+  void testReadsBeyondTheLimitAreShed() throws Exception {
+    double overloaded = meterRegistry.counter("user.api.errors", "type", "overloaded").count();
+    // Hold every read permit, as a burst of slow searches would
+    List<Permit> permits = new ArrayList<>();
+    for (Permit permit = userReadLimit.tryAcquire(); permit != null;
+        permit = userReadLimit.tryAcquire()) {
+      permits.add(permit);
+    }
+    try {
+      mockMvc.perform(MockMvcRequestBuilders
+              .get("/api/v1/users")
+              .param("from", "1990-01-01")
+              .param("to", "2000-01-01"))
+          .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+          .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+      // Writes have a limit of their own
+      mockMvc.perform(MockMvcRequestBuilders
+              .delete("/api/v1/users")
+              .param("email", "test@example.com"))
+          .andExpect(MockMvcResultMatchers.status().isOk());
+    } finally {
+      permits.forEach(Permit::releaseIgnoringLatency);
+    }
+
+    assertEquals(overloaded + 1,
+        meterRegistry.counter("user.api.errors", "type", "overloaded").count());
+    assertEquals(0, userReadLimit.inFlight());
+  }
+
   @Test
   void testUpdateUserField_UserNotFound() throws Exception {
     // User with the specified email does not exist
@@ -212,7 +364,7 @@ class UserControllerTest {
     update.put("First name", "NewFirstName");
 
     // Mocking the userService.updateUserFields method to throw an exception
-    when(userService.updateUserFields(eq(email), any(Map.class)))
+    when(userService.updateUserFields(eq(email), any(UserPatch.class)))
         .thenThrow(new NotFoundException("User not found."));
 
     mockMvc.perform(MockMvcRequestBuilders
@@ -223,6 +375,39 @@ class UserControllerTest {
         .andExpect(MockMvcResultMatchers.status().isBadRequest());
   }
 
+  @Test
+  void testUpdateUserField_NotAnObject() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders
+            .patch("/api/v1/users")
+            .param("email", "test@example.com")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"First name\"]"))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+    verify(userService, times(0)).updateUserFields(any(), any(UserPatch.class));
+  }
+
+  @Test
+  void testUpdateUserField_MergePatch() throws Exception {
+    when(userService.updateUserFields(eq("test@example.com"), any(UserPatch.class)))
+        .thenReturn(User.builder().build());
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .patch("/api/v1/users")
+            .param("email", "test@example.com")
+            .contentType("application/merge-patch+json")
+            .content("{\"First name\": \"Jane\"}"))
+        .andExpect(MockMvcResultMatchers.status().isOk());
+    mockMvc.perform(MockMvcRequestBuilders
+            .patch("/api/v1/users")
+            .param("email", "test@example.com")
+            .contentType(MediaType.TEXT_PLAIN)
+            .content("{\"First name\": \"Jane\"}"))
+        .andExpect(MockMvcResultMatchers.status().isUnsupportedMediaType());
+
+    verify(userService, times(1)).updateUserFields(any(), any(UserPatch.class));
+  }
+
   @Test
   void testDeleteUser_UserNotFound() throws Exception {
     // User with the specified email does not exist
@@ -255,4 +440,340 @@ class UserControllerTest {
         .andExpect(MockMvcResultMatchers.content().json("[]"));
   }
 
+  @Test
+  void testSearchUsersByText() throws Exception {
+    when(userService.searchUsersByText(eq("smi"), eq(TextMatch.PREFIX), eq(5))).thenReturn(
+        List.of(User.builder().email("jsmith@example.com").lastName("Smith").build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users/search")
+            .param("q", "smi")
+            .param("match", "PREFIX")
+            .param("limit", "5"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].Email").value("jsmith@example.com"));
+
+    when(userService.searchUsersByText(eq("smith"), eq(TextMatch.SUBSTRING), eq(20))).thenReturn(
+        List.of());
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users/search")
+            .param("q", "smith"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().json("[]"));
+  }
+
+  @Test
+  void testFindUsersByPhoneNumber() throws Exception {
+    when(userService.findUsersByPhoneNumber(eq("+1 555 010 0100"))).thenReturn(
+        List.of(User.builder().email("caller@example.com").phoneNumber("+15550100100").build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users/by-phone")
+            .param("number", "+1 555 010 0100"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].Email").value("caller@example.com"));
+  }
+
+  @Test
+  void testCountUsersByBirthDate() throws Exception {
+    LocalDate from = LocalDate.of(1990, 1, 1);
+    LocalDate to = LocalDate.of(1990, 2, 28);
+    when(userService.countUsersByBirthDate(eq(from), eq(to), eq(Grouping.MONTH))).thenReturn(
+        List.of(
+            BirthDateCount.builder().bucket("1990-01")
+                .from(from).to(LocalDate.of(1990, 1, 31)).count(3).build(),
+            BirthDateCount.builder().bucket("1990-02")
+                .from(LocalDate.of(1990, 2, 1)).to(to).count(0).build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users/birth-date-counts")
+            .param("from", from.toString())
+            .param("to", to.toString())
+            .param("groupBy", "MONTH"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().json("""
+            [{"bucket": "1990-01", "from": "1990-01-01", "to": "1990-01-31", "count": 3},
+             {"bucket": "1990-02", "from": "1990-02-01", "to": "1990-02-28", "count": 0}]"""));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users/birth-date-counts")
+            .param("from", from.toString())
+            .param("to", to.toString())
+            .param("groupBy", "WEEK"))
+        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_NotModified() throws Exception {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+    when(userService.searchUsersByBirthDateRange(eq(from), eq(to))).thenReturn(List.of());
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users")
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"v1\""));
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"v1\"")
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(MockMvcResultMatchers.status().isNotModified())
+        .andExpect(MockMvcResultMatchers.content().string(""));
+
+    // The second request never read the users
+    verify(userService, times(1)).searchUsersByBirthDateRange(from, to);
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_WritesCachedJson() throws Exception {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    User user = User.builder().email("cached@example.com").build();
+    when(userService.searchUsersByBirthDateRange(eq(from), eq(to))).thenReturn(List.of(user));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users")
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].Email").value("cached@example.com"));
+
+    // The response was assembled from the user's kept bytes
+    assertTrue(new String(user.json(cached -> new byte[0])).contains("cached@example.com"));
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_Smile() throws Exception {
+    ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+    when(userService.searchUsersByBirthDateRange(eq(from), eq(to))).thenReturn(List.of(
+        User.builder().email("first@example.com").birthDate(from).build(),
+        User.builder().email("second@example.com").birthDate(to).build()));
+
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users")
+            .accept(UserController.APPLICATION_SMILE)
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().contentType(UserController.APPLICATION_SMILE))
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"v1-smile\""))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    List<User> users = smile.readValue(body, new TypeReference<>() {
+    });
+    assertEquals(2, users.size());
+    assertEquals("first@example.com", users.get(0).getEmail());
+    assertEquals(to, users.get(1).getBirthDate());
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRange_WeightedAccept() throws Exception {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+    when(userService.birthDateRangeVersionTag(eq(from), eq(to))).thenReturn("v1");
+    when(userService.searchUsersByBirthDateRange(eq(from), eq(to))).thenReturn(List.of(
+        User.builder().email("first@example.com").birthDate(from).build()));
+
+    Map<String, MediaType> formats = Map.of(
+        "application/json;q=0.1, application/cbor", MediaType.APPLICATION_CBOR,
+        "application/cbor;q=0.5, application/json", MediaType.APPLICATION_JSON,
+        "*/*;q=0.8, application/x-jackson-smile", UserController.APPLICATION_SMILE,
+        "application/cbor, application/json", MediaType.APPLICATION_CBOR,
+        "application/cbor;q=0, */*", MediaType.APPLICATION_JSON);
+    for (Map.Entry<String, MediaType> format : formats.entrySet()) {
+      String eTag = "\"v1" + (format.getValue().equals(MediaType.APPLICATION_JSON) ? ""
+          : "-" + UserController.binaryRepresentation(format.getValue())) + "\"";
+      MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+              .get("/api/v1/users")
+              .header(HttpHeaders.ACCEPT, format.getKey())
+              .param("from", from.toString())
+              .param("to", to.toString()))
+          .andExpect(MockMvcResultMatchers.status().isOk())
+          .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, eTag))
+          .andReturn();
+      assertEquals(format.getValue(),
+          MediaType.valueOf(result.getResponse().getContentType()), format.getKey());
+    }
+  }
+
+  @Test
+  void testStreamUsersByBirthDateRange() throws Exception {
+    LocalDate from = LocalDate.now().minusDays(30);
+    LocalDate to = LocalDate.now();
+
+    // Mocking the userService.streamUsersByBirthDateRange method
+    when(userService.streamUsersByBirthDateRange(eq(from), eq(to))).thenReturn(Stream.of(
+        User.builder().email("first@example.com").build(),
+        User.builder().email("second@example.com").build()));
+
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .param("from", from.toString())
+            .param("to", to.toString()))
+        .andExpect(MockMvcResultMatchers.request().asyncStarted())
+        .andReturn();
+
+    String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn().getResponse().getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].contains("first@example.com"));
+    assertTrue(lines[1].contains("second@example.com"));
+  }
+
+  @Test
+  void testStreamChanges() throws Exception {
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+            .get("/api/v1/users/changes")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(MockMvcResultMatchers.request().asyncStarted())
+        .andReturn();
+
+    User user = User.builder().email("test@example.com").build();
+    userChangeFeed.onChange(new UserChange(1, UserChange.Type.ADD, "test@example.com", user));
+
+    // Events are sent by one of the change feed senders
+    long deadline = System.currentTimeMillis() + 10_000;
+    String body;
+    while (!(body = result.getResponse().getContentAsString()).endsWith("\n\n")) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the event");
+      Thread.sleep(10);
+    }
+    assertTrue(body.startsWith("id:1\nevent:add\ndata:"));
+    assertTrue(body.contains("test@example.com"));
+  }
+
+  @Test
+  void testStreamChangesBeyondTheSubscriberLimitIsShed() throws Exception {
+    List<Subscription> subscriptions = new ArrayList<>();
+    try {
+      while (true) {
+        subscriptions.add(userChangeFeed.subscribe(null, Overflow.DROP));
+      }
+    } catch (OverloadedException e) {
+      // The feed is full
+    }
+
+    try {
+      mockMvc.perform(MockMvcRequestBuilders
+              .get("/api/v1/users/changes")
+              .accept(MediaType.TEXT_EVENT_STREAM))
+          .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+          .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "5"));
+    } finally {
+      subscriptions.forEach(Subscription::close);
+    }
+  }
+
+  @Test
+  void testAddUsers() throws Exception {
+    List<UserDto> userDtos = List.of(
+        UserDto.builder().email("first@example.com").build(),
+        UserDto.builder().email("second@example.com").build());
+
+    // Mocking the userService.addUsers method
+    when(userService.addUsers(any(List.class))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("first@example.com")
+            .status(Status.CREATED).build(),
+        BatchItemResult.builder().index(1).email("second@example.com")
+            .status(Status.INVALID).errors(Map.of("firstName", "must not be blank")).build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .post("/api/v1/users/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(asJsonString(userDtos)))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("CREATED"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("INVALID"));
+  }
+
+  @Test
+  void testAddUsersCbor() throws Exception {
+    ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+    List<UserDto> userDtos = List.of(
+        UserDto.builder().email("first@example.com").build(),
+        UserDto.builder().email("second@example.com").build());
+    when(userService.addUsers(eq(userDtos))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("first@example.com")
+            .status(Status.CREATED).build(),
+        BatchItemResult.builder().index(1).email("second@example.com")
+            .status(Status.CREATED).build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .post("/api/v1/users/batch")
+            .contentType(MediaType.APPLICATION_CBOR)
+            .content(cbor.writeValueAsBytes(userDtos)))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("CREATED"));
+  }
+
+  @Test
+  void testAddUsersNdjson() throws Exception {
+    String body = asJsonString(UserDto.builder().email("first@example.com").build()) + "\n"
+        + asJsonString(UserDto.builder().email("second@example.com").build()) + "\n";
+
+    // Mocking the userService.addUsers method
+    when(userService.addUsers(any(List.class))).thenAnswer(invocation -> {
+      List<UserDto> userDtos = invocation.getArgument(0);
+      assertEquals(2, userDtos.size());
+      assertEquals("second@example.com", userDtos.get(1).getEmail());
+      return List.of();
+    });
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .post("/api/v1/users/batch")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(body))
+        .andExpect(MockMvcResultMatchers.status().isOk());
+  }
+
+  @Test
+  void testUpdateUsersFields() throws Exception {
+    Map<String, Map<String, Object>> updates = Map.of(
+        "missing@example.com", Map.of("First name", "NewFirstName"));
+
+    // Mocking the userService.updateUsersFields method
+    when(userService.updateUsersFields(any(Map.class))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("missing@example.com")
+            .status(Status.NOT_FOUND).build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .patch("/api/v1/users/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(asJsonString(updates)))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("NOT_FOUND"));
+  }
+
+  @Test
+  void testDeleteUsers() throws Exception {
+    List<String> emails = List.of("test@example.com", "missing@example.com");
+
+    // Mocking the userService.deleteUsers method
+    when(userService.deleteUsers(eq(emails))).thenReturn(List.of(
+        BatchItemResult.builder().index(0).email("test@example.com")
+            .status(Status.DELETED).build(),
+        BatchItemResult.builder().index(1).email("missing@example.com")
+            .status(Status.NOT_FOUND).build()));
+
+    mockMvc.perform(MockMvcRequestBuilders
+            .delete("/api/v1/users/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(asJsonString(emails)))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("DELETED"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("NOT_FOUND"));
+  }
+
 }
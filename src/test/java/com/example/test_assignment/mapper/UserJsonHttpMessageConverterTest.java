@@ -0,0 +1,100 @@
+package com.example.test_assignment.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+@SpringBootTest
+class UserJsonHttpMessageConverterTest {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Test
+  void testWritesSameJsonAsJackson() throws Exception {
+    UserJsonHttpMessageConverter converter = new UserJsonHttpMessageConverter(objectMapper, true);
+    List<User> users = Arrays.asList(user("first@example.com"), null,
+        User.builder().email("sparse@example.com").build());
+
+    assertEquals(objectMapper.writeValueAsString(users), write(converter, users));
+    assertEquals(objectMapper.writeValueAsString(List.of()), write(converter, List.of()));
+    assertEquals(objectMapper.writeValueAsString(users.get(0)), write(converter, users.get(0)));
+  }
+
+  @Test
+  void testBytesAreKeptUntilUserIsCopied() {
+    UserJsonHttpMessageConverter converter = new UserJsonHttpMessageConverter(objectMapper, true);
+    User user = user("test@example.com");
+
+    byte[] json = converter.toJson(user);
+    assertSame(json, converter.toJson(user));
+
+    User modified = user.toBuilder().firstName("Jane").build();
+    byte[] modifiedJson = converter.toJson(modified);
+    assertNotSame(json, modifiedJson);
+    assertTrue(new String(modifiedJson).contains("\"First name\":\"Jane\""));
+    // The cached bytes are not part of a user's identity
+    assertEquals(user, user.toBuilder().build());
+  }
+
+  @Test
+  void testWithoutCachingEncodesEachTime() {
+    UserJsonHttpMessageConverter converter = new UserJsonHttpMessageConverter(objectMapper, false);
+    User user = user("test@example.com");
+
+    byte[] json = converter.toJson(user);
+
+    assertNotSame(json, converter.toJson(user));
+    assertArrayEquals(json, converter.toJson(user));
+  }
+
+  @Test
+  void testOnlyWritesUsers() {
+    UserJsonHttpMessageConverter converter = new UserJsonHttpMessageConverter(objectMapper, true);
+
+    assertTrue(converter.canWrite(
+        new ParameterizedTypeReference<List<User>>() { }.getType(), List.class,
+        MediaType.APPLICATION_JSON));
+    assertTrue(converter.canWrite(User.class, User.class, null));
+    assertFalse(converter.canWrite(
+        new ParameterizedTypeReference<List<BatchItemResult>>() { }.getType(), List.class,
+        MediaType.APPLICATION_JSON));
+    assertFalse(converter.canWrite(User.class, User.class, MediaType.APPLICATION_XML));
+    assertFalse(converter.canRead(User.class, User.class, MediaType.APPLICATION_JSON));
+  }
+
+  private static String write(UserJsonHttpMessageConverter converter, Object value)
+      throws Exception {
+    MockHttpOutputMessage message = new MockHttpOutputMessage();
+    converter.write(value, null, MediaType.APPLICATION_JSON, message);
+    return message.getBodyAsString();
+  }
+
+  private static User user(String email) {
+    return User.builder()
+        .email(email)
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(LocalDate.parse("1990-01-01"))
+        .address("123 Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+  }
+
+}
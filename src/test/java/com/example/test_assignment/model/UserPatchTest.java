@@ -0,0 +1,91 @@
+package com.example.test_assignment.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class UserPatchTest {
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  @Test
+  void testParseAndApply() throws IOException {
+    UserPatch patch = parse("""
+        {"First name": "Jane", "Birth date": "1995-05-05", "Address": null}""");
+    User.UserBuilder builder = User.builder()
+        .email("test@example.com")
+        .firstName("John")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .address("123 Main St");
+
+    patch.applyTo(builder);
+    User user = builder.build();
+
+    assertTrue(patch.errors().isEmpty());
+    assertEquals("test@example.com", user.getEmail());
+    assertEquals("Jane", user.getFirstName());
+    assertEquals(LocalDate.of(1995, 5, 5), user.getBirthDate());
+    assertNull(user.getAddress());
+  }
+
+  @Test
+  void testCollectsAllErrors() throws IOException {
+    UserPatch patch = parse("""
+        {"First name": 42, "Birth date": "yesterday", "Nickname": {"a": [1, 2]},
+         "Last name": "Doe"}""");
+    User.UserBuilder builder = User.builder();
+
+    patch.applyTo(builder);
+    User user = builder.build();
+
+    assertEquals(Map.of(
+        "First name", "must be a string",
+        "Birth date", "must be a date in the format yyyy-MM-dd",
+        "Nickname", "Field Nickname not found"), patch.errors());
+    // Only the valid field is part of the patch
+    assertEquals("Doe", user.getLastName());
+    assertNull(user.getFirstName());
+  }
+
+  @Test
+  void testOfMapMatchesParse() throws IOException {
+    Map<String, Object> update = new HashMap<>();
+    update.put("Email", "new@example.com");
+    update.put("Phone number", "123");
+    update.put("Unknown", "x");
+    User.UserBuilder fromMap = User.builder();
+    User.UserBuilder parsed = User.builder();
+    UserPatch mapPatch = UserPatch.of(update);
+    UserPatch jsonPatch = parse("""
+        {"Email": "new@example.com", "Phone number": "123", "Unknown": "x"}""");
+
+    mapPatch.applyTo(fromMap);
+    jsonPatch.applyTo(parsed);
+
+    assertEquals(parsed.build(), fromMap.build());
+    assertEquals(jsonPatch.errors(), mapPatch.errors());
+  }
+
+  @Test
+  void testRejectsNonObjects() {
+    assertThrows(JsonParseException.class, () -> parse("[\"Email\"]"));
+    assertThrows(JsonParseException.class, () -> parse("{\"Email\": \"a@b.c\""));
+  }
+
+  private UserPatch parse(String json) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(json)) {
+      return UserPatch.parse(parser);
+    }
+  }
+
+}
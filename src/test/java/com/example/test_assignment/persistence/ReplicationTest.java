@@ -0,0 +1,198 @@
+package com.example.test_assignment.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.ReplicaRole;
+import com.example.test_assignment.service.ReplicaUnavailableException;
+import com.example.test_assignment.service.UserChange;
+import com.example.test_assignment.service.UserChange.Type;
+import com.example.test_assignment.service.UserChangeListener;
+import com.example.test_assignment.service.UserService;
+import jakarta.validation.Validation;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ReplicationTest {
+
+  private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+
+  private static final LocalDate TO = LocalDate.of(1991, 1, 1);
+
+  private final UserService leaderService = userService(ReplicaRole.LEADER);
+
+  private ReplicationLeader leader;
+
+  private ReplicationFollower follower;
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (follower != null) {
+      follower.close();
+    }
+    if (leader != null) {
+      leader.close();
+    }
+  }
+
+  @Test
+  void testFollowerAppliesLeaderChangesAndResumes() throws Exception {
+    startLeader(1_000);
+    for (int i = 0; i < 50; i++) {
+      leaderService.addUser(userDto(i));
+    }
+    FollowerStatus status = new FollowerStatus("leader", Duration.ofSeconds(5));
+    UserService followerService = userService(status);
+    startFollower(followerService, status);
+
+    await(() -> followerService.currentSequence() == 50);
+    assertEquals(50, followerService.searchUsersByBirthDateRange(FROM, TO).size());
+
+    leaderService.updateUserFields("user0@example.com", Map.of("Email", "moved@example.com"));
+    leaderService.deleteUser("user1@example.com");
+    await(() -> followerService.currentSequence() == 52);
+    assertEquals(emails(leaderService), emails(followerService));
+    assertThrows(ReplicaUnavailableException.class, () -> followerService.addUser(userDto(99)));
+
+    // A reconnecting follower only gets what it missed
+    follower.close();
+    leaderService.addUser(userDto(50));
+    startFollower(followerService, status);
+    await(() -> followerService.currentSequence() == 53);
+    assertEquals(emails(leaderService), emails(followerService));
+  }
+
+  @Test
+  void testFollowerBeyondTheBacklogCopiesTheStore() throws Exception {
+    startLeader(10);
+    FollowerStatus status = new FollowerStatus("leader", Duration.ofSeconds(5));
+    UserService followerService = userService(status);
+    // Left over from an earlier leader
+    followerService.applyChange(new UserChange(1, Type.ADD, "stale@example.com",
+        User.builder().email("stale@example.com").birthDate(FROM).build()));
+    for (int i = 0; i < 30; i++) {
+      leaderService.addUser(userDto(i));
+    }
+
+    startFollower(followerService, status);
+
+    await(() -> emails(followerService).equals(emails(leaderService)));
+    assertEquals(30, followerService.currentSequence());
+  }
+
+  @Test
+  void testFollowerOfARestartedLeaderTakesItsSequence() throws Exception {
+    startLeader(1_000);
+    for (int i = 0; i < 50; i++) {
+      leaderService.addUser(userDto(i));
+    }
+    FollowerStatus status = new FollowerStatus("leader", Duration.ofSeconds(5));
+    UserService followerService = userService(status);
+    startFollower(followerService, status);
+    await(() -> followerService.currentSequence() == 50);
+
+    // The leader starts over with fewer changes than the follower has seen
+    follower.close();
+    leader.close();
+    UserService restartedService = userService(ReplicaRole.LEADER);
+    for (int i = 100; i < 110; i++) {
+      restartedService.addUser(userDto(i));
+    }
+    startLeader(restartedService, 1_000);
+    startFollower(followerService, status);
+    await(() -> emails(followerService).equals(emails(restartedService)));
+    assertEquals(10, followerService.currentSequence());
+
+    // Once the leader is past the old sequence, resuming must not skip what lies in between
+    follower.close();
+    for (int i = 110; i < 170; i++) {
+      restartedService.addUser(userDto(i));
+    }
+    startFollower(followerService, status);
+    await(() -> followerService.currentSequence() == 70);
+    assertEquals(emails(restartedService), emails(followerService));
+  }
+
+  @Test
+  void testFollowerRefusesStaleReads() throws Exception {
+    startLeader(1_000);
+    leaderService.addUser(userDto(0));
+    FollowerStatus status = new FollowerStatus("leader", Duration.ofMillis(300));
+    UserService followerService = userService(status);
+    assertThrows(ReplicaUnavailableException.class,
+        () -> followerService.searchUsersByBirthDateRange(FROM, TO));
+    assertThrows(ReplicaUnavailableException.class,
+        () -> followerService.birthDateRangeVersionTag(FROM, TO));
+    startFollower(followerService, status);
+    await(() -> status.stalenessMillis() < 300);
+    assertEquals(1, followerService.searchUsersByBirthDateRange(FROM, TO).size());
+
+    leader.close();
+
+    await(() -> status.stalenessMillis() > 300);
+    assertThrows(ReplicaUnavailableException.class,
+        () -> followerService.searchUsersByBirthDateRange(FROM, TO));
+    // A conditional request must not get a 304 from the stale follower either
+    assertThrows(ReplicaUnavailableException.class,
+        () -> followerService.birthDateRangeVersionTag(FROM, TO));
+  }
+
+  private void startLeader(int backlog) throws IOException {
+    startLeader(leaderService, backlog);
+  }
+
+  private void startLeader(UserService service, int backlog) throws IOException {
+    ReplicationLog replicationLog = new ReplicationLog(backlog, 1_000);
+    ReflectionTestUtils.setField(service, "changeListeners",
+        List.<UserChangeListener>of(replicationLog));
+    leader = new ReplicationLeader(service, replicationLog, 0, Duration.ofMillis(20));
+    leader.start();
+  }
+
+  private void startFollower(UserService followerService, FollowerStatus status) {
+    follower = new ReplicationFollower(followerService, status, "localhost", leader.getPort(),
+        Duration.ofMillis(50));
+    follower.start();
+  }
+
+  private static UserService userService(ReplicaRole role) {
+    UserService userService = new UserService();
+    ReflectionTestUtils.setField(userService, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(userService, "replicaRole", role);
+    return userService;
+  }
+
+  private static List<String> emails(UserService userService) {
+    return userService.streamAllUsers().map(User::getEmail).sorted().toList();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Timed out waiting for the follower");
+      Thread.sleep(10);
+    }
+  }
+
+  private static UserDto userDto(int i) {
+    return UserDto.builder()
+        .email("user" + i + "@example.com")
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(FROM.plusDays(i))
+        .build();
+  }
+
+}
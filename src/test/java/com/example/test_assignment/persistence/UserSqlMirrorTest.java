@@ -0,0 +1,117 @@
+package com.example.test_assignment.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.UserChangeListener;
+import com.example.test_assignment.service.UserService;
+import jakarta.validation.Validation;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class UserSqlMirrorTest {
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void testMirrorsTheLatestStateOfEachUser() throws Exception {
+    // Nothing is flushed before close, so every change coalesces
+    UserSqlMirror mirror = mirror(Duration.ofMinutes(1));
+    UserService userService = userService(mirror);
+    for (int i = 0; i < 10; i++) {
+      userService.addUser(userDto(i));
+    }
+    for (int i = 0; i < 50; i++) {
+      userService.updateUserFields("user0@example.com", Map.of("First name", "Name" + i));
+    }
+    userService.updateUserFields("user1@example.com", Map.of("Email", "moved@example.com"));
+    userService.deleteUser("user2@example.com");
+    mirror.close();
+
+    Map<String, String> firstNames = firstNames();
+    assertEquals(9, firstNames.size());
+    assertEquals("Name49", firstNames.get("user0@example.com"));
+    assertTrue(firstNames.containsKey("moved@example.com"));
+    // 62 changes, one row each for the 10 original emails and the new one
+    assertEquals(11, mirror.flushedRows());
+  }
+
+  @Test
+  void testWarmStartLoadsTheStoreAndItsSequence() throws Exception {
+    UserSqlMirror mirror = mirror(Duration.ofMillis(10));
+    UserService userService = userService(mirror);
+    for (int i = 0; i < 3; i++) {
+      userService.addUser(userDto(i));
+    }
+    assertTrue(mirror.awaitFlushed(3));
+    mirror.close();
+
+    UserSqlMirror restarted = mirror(Duration.ofMillis(10));
+    UserService warmed = userService(restarted);
+    assertEquals(3, restarted.load(warmed));
+    warmed.deleteUser("user1@example.com");
+    assertTrue(restarted.awaitFlushed(4));
+    restarted.close();
+
+    assertEquals(List.of("user0@example.com", "user2@example.com"),
+        warmed.streamAllUsers().map(User::getEmail).sorted().toList());
+    assertEquals(4, warmed.currentSequence());
+    assertEquals(2, firstNames().size());
+  }
+
+  private UserSqlMirror mirror(Duration flushInterval) throws SQLException {
+    UserSqlMirror mirror = new UserSqlMirror(url(), flushInterval, 1_000, 100_000);
+    mirror.start();
+    return mirror;
+  }
+
+  private Map<String, String> firstNames() throws SQLException {
+    Map<String, String> firstNames = new HashMap<>();
+    try (Connection connection = DriverManager.getConnection(url());
+        Statement statement = connection.createStatement();
+        ResultSet rows = statement.executeQuery("SELECT email, first_name FROM users")) {
+      while (rows.next()) {
+        firstNames.put(rows.getString(1), rows.getString(2));
+      }
+    }
+    return firstNames;
+  }
+
+  private String url() {
+    return "jdbc:h2:file:" + directory.resolve("users").toAbsolutePath();
+  }
+
+  private static UserService userService(UserSqlMirror mirror) {
+    UserService userService = new UserService();
+    ReflectionTestUtils.setField(userService, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(userService, "changeListeners",
+        List.<UserChangeListener>of(mirror));
+    return userService;
+  }
+
+  private static UserDto userDto(int i) {
+    return UserDto.builder()
+        .email("user" + i + "@example.com")
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(LocalDate.of(1990, 1, 1).plusDays(i))
+        .build();
+  }
+
+}
@@ -0,0 +1,202 @@
+package com.example.test_assignment.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserDto;
+import com.example.test_assignment.service.UserChangeListener;
+import com.example.test_assignment.service.UserService;
+import jakarta.validation.Validation;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class UserStorePersistenceTest {
+
+  @TempDir
+  private Path directory;
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  void testRecoverFromChangeLog(FsyncPolicy fsyncPolicy) throws IOException {
+    Store store = open(fsyncPolicy);
+    store.userService.addUser(userDto("first@example.com", LocalDate.of(1990, 1, 1)));
+    store.userService.addUser(userDto("second@example.com", LocalDate.of(1991, 1, 1)));
+    store.userService.addUser(userDto("third@example.com", LocalDate.of(1992, 1, 1)));
+    store.userService.updateUserFields("first@example.com",
+        Map.of("Email", "moved@example.com", "Birth date", "1995-01-01"));
+    store.userService.updateUser(userDto("second@example.com", LocalDate.of(1996, 1, 1)));
+    store.userService.deleteUser("third@example.com");
+    store.persistence.close();
+
+    Store recovered = open(fsyncPolicy);
+
+    assertEquals(2, recovered.persistence.getRecoveredUsers());
+    assertEquals(6, recovered.userService.currentSequence());
+    assertEquals(List.of("moved@example.com", "second@example.com"), recovered.userService
+        .searchUsersByBirthDateRange(LocalDate.of(1995, 1, 1), LocalDate.of(1996, 1, 1))
+        .stream().map(User::getEmail).sorted().toList());
+    assertNull(find(recovered, "third@example.com"));
+    recovered.persistence.close();
+  }
+
+  @Test
+  void testRecoverFromSnapshotAndTail() throws IOException {
+    Store store = open(FsyncPolicy.ALWAYS);
+    for (int i = 0; i < 100; i++) {
+      store.userService.addUser(userDto(String.format("user%d@example.com", i),
+          LocalDate.of(1990, 1, 1)));
+    }
+    store.persistence.snapshot();
+    store.userService.deleteUser("user0@example.com");
+    store.userService.addUser(userDto("late@example.com", LocalDate.of(1990, 1, 1)));
+    store.persistence.close();
+
+    // Only the segment after the snapshot is left
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(2, files.count());
+    }
+
+    Store recovered = open(FsyncPolicy.ALWAYS);
+
+    assertEquals(100, recovered.persistence.getRecoveredUsers());
+    assertEquals(102, recovered.userService.currentSequence());
+    assertNull(find(recovered, "user0@example.com"));
+    assertEquals("late@example.com", find(recovered, "late@example.com").getEmail());
+    recovered.persistence.close();
+  }
+
+  @Test
+  void testRecoverTruncatesTornTail() throws IOException {
+    Store store = open(FsyncPolicy.ALWAYS);
+    store.userService.addUser(userDto("first@example.com", LocalDate.of(1990, 1, 1)));
+    store.persistence.close();
+
+    // A crash in the middle of a write leaves a partial record behind
+    Path segment;
+    try (Stream<Path> files = Files.list(directory)) {
+      segment = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+    }
+    long intactSize = Files.size(segment);
+    Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    Store recovered = open(FsyncPolicy.ALWAYS);
+    recovered.userService.addUser(userDto("second@example.com", LocalDate.of(1990, 1, 1)));
+    recovered.persistence.close();
+
+    assertEquals(intactSize, Files.size(segment));
+    Store again = open(FsyncPolicy.ALWAYS);
+    assertEquals(2, again.persistence.getRecoveredUsers());
+    again.persistence.close();
+  }
+
+  @Test
+  void testConcurrentWritesAreAllRecovered() throws Exception {
+    Store store = open(FsyncPolicy.ALWAYS);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 16; thread++) {
+        int id = thread;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 50; i++) {
+            store.userService.addUser(userDto(String.format("user%d-%d@example.com", id, i),
+                LocalDate.of(1990, 1, 1)));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    store.persistence.close();
+
+    Store recovered = open(FsyncPolicy.ALWAYS);
+    assertEquals(800, recovered.persistence.getRecoveredUsers());
+    assertEquals(800, recovered.userService.currentSequence());
+    recovered.persistence.close();
+  }
+
+  @Test
+  void testSegmentsRotateBySizeAndReplayWindowByWindow() throws IOException {
+    Store store = open(FsyncPolicy.ALWAYS, 1024, 1024);
+    for (int i = 0; i < 200; i++) {
+      store.userService.addUser(userDto(String.format("user%d@example.com", i),
+          LocalDate.of(1990, 1, 1)));
+    }
+    store.persistence.close();
+
+    // No snapshot was taken, yet the log is split
+    try (Stream<Path> files = Files.list(directory)) {
+      assertTrue(files.count() > 10);
+    }
+
+    // Records straddle the windows, and the first window is narrower than a record
+    Store recovered = open(FsyncPolicy.ALWAYS, 1024, 50);
+    assertEquals(200, recovered.persistence.getRecoveredUsers());
+    assertEquals(200, recovered.userService.currentSequence());
+    recovered.persistence.close();
+  }
+
+  private record Store(UserService userService, UserStorePersistence persistence) {
+
+  }
+
+  private Store open(FsyncPolicy fsyncPolicy) throws IOException {
+    return open(fsyncPolicy, 64 * 1024 * 1024, 64 * 1024 * 1024);
+  }
+
+  private Store open(FsyncPolicy fsyncPolicy, long segmentSize, int replayWindow)
+      throws IOException {
+    UserService userService = new UserService();
+    UserChangeLog changeLog = new UserChangeLog(directory, fsyncPolicy, Duration.ofMillis(5),
+        segmentSize);
+    changeLog.replayWindow = replayWindow;
+    ReflectionTestUtils.setField(userService, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    ReflectionTestUtils.setField(userService, "changeListeners",
+        List.<UserChangeListener>of(changeLog));
+    UserStorePersistence persistence = new UserStorePersistence(userService, changeLog,
+        new UserSnapshots(directory), Duration.ZERO);
+    persistence.recover();
+    return new Store(userService, persistence);
+  }
+
+  private static User find(Store store, String email) {
+    return store.userService.streamAllUsers()
+        .filter(user -> user.getEmail().equals(email))
+        .findFirst()
+        .orElse(null);
+  }
+
+  private static UserDto userDto(String email, LocalDate birthDate) {
+    return UserDto.builder()
+        .email(email)
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(birthDate)
+        .address("123 Main St")
+        .phoneNumber("123-456-7890")
+        .build();
+  }
+
+}
@@ -0,0 +1,133 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.service.AdaptiveConcurrencyLimit.Permit;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void testRejectsRequestsBeyondTheLimit() {
+    AdaptiveConcurrencyLimit limit = limit(3);
+    run(limit, 2, 1);
+    List<Permit> permits = acquire(limit, 3);
+
+    assertNull(limit.tryAcquire());
+    OverloadedException ex = assertThrows(OverloadedException.class,
+        () -> limit.acquire(Duration.ofSeconds(2)));
+    assertEquals(Duration.ofSeconds(2), ex.getRetryAfter());
+    assertEquals(2, limit.rejected());
+
+    permits.get(0).release();
+    assertNotNull(limit.tryAcquire());
+    assertEquals(3, limit.inFlight());
+  }
+
+  @Test
+  void testNoLoadLatencyIsProbedByLoweringTheLimitBriefly() {
+    AdaptiveConcurrencyLimit limit = limit(50);
+    assertEquals(50, limit.limit());
+    run(limit, 2, 1);
+    assertEquals(50, limit.limit());
+
+    // Slower by more than the tolerance: the limit drops
+    run(limit, 50, 4);
+    int slowed = limit.limit();
+    assertTrue(slowed < 40, "limit " + slowed);
+
+    // Until the next probe finds this is the latency without load
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    List<Integer> limits = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      run(limit, 50, 4);
+      limits.add(limit.limit());
+    }
+    // Lowered a quarter at a time while latency fell, then restored and free to grow again
+    int restored = limits.get(2);
+    assertTrue(limits.get(0) < restored && limits.get(1) < limits.get(0), "limits " + limits);
+    assertTrue(limits.get(1) >= restored / 2, "limits " + limits);
+    assertTrue(limits.get(3) > restored, "limits " + limits);
+  }
+
+  @Test
+  void testLimitGrowsWhileLatencyHolds() {
+    AdaptiveConcurrencyLimit limit = limit(10);
+    for (int i = 0; i < 20; i++) {
+      run(limit, limit.limit(), 1);
+    }
+
+    assertTrue(limit.limit() > 15, "limit " + limit.limit());
+  }
+
+  @Test
+  void testLimitShrinksWhenLatencyRisesAndRecovers() {
+    AdaptiveConcurrencyLimit limit = limit(50);
+    for (int i = 0; i < 10; i++) {
+      run(limit, limit.limit(), 1);
+    }
+    int before = limit.limit();
+
+    for (int i = 0; i < 20; i++) {
+      run(limit, limit.limit(), 20);
+    }
+    int overloaded = limit.limit();
+    assertTrue(overloaded < before / 2, before + " -> " + overloaded);
+    assertTrue(overloaded >= 2);
+
+    for (int i = 0; i < 30; i++) {
+      run(limit, limit.limit(), 1);
+    }
+    assertTrue(limit.limit() > overloaded, overloaded + " -> " + limit.limit());
+  }
+
+  @Test
+  void testLimitDoesNotGrowWhileMostlyUnused() {
+    AdaptiveConcurrencyLimit limit = limit(20);
+    for (int i = 0; i < 20; i++) {
+      run(limit, 2, 1);
+    }
+
+    assertEquals(20, limit.limit());
+  }
+
+  private AdaptiveConcurrencyLimit limit(int initial) {
+    return new AdaptiveConcurrencyLimit("tests", initial, 2, 200, 2.0, Duration.ofMillis(10),
+        Duration.ofSeconds(10), clock::get);
+  }
+
+  private static List<Permit> acquire(AdaptiveConcurrencyLimit limit, int count) {
+    List<Permit> permits = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      permits.add(limit.tryAcquire());
+    }
+    return permits;
+  }
+
+  /**
+   * Runs one window of batches of up to {@code concurrency} requests, as many as the limit admits,
+   * taking {@code latencyMillis} each.
+   */
+  private void run(AdaptiveConcurrencyLimit limit, int concurrency, long latencyMillis) {
+    long end = clock.get() + TimeUnit.MILLISECONDS.toNanos(10);
+    int samples = 0;
+    while (clock.get() < end || samples < 10) {
+      List<Permit> permits = acquire(limit, Math.min(concurrency, limit.limit()));
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+      permits.forEach(Permit::release);
+      samples += permits.size();
+    }
+  }
+
+}
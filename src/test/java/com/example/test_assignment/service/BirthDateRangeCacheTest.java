@@ -0,0 +1,132 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BirthDateRangeCacheTest {
+
+  private static final LocalDate JAN_1 = LocalDate.of(1990, 1, 1);
+
+  private final AtomicInteger queries = new AtomicInteger();
+
+  @Test
+  void testHitsAndMisses() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(100);
+
+    List<User> first = cache.get(JAN_1, JAN_1.plusDays(9), users(3));
+    List<User> second = cache.get(JAN_1, JAN_1.plusDays(9), users(3));
+    cache.get(JAN_1, JAN_1.plusDays(10), users(3));
+
+    assertSame(first, second);
+    assertEquals(2, queries.get());
+    assertEquals(1, cache.hitCount());
+    assertEquals(2, cache.missCount());
+    assertEquals(2, cache.size());
+    assertEquals(6, cache.cachedUsers());
+  }
+
+  @Test
+  void testInvalidateOnlyDropsContainingRanges() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(100);
+    cache.get(JAN_1, JAN_1.plusDays(9), users(1));
+    cache.get(JAN_1.plusDays(5), JAN_1.plusDays(14), users(1));
+    cache.get(JAN_1.plusDays(20), JAN_1.plusDays(29), users(1));
+
+    cache.invalidate(JAN_1.plusDays(9));
+    cache.invalidate(null);
+
+    assertEquals(2, cache.invalidationCount());
+    assertEquals(1, cache.size());
+    cache.get(JAN_1.plusDays(20), JAN_1.plusDays(29), users(1));
+    assertEquals(1, cache.hitCount());
+  }
+
+  @Test
+  void testEvictsLeastRecentlyUsedByCachedUsers() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(10);
+    cache.get(JAN_1, JAN_1, users(4));
+    cache.get(JAN_1.plusDays(1), JAN_1.plusDays(1), users(4));
+    // Touch the first range so the second one is the eldest
+    cache.get(JAN_1, JAN_1, users(4));
+
+    cache.get(JAN_1.plusDays(2), JAN_1.plusDays(2), users(4));
+    // Larger than the whole bound, never cached
+    cache.get(JAN_1.plusDays(3), JAN_1.plusDays(3), users(11));
+
+    assertEquals(1, cache.evictionCount());
+    assertEquals(2, cache.putCount() - cache.evictionCount());
+    assertEquals(8, cache.cachedUsers());
+    cache.get(JAN_1, JAN_1, users(4));
+    assertEquals(2, cache.hitCount());
+  }
+
+  @Test
+  void testResultRacingWithInvalidationIsNotCached() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(100);
+
+    // A write inside the range lands while the query scans the store
+    cache.get(JAN_1, JAN_1.plusDays(9), () -> {
+      cache.invalidate(JAN_1.plusDays(5));
+      return users(1).get();
+    });
+    // A write outside the range does not matter
+    cache.get(JAN_1.plusDays(20), JAN_1.plusDays(29), () -> {
+      cache.invalidate(JAN_1.plusDays(5));
+      return users(1).get();
+    });
+
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.putCount());
+  }
+
+  @Test
+  void testDisabledWithZeroBound() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(0);
+
+    cache.get(JAN_1, JAN_1, users(1));
+    cache.get(JAN_1, JAN_1, users(1));
+
+    assertEquals(2, queries.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testEmptyResultsAreBoundedToo() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(10);
+    for (int i = 0; i < 1_000; i++) {
+      cache.get(JAN_1.plusDays(i), JAN_1.plusDays(i), users(0));
+    }
+
+    assertEquals(10, cache.size());
+    assertEquals(0, cache.cachedUsers());
+    assertEquals(990, cache.evictionCount());
+  }
+
+  @Test
+  void testZeroMaxUsersCachesNothing() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(0);
+    cache.get(JAN_1, JAN_1, users(0));
+    cache.get(JAN_1, JAN_1, users(0));
+
+    assertEquals(2, queries.get());
+    assertEquals(0, cache.size());
+  }
+
+  private Supplier<List<User>> users(int count) {
+    return () -> {
+      queries.incrementAndGet();
+      return IntStream.range(0, count)
+          .mapToObj(i -> User.builder().email("user" + i + "@example.com").build())
+          .toList();
+    };
+  }
+
+}
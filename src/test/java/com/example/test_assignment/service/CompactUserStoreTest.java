@@ -0,0 +1,182 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class CompactUserStoreTest {
+
+  private final CompactUserStore store = new CompactUserStore();
+
+  @Test
+  void testInsertAndFind() {
+    User user = user(1);
+
+    assertTrue(store.insert(user));
+    assertFalse(store.insert(user(1)));
+
+    assertEquals(user, store.find("user1@example.com"));
+    assertNull(store.find("missing@example.com"));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void testNullFieldsRoundTrip() {
+    User user = User.builder().email("sparse@example.com").build();
+
+    store.insert(user);
+
+    assertEquals(user, store.find("sparse@example.com"));
+    assertEquals(0, store.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX).count());
+  }
+
+  @Test
+  void testReplaceMovesEmailAndBirthDate() {
+    store.insert(user(1));
+    User moved = user(1).toBuilder()
+        .email("moved@example.com")
+        .birthDate(LocalDate.of(2000, 1, 1))
+        .build();
+
+    store.replace("user1@example.com", moved);
+
+    assertNull(store.find("user1@example.com"));
+    assertEquals(moved, store.find("moved@example.com"));
+    assertEquals(List.of(moved), store.findByBirthDateRange(
+        LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 1)).toList());
+    assertEquals(0, store.findByBirthDateRange(
+        user(1).getBirthDate(), user(1).getBirthDate()).count());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void testRemoveKeepsOtherKeysReachable() {
+    // Enough users to grow the email table and collide in it
+    for (int i = 0; i < 10_000; i++) {
+      store.insert(user(i));
+    }
+
+    for (int i = 0; i < 10_000; i += 2) {
+      assertEquals(user(i), store.remove(String.format("user%d@example.com", i)));
+    }
+
+    assertEquals(5_000, store.size());
+    for (int i = 0; i < 10_000; i++) {
+      User found = store.find(String.format("user%d@example.com", i));
+      assertEquals(i % 2 == 0 ? null : user(i), found);
+    }
+    assertNull(store.remove("user0@example.com"));
+  }
+
+  @Test
+  void testFreedRowsAndDictionaryValuesAreReused() {
+    for (int i = 0; i < 100; i++) {
+      store.insert(user(i));
+    }
+    for (int i = 0; i < 100; i++) {
+      store.remove(String.format("user%d@example.com", i));
+    }
+    for (int i = 100; i < 200; i++) {
+      store.insert(user(i));
+    }
+
+    Set<User> all = store.findAll().collect(Collectors.toSet());
+
+    assertEquals(100, all.size());
+    for (int i = 100; i < 200; i++) {
+      assertTrue(all.contains(user(i)));
+    }
+  }
+
+  @Test
+  void testFindByBirthDateRange() {
+    for (int i = 0; i < 1_000; i++) {
+      store.insert(user(i));
+    }
+    LocalDate from = LocalDate.of(1990, 1, 10);
+    LocalDate to = LocalDate.of(1990, 1, 19);
+
+    List<User> result = store.findByBirthDateRange(from, to).toList();
+
+    // Birth dates cycle over 100 days, so each of the 10 days holds 10 users
+    assertEquals(100, result.size());
+    assertEquals(100, store.birthDateCount());
+    assertTrue(result.stream().allMatch(user ->
+        !user.getBirthDate().isBefore(from) && !user.getBirthDate().isAfter(to)));
+  }
+
+  @Test
+  void testConcurrentReadsDuringWrites() throws Exception {
+    for (int i = 0; i < 1_000; i++) {
+      store.insert(user(i));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        readers.add(executor.submit(() -> {
+          start.await();
+          while (writing.get()) {
+            // Users below 1000 are never touched by the writer and must always be complete
+            for (int i = 0; i < 1_000; i += 97) {
+              assertEquals(user(i), store.find(String.format("user%d@example.com", i)));
+            }
+            // Written users get days of their own, so the tree keeps growing and shrinking
+            assertEquals(1_000, store.findByBirthDateRange(LocalDate.of(1990, 1, 1),
+                LocalDate.of(1990, 4, 10)).count());
+            store.findByBirthDateRange(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31))
+                .forEach(user -> assertTrue(user.getEmail().endsWith("@example.com")));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (int round = 0; round < 20; round++) {
+        for (int i = 1_000; i < 3_000; i++) {
+          store.insert(user(i).toBuilder().birthDate(LocalDate.of(1990, 1, 1).plusDays(i))
+              .build());
+        }
+        for (int i = 1_000; i < 3_000; i++) {
+          store.remove(String.format("user%d@example.com", i));
+        }
+      }
+      writing.set(false);
+      for (Future<?> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(1_000, store.size());
+  }
+
+  private static User user(int i) {
+    return User.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i % 10)
+        .lastName("Last" + i)
+        .birthDate(LocalDate.of(1990, 1, 1).plusDays(i % 100))
+        .address(i % 3 == 0 ? null : "Main St")
+        .phoneNumber("123-456-" + i)
+        .build();
+  }
+
+}
@@ -0,0 +1,145 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class ObjectUserStoreTest {
+
+  private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+
+  private static final LocalDate TO = LocalDate.of(1990, 12, 31);
+
+  private final ObjectUserStore store = new ObjectUserStore();
+
+  @Test
+  void testRangeSearchSeesStateWhenItStarted() {
+    for (int i = 0; i < 3; i++) {
+      store.insert(user(i));
+    }
+
+    try (Stream<User> before = store.findByBirthDateRange(FROM, TO)) {
+      store.replace("user0@example.com",
+          user(0).toBuilder().birthDate(LocalDate.of(1990, 6, 1)).build());
+      store.remove("user1@example.com");
+      store.insert(user(3));
+
+      assertEquals(Set.of(user(0), user(1), user(2)), before.collect(Collectors.toSet()));
+    }
+    try (Stream<User> after = store.findByBirthDateRange(FROM, TO)) {
+      assertEquals(Set.of(user(0).toBuilder().birthDate(LocalDate.of(1990, 6, 1)).build(),
+          user(2), user(3)), after.collect(Collectors.toSet()));
+    }
+  }
+
+  @Test
+  void testSupersededVersionsAreDroppedOnceNoSearchSeesThem() {
+    store.insert(user(0));
+    User moved = user(0).toBuilder().birthDate(LocalDate.of(1990, 6, 1)).build();
+
+    Stream<User> open = store.findByBirthDateRange(FROM, TO);
+    store.replace("user0@example.com", moved);
+    // The old birth date is kept for the open search
+    assertEquals(2, store.birthDateCount());
+
+    open.close();
+    store.replace("user0@example.com", moved);
+
+    assertEquals(1, store.birthDateCount());
+    assertEquals(List.of(moved), store.findByBirthDateRange(FROM, TO).toList());
+  }
+
+  @Test
+  void testSearchThatFallsTooFarBehindFails() {
+    ObjectUserStore store = new ObjectUserStore(2);
+    for (int i = 0; i < 3; i++) {
+      store.insert(user(i));
+    }
+
+    try (Stream<User> stalled = store.findByBirthDateRange(FROM, TO)) {
+      Iterator<User> users = stalled.iterator();
+      assertEquals(user(0), users.next());
+      for (int i = 0; i < 3; i++) {
+        store.replace(String.format("user%d@example.com", i),
+            user(i).toBuilder().birthDate(LocalDate.of(1991, 1, 1).plusDays(i)).build());
+      }
+      // Only two superseded versions are kept for it, so user2 is gone from where it was
+      assertEquals(5, store.birthDateCount());
+      assertThrows(ConcurrentModificationException.class, () -> users.forEachRemaining(
+          user -> { }));
+    }
+    // Searches opened since see every user
+    assertEquals(3, store.findByBirthDateRange(FROM, LocalDate.of(1991, 12, 31)).count());
+  }
+
+  @Test
+  void testConcurrentRangeSearchesSeeEveryUserOnce() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      store.insert(user(i));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        readers.add(executor.submit(() -> {
+          start.await();
+          while (writing.get()) {
+            try (Stream<User> users = store.findByBirthDateRange(FROM, TO)) {
+              List<String> emails = users.map(User::getEmail).toList();
+              assertEquals(100, emails.size());
+              assertEquals(100, Set.copyOf(emails).size());
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      // Moves every user back and forth across the range
+      for (int round = 0; round < 200; round++) {
+        for (int i = 0; i < 100; i++) {
+          store.replace(String.format("user%d@example.com", i), user(i).toBuilder()
+              .birthDate(user(i).getBirthDate().plusDays(round % 2 == 0 ? 200 : 0))
+              .build());
+        }
+      }
+      writing.set(false);
+      for (Future<?> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Versions the last searches could see are dropped by the next write
+    store.replace("user0@example.com", user(0));
+    assertEquals(100, store.birthDateCount());
+  }
+
+  private static User user(int i) {
+    return User.builder()
+        .email(String.format("user%d@example.com", i))
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(FROM.plusDays(i))
+        .build();
+  }
+
+}
@@ -0,0 +1,114 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.User;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ShardedUserStoreTest {
+
+  private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1990, 1, 1);
+
+  private final ShardedUserStore store = new ShardedUserStore(4, 2, ObjectUserStore::new);
+
+  @AfterEach
+  void tearDown() {
+    store.close();
+  }
+
+  @Test
+  void testRangeSearchMergesShardsByBirthDate() {
+    IntStream.range(0, 100).forEach(i -> store.insert(user(i, FIRST_BIRTH_DATE.plusDays(i % 30))));
+
+    List<User> users;
+    try (Stream<User> range = store.findByBirthDateRange(FIRST_BIRTH_DATE.plusDays(10),
+        FIRST_BIRTH_DATE.plusDays(19))) {
+      users = range.toList();
+    }
+
+    assertEquals(100, store.size());
+    assertEquals(30, users.size());
+    assertEquals(users.stream().sorted(Comparator.comparing(User::getBirthDate)).toList(), users);
+  }
+
+  @Test
+  void testPointOperationsFollowEmailChanges() {
+    IntStream.range(0, 20).forEach(i -> store.insert(user(i, FIRST_BIRTH_DATE)));
+    assertFalse(store.insert(user(3, FIRST_BIRTH_DATE)));
+
+    // Most new emails belong to another shard
+    for (int i = 0; i < 20; i++) {
+      store.replace("user" + i + "@example.com",
+          user(i, FIRST_BIRTH_DATE).toBuilder().email("moved" + i + "@example.com").build());
+    }
+
+    assertEquals(20, store.size());
+    assertNull(store.find("user7@example.com"));
+    assertEquals("moved7@example.com", store.find("moved7@example.com").getEmail());
+    assertTrue(store.remove("moved7@example.com") != null);
+    assertEquals(19, store.findAll().count());
+  }
+
+  @Test
+  void testRangeSearchSeesUsersMovingBetweenShardsOnce() throws Exception {
+    IntStream.range(0, 100).forEach(i -> store.insert(user(i, FIRST_BIRTH_DATE.plusDays(i))
+        .toBuilder().email("0-" + i + "@example.com").build()));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int thread = 0; thread < 2; thread++) {
+        readers.add(executor.submit(() -> {
+          while (writing.get()) {
+            try (Stream<User> users = store.findByBirthDateRange(FIRST_BIRTH_DATE,
+                FIRST_BIRTH_DATE.plusDays(99))) {
+              List<LocalDate> birthDates = users.map(User::getBirthDate).toList();
+              assertEquals(100, Set.copyOf(birthDates).size());
+              assertEquals(100, birthDates.size());
+            }
+          }
+          return null;
+        }));
+      }
+      // Every round moves each user to a new email, most of them on another shard
+      for (int round = 0; round < 200; round++) {
+        for (int i = 0; i < 100; i++) {
+          store.replace(round + "-" + i + "@example.com", user(i, FIRST_BIRTH_DATE.plusDays(i)).toBuilder()
+              .email((round + 1) + "-" + i + "@example.com").build());
+        }
+      }
+      writing.set(false);
+      for (Future<?> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static User user(int i, LocalDate birthDate) {
+    return User.builder()
+        .email("user" + i + "@example.com")
+        .firstName("First" + i)
+        .lastName("Last" + i)
+        .birthDate(birthDate)
+        .build();
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.test_assignment.model.User;
+import com.example.test_assignment.model.UserChangeEvent;
+import com.example.test_assignment.model.UserChangeEvent.Kind;
+import com.example.test_assignment.service.UserChange.Type;
+import com.example.test_assignment.service.UserChangeFeed.Overflow;
+import com.example.test_assignment.service.UserChangeFeed.Subscription;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class UserChangeFeedTest {
+
+  @Test
+  void testSubscriberResumesFromTheBacklog() {
+    UserChangeFeed feed = feed(100, 10);
+    LongStream.rangeClosed(1, 5).forEach(sequence -> feed.onChange(change(sequence)));
+
+    Subscription resumed = feed.subscribe(2L, Overflow.DISCONNECT);
+    Subscription live = feed.subscribe(null, Overflow.DISCONNECT);
+    feed.onChange(change(6));
+
+    assertEquals(List.of("ADD 3", "ADD 4", "ADD 5", "ADD 6"), drain(resumed));
+    assertEquals(List.of("ADD 6"), drain(live));
+  }
+
+  @Test
+  void testSubscriberBeyondTheBacklogStartsWithAReset() {
+    UserChangeFeed feed = feed(3, 10);
+    LongStream.rangeClosed(1, 5).forEach(sequence -> feed.onChange(change(sequence)));
+
+    Subscription subscription = feed.subscribe(1L, Overflow.DISCONNECT);
+    feed.onChange(change(6));
+
+    assertEquals(List.of("RESET 5", "ADD 6"), drain(subscription));
+  }
+
+  @Test
+  void testDropSkipsChangesInPlaceOfAReset() {
+    UserChangeFeed feed = feed(100, 2);
+    Subscription subscription = feed.subscribe(null, Overflow.DROP);
+
+    LongStream.rangeClosed(1, 5).forEach(sequence -> feed.onChange(change(sequence)));
+    assertEquals(List.of("ADD 1", "ADD 2", "RESET 5"), drain(subscription));
+    LongStream.rangeClosed(6, 9).forEach(sequence -> feed.onChange(change(sequence)));
+    assertEquals("ADD 6", describe(subscription.poll()));
+    feed.onChange(change(10));
+
+    assertEquals(List.of("ADD 7", "RESET 9", "ADD 10"), drain(subscription));
+    assertEquals(5, feed.droppedChanges());
+    assertEquals(1, feed.subscribers());
+  }
+
+  @Test
+  void testDisconnectCutsOffASlowSubscriber() {
+    UserChangeFeed feed = feed(100, 2);
+    Subscription subscription = feed.subscribe(null, Overflow.DISCONNECT);
+
+    LongStream.rangeClosed(1, 3).forEach(sequence -> feed.onChange(change(sequence)));
+
+    assertEquals(0, feed.subscribers());
+    assertEquals(1, feed.disconnectedSubscribers());
+    assertFalse(subscription.isClosed());
+    assertEquals(List.of("ADD 1", "ADD 2"), drain(subscription));
+    assertTrue(subscription.isClosed());
+    // Reconnecting after the last change received misses nothing
+    assertEquals(List.of("ADD 3"), drain(feed.subscribe(2L, Overflow.DISCONNECT)));
+  }
+
+  @Test
+  void testSubscribersBeyondTheMaximumAreTurnedAway() {
+    UserChangeFeed feed = new UserChangeFeed(100, 10, 2, Duration.ofSeconds(5));
+    Subscription first = feed.subscribe(null, Overflow.DISCONNECT);
+    feed.subscribe(null, Overflow.DROP);
+
+    OverloadedException ex = assertThrows(OverloadedException.class,
+        () -> feed.subscribe(null, Overflow.DISCONNECT));
+    assertEquals(Duration.ofSeconds(5), ex.getRetryAfter());
+    assertEquals(2, feed.subscribers());
+
+    first.close();
+    feed.subscribe(null, Overflow.DISCONNECT);
+    assertEquals(2, feed.subscribers());
+  }
+
+  private static UserChangeFeed feed(int backlogSize, int subscriberBufferSize) {
+    return new UserChangeFeed(backlogSize, subscriberBufferSize, 10, Duration.ofSeconds(1));
+  }
+
+  private static List<String> drain(Subscription subscription) {
+    List<String> events = new ArrayList<>();
+    for (UserChangeEvent event = subscription.poll(); event != null; event = subscription.poll()) {
+      events.add(describe(event));
+    }
+    assertNull(subscription.poll());
+    return events;
+  }
+
+  private static String describe(UserChangeEvent event) {
+    assertEquals(event.getKind() == Kind.RESET, event.getUser() == null);
+    return event.getKind() + " " + event.getSequence();
+  }
+
+  private static UserChange change(long sequence) {
+    String email = "user" + sequence + "@example.com";
+    return new UserChange(sequence, Type.ADD, email, User.builder().email(email).build());
+  }
+
+}
@@ -3,24 +3,50 @@ package com.example.test_assignment.service;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.example.test_assignment.model.BatchItemResult;
+import com.example.test_assignment.model.BatchItemResult.Status;
+import com.example.test_assignment.model.BirthDateCount;
+import com.example.test_assignment.model.BirthDateCount.Grouping;
+import com.example.test_assignment.model.TextMatch;
 import com.example.test_assignment.model.User;
 import com.example.test_assignment.model.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
 import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.webjars.NotFoundException;
 
 @SpringBootTest
@@ -29,6 +55,9 @@ class UserServiceTest {
   @InjectMocks
   private UserService userService;
 
+  @Spy
+  private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
   @Value("${minimum-age}")
   private int minimumAge;
 
@@ -54,7 +83,7 @@ class UserServiceTest {
         .lastName("Doe")
         .birthDate(LocalDate.parse("1990-01-01"))
         .address("123 Main St")
-        .phoneNumber("123-456-7890")
+        .phoneNumber("1234567890")
         .build();
 
     // Call the service method
@@ -71,7 +100,7 @@ class UserServiceTest {
     User user = User.builder()
         .email("test@example.com")
         .build();
-    userService.users.add(user);
+    userService.insertUser(user);
 
     // Define the update map
     Map<String, Object> update = new HashMap<>();
@@ -93,13 +122,13 @@ class UserServiceTest {
     User user = User.builder()
         .email("test@example.com")
         .build();
-    userService.users.add(user);
+    userService.insertUser(user);
 
     // Call the service method
     userService.deleteUser("test@example.com");
 
     // Assertions
-    assertTrue(userService.users.isEmpty());
+    assertEquals(0, userService.store.size());
   }
 
   @Test
@@ -110,7 +139,7 @@ class UserServiceTest {
         createUserWithBirthDate("user2@example.com", LocalDate.of(1995, 3, 15)),
         createUserWithBirthDate("user3@example.com", LocalDate.of(2000, 5, 30))
     );
-    userService.users.addAll(userList);
+    userList.forEach(userService::insertUser);
 
     // Call the service method with a date range
     LocalDate fromDate = LocalDate.of(1994, 1, 1);
@@ -122,11 +151,10 @@ class UserServiceTest {
   }
 
   private User createUserWithBirthDate(String email, LocalDate birthDate) {
-    User user = User.builder()
+    return User.builder()
         .email(email)
+        .birthDate(birthDate)
         .build();
-    user.setBirthDate(birthDate);
-    return user;
   }
 
   @Test
@@ -134,16 +162,17 @@ class UserServiceTest {
     UserDto userDto = UserDto.builder().build();
 
     // Set up an existing user with different information
-    User existingUser = User.builder().build();
-    existingUser.setEmail("old@example.com");
-    existingUser.setFirstName("OldFirstName");
-    existingUser.setLastName("OldLastName");
-    existingUser.setBirthDate(LocalDate.of(1990, 1, 1));
-    existingUser.setAddress("OldAddress");
-    existingUser.setPhoneNumber("OldPhoneNumber");
+    User existingUser = User.builder()
+        .email("old@example.com")
+        .firstName("OldFirstName")
+        .lastName("OldLastName")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .address("OldAddress")
+        .phoneNumber("OldPhoneNumber")
+        .build();
 
     // Add the existing user to the service's user list
-    userService.users.add(existingUser);
+    userService.insertUser(existingUser);
 
     // Call the service method to update the user
     userDto.setEmail("old@example.com");
@@ -192,6 +221,7 @@ class UserServiceTest {
     UserDto userDto = UserDto.builder().build();
 
     // Set the user's birthdate to make their age valid (greater than or equal to the minimum age)
+    userDto.setEmail("valid-age@example.com");
     userDto.setBirthDate(LocalDate.now().minusYears(minimumAge));
 
     // Try to add the user with a valid age and expect no exceptions
@@ -212,7 +242,7 @@ class UserServiceTest {
         createUserWithBirthDate("user2@example.com", LocalDate.of(1995, 3, 15)),
         createUserWithBirthDate("user3@example.com", LocalDate.of(2000, 5, 30))
     );
-    userService.users.addAll(userList);
+    userList.forEach(userService::insertUser);
 
     // Search for users within a date range where there are no matching users and expect an empty list
     LocalDate fromDate = LocalDate.of(2022, 1, 1);
@@ -225,10 +255,11 @@ class UserServiceTest {
   @Test
   void testUpdateUserFieldsWithInvalidField() {
     // Set up an existing user
-    User existingUser = User.builder().build();
-    existingUser.setEmail("existing@example.com");
-    existingUser.setBirthDate(LocalDate.of(1990, 1, 1));
-    userService.users.add(existingUser);
+    User existingUser = User.builder()
+        .email("existing@example.com")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .build();
+    userService.insertUser(existingUser);
 
     // Attempt to update the user with an invalid field and expect a ValidationException
     Map<String, Object> update = new HashMap<>();
@@ -257,9 +288,10 @@ class UserServiceTest {
   @Test
   void testUpdateUserFieldsWithMultipleFields() {
     // Set up an existing user
-    User existingUser = User.builder().build();
-    existingUser.setEmail("existing@example.com");
-    userService.users.add(existingUser);
+    User existingUser = User.builder()
+        .email("existing@example.com")
+        .build();
+    userService.insertUser(existingUser);
 
     // Define an update map with multiple fields
     Map<String, Object> update = new HashMap<>();
@@ -280,22 +312,23 @@ class UserServiceTest {
   @Test
   void testDeleteUserByEmail() {
     // Set up an existing user
-    User existingUser = User.builder().build();
-    existingUser.setEmail("delete@example.com");
-    userService.users.add(existingUser);
+    User existingUser = User.builder()
+        .email("delete@example.com")
+        .build();
+    userService.insertUser(existingUser);
 
     // Delete the user by email
     userService.deleteUser("delete@example.com");
 
     // Verify that the user has been removed
-    assertFalse(userService.users.contains(existingUser));
+    assertFalse(userService.store.findAll().toList().contains(existingUser));
   }
 
   @Test
   void testSearchUsersByBirthDateRangeWithSingleUser() {
     // Create a single user with a birthdate within the specified range
     User user = createUserWithBirthDate("user@example.com", LocalDate.of(1990, 5, 15));
-    userService.users.add(user);
+    userService.insertUser(user);
 
     // Search for users within the date range
     LocalDate fromDate = LocalDate.of(1980, 1, 1);
@@ -307,4 +340,687 @@ class UserServiceTest {
     assertEquals(user, result.get(0));
   }
 
+  @Test
+  void testAddUserWithDuplicateEmail() {
+    UserDto userDto = UserDto.builder()
+        .email("duplicate@example.com")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .build();
+    userService.addUser(userDto);
+
+    // A second user with the same email must be rejected
+    assertThrows(ValidationException.class, () -> userService.addUser(userDto));
+    assertEquals(1, userService.store.size());
+  }
+
+  @Test
+  void testUpdateUserFieldsValidatesAllFieldsFirst() {
+    userService.insertUser(createUserWithBirthDate("user@example.com", LocalDate.of(1990, 1, 1)));
+    Map<String, Object> update = new LinkedHashMap<>();
+    update.put("First name", "Valid");
+    update.put("Last name", " ");
+    update.put("Birth date", LocalDate.now().plusDays(1).toString());
+    update.put("Email", "not an email");
+    update.put("Nickname", "Joe");
+
+    ValidationException exception = assertThrows(ValidationException.class,
+        () -> userService.updateUserFields("user@example.com", update));
+
+    // Every bad field is reported and none of the fields is applied
+    for (String field : List.of("Last name", "Birth date", "Email", "Nickname")) {
+      assertTrue(exception.getMessage().contains(field + ": "), field);
+    }
+    User user = userService.findUserByEmail("user@example.com");
+    assertEquals(LocalDate.of(1990, 1, 1), user.getBirthDate());
+    assertFalse("Valid".equals(user.getFirstName()));
+  }
+
+  @Test
+  void testUpdateUserFieldsMovesEmailKey() {
+    User existingUser = createUserWithBirthDate("old@example.com", LocalDate.of(1990, 1, 1));
+    userService.insertUser(existingUser);
+
+    Map<String, Object> update = new HashMap<>();
+    update.put("Email", "new@example.com");
+    userService.updateUserFields("old@example.com", update);
+
+    // The user is reachable by the new email only
+    assertEquals("new@example.com", userService.findUserByEmail("new@example.com").getEmail());
+    assertThrows(NotFoundException.class, () -> userService.findUserByEmail("old@example.com"));
+  }
+
+  @Test
+  void testUpdateUserFieldsToTakenEmail() {
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("second@example.com", LocalDate.of(1990, 1, 1)));
+
+    Map<String, Object> update = new HashMap<>();
+    update.put("Email", "second@example.com");
+
+    // Moving onto an existing email must fail and leave both users in place
+    assertThrows(ValidationException.class,
+        () -> userService.updateUserFields("first@example.com", update));
+    assertEquals("first@example.com", userService.findUserByEmail("first@example.com").getEmail());
+    assertEquals("second@example.com", userService.findUserByEmail("second@example.com").getEmail());
+  }
+
+  @Test
+  void testConcurrentAddUsers() throws Exception {
+    int usersPerThread = 100;
+
+    // Every thread adds its own users
+    runConcurrently(thread -> {
+      for (int i = 0; i < usersPerThread; i++) {
+        userService.addUser(UserDto.builder()
+            .email(String.format("user%d-%d@example.com", thread, i))
+            .birthDate(LocalDate.of(1990, 1, 1))
+            .build());
+      }
+    });
+
+    assertEquals(THREADS * usersPerThread, userService.store.size());
+  }
+
+  @Test
+  void testConcurrentAddSameEmail() throws Exception {
+    AtomicInteger added = new AtomicInteger();
+
+    // All threads race to register the same email, only one may win
+    runConcurrently(thread -> {
+      try {
+        userService.addUser(UserDto.builder()
+            .email("same@example.com")
+            .firstName("Thread" + thread)
+            .birthDate(LocalDate.of(1990, 1, 1))
+            .build());
+        added.incrementAndGet();
+      } catch (ValidationException e) {
+        // expected for every thread but one
+      }
+    });
+
+    assertEquals(1, added.get());
+    assertEquals(1, userService.store.size());
+  }
+
+  @Test
+  void testConcurrentEmailChangesAndDeletes() throws Exception {
+    for (int thread = 0; thread < THREADS; thread++) {
+      userService.insertUser(createUserWithBirthDate(
+          String.format("user%d@example.com", thread), LocalDate.of(1990, 1, 1)));
+    }
+
+    // Even threads move their user to a new email, odd threads delete theirs
+    runConcurrently(thread -> {
+      String email = String.format("user%d@example.com", thread);
+      if (thread % 2 == 0) {
+        Map<String, Object> update = new HashMap<>();
+        update.put("Email", String.format("moved%d@example.com", thread));
+        userService.updateUserFields(email, update);
+      } else {
+        userService.deleteUser(email);
+      }
+    });
+
+    assertEquals(THREADS / 2, userService.store.size());
+    userService.store.findAll().forEach(user -> {
+      assertTrue(user.getEmail().startsWith("moved"));
+      assertEquals(user, userService.findUserByEmail(user.getEmail()));
+    });
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRangeIsInclusive() {
+    userService.insertUser(createUserWithBirthDate("from@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("to@example.com", LocalDate.of(1990, 12, 31)));
+    userService.insertUser(createUserWithBirthDate("out@example.com", LocalDate.of(1991, 1, 1)));
+
+    List<User> result = userService.searchUsersByBirthDateRange(
+        LocalDate.of(1990, 1, 1), LocalDate.of(1990, 12, 31));
+
+    assertEquals(2, result.size());
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRangeAfterBirthDatePatch() {
+    userService.insertUser(createUserWithBirthDate("user@example.com", LocalDate.of(1990, 1, 1)));
+
+    Map<String, Object> update = new HashMap<>();
+    update.put("Birth date", "2000-01-01");
+    userService.updateUserFields("user@example.com", update);
+
+    // The user moves from the old date window to the new one
+    assertTrue(userService.searchUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1)).isEmpty());
+    assertEquals(1, userService.searchUsersByBirthDateRange(
+        LocalDate.of(1999, 1, 1), LocalDate.of(2001, 1, 1)).size());
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRangeAfterEmailPatch() {
+    userService.insertUser(createUserWithBirthDate("old@example.com", LocalDate.of(1990, 1, 1)));
+
+    Map<String, Object> update = new HashMap<>();
+    update.put("Email", "new@example.com");
+    userService.updateUserFields("old@example.com", update);
+
+    List<User> result = userService.searchUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1));
+    assertEquals(1, result.size());
+    assertEquals("new@example.com", result.get(0).getEmail());
+  }
+
+  @Test
+  void testSearchUsersByBirthDateRangeAfterUpdateAndDelete() {
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("second@example.com", LocalDate.of(1990, 1, 1)));
+
+    userService.updateUser(UserDto.builder()
+        .email("first@example.com")
+        .birthDate(LocalDate.of(1995, 1, 1))
+        .build());
+    userService.deleteUser("second@example.com");
+
+    assertTrue(userService.searchUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1)).isEmpty());
+    assertEquals(1, userService.searchUsersByBirthDateRange(
+        LocalDate.of(1994, 1, 1), LocalDate.of(1996, 1, 1)).size());
+  }
+
+  @Test
+  void testConcurrentSearchesDuringWrites() throws Exception {
+    LocalDate birthDate = LocalDate.of(1990, 1, 1);
+    for (int i = 0; i < 1000; i++) {
+      userService.insertUser(
+          createUserWithBirthDate(String.format("stable%d@example.com", i), birthDate));
+    }
+
+    // Half the threads churn users outside the window, the other half query the window
+    runConcurrently(thread -> {
+      for (int i = 0; i < 200; i++) {
+        if (thread % 2 == 0) {
+          String email = String.format("churn%d-%d@example.com", thread, i);
+          userService.insertUser(createUserWithBirthDate(email, LocalDate.of(2000, 1, 1)));
+          userService.deleteUser(email);
+        } else {
+          assertEquals(1000, userService.searchUsersByBirthDateRange(
+              birthDate.minusDays(1), birthDate.plusDays(1)).size());
+        }
+      }
+    });
+  }
+
+  @Test
+  void testStreamUsersByBirthDateRange() {
+    userService.insertUser(createUserWithBirthDate("in@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("out@example.com", LocalDate.of(2000, 1, 1)));
+
+    List<User> result = userService.streamUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1)).toList();
+
+    assertEquals(1, result.size());
+    assertEquals("in@example.com", result.get(0).getEmail());
+
+    // The range is validated before any user is produced
+    assertThrows(ValidationException.class, () -> userService.streamUsersByBirthDateRange(
+        LocalDate.of(1991, 1, 1), LocalDate.of(1989, 1, 1)));
+  }
+
+  @Test
+  void testOperationsAreTimed() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ReflectionTestUtils.setField(userService, "meterRegistry", registry);
+    userService.insertUser(createUserWithBirthDate("timed@example.com", LocalDate.of(1990, 1, 1)));
+
+    userService.updateUserFields("timed@example.com", Map.of("First name", "Timed"));
+    assertThrows(NotFoundException.class, () -> userService.deleteUser("missing@example.com"));
+    try (Stream<User> users = userService.streamUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1))) {
+      assertEquals(1, users.count());
+    }
+
+    assertEquals(1, registry.get("user.service")
+        .tags("operation", "updateUserFields", "exception", "none").timer().count());
+    assertEquals(1, registry.get("user.service")
+        .tags("operation", "deleteUser", "exception", "NotFoundException").timer().count());
+    // Streams are timed when closed
+    assertEquals(1, registry.get("user.service")
+        .tags("operation", "streamUsersByBirthDateRange").timer().count());
+  }
+
+  @Test
+  void testCachedSearchesSeeWrites() {
+    BirthDateRangeCache cache = new BirthDateRangeCache(1000);
+    ReflectionTestUtils.setField(userService, "rangeCache", cache);
+    LocalDate from = LocalDate.of(1989, 1, 1);
+    LocalDate to = LocalDate.of(1991, 1, 1);
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("other@example.com", LocalDate.of(2000, 1, 1)));
+
+    assertEquals(1, userService.searchUsersByBirthDateRange(from, to).size());
+    assertEquals(1, userService.searchUsersByBirthDateRange(from, to).size());
+    assertEquals(1, cache.hitCount());
+
+    userService.updateUserFields("other@example.com", Map.of("Birth date", "1990-06-01"));
+    assertEquals(2, userService.searchUsersByBirthDateRange(from, to).size());
+    userService.deleteUser("first@example.com");
+    assertEquals(1, userService.searchUsersByBirthDateRange(from, to).size());
+    assertEquals(2, cache.invalidationCount());
+  }
+
+  @Test
+  void testBirthDateRangeVersionTag() {
+    LocalDate from = LocalDate.of(1989, 1, 1);
+    LocalDate to = LocalDate.of(1991, 1, 1);
+    String empty = userService.birthDateRangeVersionTag(from, to);
+    userService.insertUser(createUserWithBirthDate("in@example.com", LocalDate.of(1990, 1, 1)));
+    String added = userService.birthDateRangeVersionTag(from, to);
+
+    // Changes outside the range leave its tag alone
+    userService.insertUser(createUserWithBirthDate("out@example.com", LocalDate.of(2000, 1, 1)));
+    userService.updateUserFields("out@example.com", Map.of("First name", "Out"));
+    assertEquals(added, userService.birthDateRangeVersionTag(from, to));
+
+    // Moving a user into or out of the range changes it, as does any change inside it
+    userService.updateUserFields("out@example.com", Map.of("Birth date", "1990-06-01"));
+    String movedIn = userService.birthDateRangeVersionTag(from, to);
+    userService.updateUserFields("in@example.com", Map.of("First name", "In"));
+    String patched = userService.birthDateRangeVersionTag(from, to);
+    userService.deleteUser("out@example.com");
+    String deleted = userService.birthDateRangeVersionTag(from, to);
+
+    assertEquals(5, Stream.of(empty, added, movedIn, patched, deleted).distinct().count());
+    // Dates outside the tracked days still count, without touching the first tracked day
+    LocalDate firstDay = LocalDate.of(1900, 1, 1);
+    String firstMonth = userService.birthDateRangeVersionTag(firstDay, firstDay.plusMonths(1));
+    userService.insertUser(createUserWithBirthDate("old@example.com", LocalDate.of(1850, 1, 1)));
+    assertNotEquals(deleted, userService.birthDateRangeVersionTag(LocalDate.MIN, to));
+    assertEquals(firstMonth,
+        userService.birthDateRangeVersionTag(firstDay, firstDay.plusMonths(1)));
+    assertThrows(ValidationException.class,
+        () -> userService.birthDateRangeVersionTag(to, from));
+  }
+
+  @Test
+  void testCountUsersByBirthDate() {
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1990, 1, 15)));
+    userService.insertUser(createUserWithBirthDate("second@example.com", LocalDate.of(1990, 3, 1)));
+    userService.insertUser(createUserWithBirthDate("third@example.com", LocalDate.of(1991, 3, 31)));
+    LocalDate from = LocalDate.of(1990, 2, 1);
+    LocalDate to = LocalDate.of(1991, 12, 31);
+
+    assertEquals(List.of(
+            BirthDateCount.builder().bucket("1990")
+                .from(from).to(LocalDate.of(1990, 12, 31)).count(1).build(),
+            BirthDateCount.builder().bucket("1991")
+                .from(LocalDate.of(1991, 1, 1)).to(to).count(1).build()),
+        userService.countUsersByBirthDate(from, to, Grouping.YEAR));
+
+    // Counts follow moves between buckets and deletes
+    userService.updateUserFields("second@example.com", Map.of("Birth date", "1991-03-02"));
+    userService.updateUserFields("second@example.com", Map.of("First name", "Second"));
+    userService.deleteUser("first@example.com");
+    assertEquals(List.of(0L, 2L), userService.countUsersByBirthDate(from, to, Grouping.YEAR)
+        .stream().map(BirthDateCount::getCount).toList());
+    assertEquals(List.of("1991-03", "1991-04"), userService.countUsersByBirthDate(
+            LocalDate.of(1991, 3, 1), LocalDate.of(1991, 4, 30), Grouping.MONTH)
+        .stream().map(BirthDateCount::getBucket).toList());
+    assertEquals(List.of(2L, 0L), userService.countUsersByBirthDate(
+            LocalDate.of(1991, 3, 1), LocalDate.of(1991, 4, 30), Grouping.MONTH)
+        .stream().map(BirthDateCount::getCount).toList());
+    assertThrows(ValidationException.class,
+        () -> userService.countUsersByBirthDate(to, from, Grouping.YEAR));
+  }
+
+  @Test
+  void testCountUsersBornOutsideTheTrackedDays() {
+    userService.insertUser(createUserWithBirthDate("old@example.com", LocalDate.of(1850, 6, 1)));
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1900, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("late@example.com", LocalDate.of(2100, 1, 1)));
+
+    assertEquals(List.of(1L, 1L), userService.countUsersByBirthDate(LocalDate.of(1850, 1, 1),
+            LocalDate.of(1900, 12, 31), Grouping.YEAR).stream()
+        .filter(count -> count.getCount() > 0).map(BirthDateCount::getCount).toList());
+    // Neither bucket borrows users from the other side of 1900-01-01
+    assertEquals(List.of(0L), userService.countUsersByBirthDate(LocalDate.of(1860, 1, 1),
+            LocalDate.of(1860, 12, 31), Grouping.YEAR).stream()
+        .map(BirthDateCount::getCount).toList());
+    assertEquals(List.of(1L), userService.countUsersByBirthDate(LocalDate.of(1900, 1, 1),
+            LocalDate.of(1900, 1, 31), Grouping.MONTH).stream()
+        .map(BirthDateCount::getCount).toList());
+    assertEquals(List.of(1L), userService.countUsersByBirthDate(LocalDate.of(2100, 1, 1),
+            LocalDate.of(2100, 6, 30), Grouping.YEAR).stream()
+        .map(BirthDateCount::getCount).toList());
+
+    userService.deleteUser("old@example.com");
+    assertEquals(List.of(0L), userService.countUsersByBirthDate(LocalDate.of(1850, 1, 1),
+            LocalDate.of(1850, 12, 31), Grouping.YEAR).stream()
+        .map(BirthDateCount::getCount).toList());
+  }
+
+  @Test
+  void testCountUsersByBirthDateLimitsBuckets() {
+    assertEquals(1200, userService.countUsersByBirthDate(LocalDate.of(1900, 1, 1),
+        LocalDate.of(1999, 12, 31), Grouping.MONTH).size());
+    assertThrows(ValidationException.class, () -> userService.countUsersByBirthDate(
+        LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31), Grouping.MONTH));
+    assertThrows(ValidationException.class, () -> userService.countUsersByBirthDate(
+        LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31), Grouping.YEAR));
+
+    ReflectionTestUtils.setField(userService, "ageBandYears", 0);
+    assertThrows(IllegalArgumentException.class, () -> userService.checkAgeBands());
+  }
+
+  @Test
+  void testCountUsersByAgeBand() {
+    ReflectionTestUtils.setField(userService, "minimumAge", 18);
+    LocalDate today = LocalDate.now();
+    userService.insertUser(createUserWithBirthDate("child@example.com", today.minusYears(10)));
+    userService.insertUser(createUserWithBirthDate("adult@example.com", today.minusYears(18)));
+    userService.insertUser(createUserWithBirthDate("almost28@example.com",
+        today.minusYears(28).plusDays(1)));
+    userService.insertUser(createUserWithBirthDate("just28@example.com", today.minusYears(28)));
+
+    List<BirthDateCount> counts = userService.countUsersByBirthDate(
+        today.minusYears(38), today, Grouping.AGE_BAND);
+
+    assertEquals(List.of("0-17", "18-27", "28-37", "38-47"),
+        counts.stream().map(BirthDateCount::getBucket).toList());
+    assertEquals(List.of(1L, 2L, 1L, 0L),
+        counts.stream().map(BirthDateCount::getCount).toList());
+    // The oldest band is clipped to the window
+    assertEquals(today.minusYears(38), counts.get(3).getFrom());
+    assertEquals(today.minusYears(38), counts.get(3).getTo());
+  }
+
+  @Test
+  void testCountUsersByAgeBandFarInThePast() {
+    ReflectionTestUtils.setField(userService, "minimumAge", 18);
+    ReflectionTestUtils.setField(userService, "ageBandYears", 1);
+    LocalDate today = LocalDate.now();
+    LocalDate to = today.minusYears(900_000_000);
+    userService.insertUser(createUserWithBirthDate("ancient@example.com", to.minusDays(1)));
+
+    // Starts at the band holding 'to' instead of walking the 900 million bands before it
+    List<BirthDateCount> counts = assertTimeoutPreemptively(Duration.ofSeconds(1),
+        () -> userService.countUsersByBirthDate(to.minusYears(1), to, Grouping.AGE_BAND));
+
+    assertEquals(List.of("900000000-900000000", "900000001-900000001"),
+        counts.stream().map(BirthDateCount::getBucket).toList());
+    assertEquals(List.of(1L, 0L), counts.stream().map(BirthDateCount::getCount).toList());
+  }
+
+  @Test
+  void testSearchUsersByText() {
+    userService.insertUser(namedUser("jsmith@example.com", "John", "Smith"));
+    userService.insertUser(namedUser("anna@example.com", "Anna", "Blacksmith"));
+    userService.insertUser(namedUser("smithers@example.org", "Waylon", "Smithers"));
+
+    assertEquals(Set.of("jsmith@example.com", "smithers@example.org"),
+        textSearchEmails("SMITH", TextMatch.PREFIX, 10));
+    assertEquals(Set.of("jsmith@example.com", "anna@example.com", "smithers@example.org"),
+        textSearchEmails("smith", TextMatch.SUBSTRING, 10));
+    assertEquals(Set.of("smithers@example.org"), textSearchEmails(".org", TextMatch.SUBSTRING, 10));
+    // Too short for a substring, so matched as a prefix
+    assertEquals(Set.of("anna@example.com"), textSearchEmails("an", TextMatch.SUBSTRING, 10));
+    assertEquals(2, userService.searchUsersByText("smith", TextMatch.SUBSTRING, 2).size());
+
+    // The index follows renames, email changes and deletes
+    userService.updateUserFields("anna@example.com", Map.of("Last name", "Jones"));
+    userService.updateUserFields("jsmith@example.com", Map.of("Email", "john@example.com"));
+    userService.deleteUser("smithers@example.org");
+    assertEquals(Set.of("john@example.com"), textSearchEmails("smith", TextMatch.SUBSTRING, 10));
+    assertEquals(Set.of(), textSearchEmails("jsmith", TextMatch.PREFIX, 10));
+    assertEquals(Set.of("anna@example.com"), textSearchEmails("jones", TextMatch.PREFIX, 10));
+
+    assertThrows(ValidationException.class,
+        () -> userService.searchUsersByText(" ", TextMatch.PREFIX, 10));
+    assertThrows(ValidationException.class,
+        () -> userService.searchUsersByText("smith", TextMatch.PREFIX, 0));
+  }
+
+  @Test
+  void testSearchUsersByTextWithoutIndex() {
+    ReflectionTestUtils.setField(userService, "textIndex", new UserTextIndex(false));
+    userService.insertUser(namedUser("jsmith@example.com", "John", "Smith"));
+    userService.insertUser(namedUser("anna@example.com", "Anna", "Blacksmith"));
+
+    assertEquals(Set.of("jsmith@example.com", "anna@example.com"),
+        textSearchEmails("SMITH", TextMatch.SUBSTRING, 10));
+    assertEquals(Set.of("jsmith@example.com"), textSearchEmails("smi", TextMatch.PREFIX, 10));
+  }
+
+  @Test
+  void testFindUsersByPhoneNumber() {
+    userService.addUser(UserDto.builder()
+        .email("caller@example.com")
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .phoneNumber("00 1 (555) 010-0100")
+        .build());
+    userService.insertUser(namedUser("other@example.com", "Jane", "Doe"));
+    userService.updateUserFields("other@example.com", Map.of("Phone number", "+1.555.010.0100"));
+
+    // Numbers are stored and looked up in their canonical form
+    assertEquals("+15550100100", userService.findUserByEmail("caller@example.com").getPhoneNumber());
+    assertEquals(Set.of("caller@example.com", "other@example.com"),
+        phoneEmails("+1 555 010 0100"));
+
+    // The index follows patched numbers, email changes and deletes
+    userService.updateUserFields("other@example.com", Map.of("Phone number", "555-0199"));
+    userService.updateUserFields("caller@example.com", Map.of("Email", "john@example.com"));
+    assertEquals(Set.of("john@example.com"), phoneEmails("+15550100100"));
+    assertEquals(Set.of("other@example.com"), phoneEmails("555 0199"));
+    userService.deleteUser("john@example.com");
+    assertEquals(Set.of(), phoneEmails("+15550100100"));
+
+    assertThrows(ValidationException.class, () -> userService.findUsersByPhoneNumber(" - "));
+  }
+
+  private Set<String> phoneEmails(String phoneNumber) {
+    return userService.findUsersByPhoneNumber(phoneNumber).stream()
+        .map(User::getEmail)
+        .collect(Collectors.toSet());
+  }
+
+  private Set<String> textSearchEmails(String query, TextMatch match, int limit) {
+    return userService.searchUsersByText(query, match, limit).stream()
+        .map(User::getEmail)
+        .collect(Collectors.toSet());
+  }
+
+  private static User namedUser(String email, String firstName, String lastName) {
+    return User.builder()
+        .email(email)
+        .firstName(firstName)
+        .lastName(lastName)
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .build();
+  }
+
+  @Test
+  void testAddUsersReportsPerItemResults() {
+    UserDto valid = UserDto.builder()
+        .email("valid@example.com")
+        .firstName("John")
+        .lastName("Doe")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .build();
+    UserDto invalid = UserDto.builder()
+        .email("not-an-email")
+        .birthDate(LocalDate.of(1990, 1, 1))
+        .build();
+
+    List<BatchItemResult> results = userService.addUsers(Arrays.asList(valid, invalid, null, valid));
+
+    // One bad record does not fail the batch
+    assertEquals(4, results.size());
+    assertEquals(Status.CREATED, results.get(0).getStatus());
+    assertEquals(Status.INVALID, results.get(1).getStatus());
+    assertTrue(results.get(1).getErrors().containsKey("email"));
+    assertTrue(results.get(1).getErrors().containsKey("firstName"));
+    assertEquals(Status.INVALID, results.get(2).getStatus());
+    assertEquals(Status.CONFLICT, results.get(3).getStatus());
+    assertEquals(1, userService.store.size());
+    assertEquals(1, userService.searchUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1)).size());
+  }
+
+  @Test
+  void testAddUsersLargeBatch() {
+    List<UserDto> userDtos = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      userDtos.add(UserDto.builder()
+          .email(String.format("user%d@example.com", i))
+          .firstName("John")
+          .lastName("Doe")
+          .birthDate(LocalDate.of(1990, 1, 1))
+          .build());
+    }
+
+    List<BatchItemResult> results = userService.addUsers(userDtos);
+
+    // Results keep the order of the input
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(i, results.get(i).getIndex());
+      assertEquals(Status.CREATED, results.get(i).getStatus());
+    }
+    assertEquals(10_000, userService.store.size());
+  }
+
+  @Test
+  void testUpdateUsersFields() {
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("second@example.com", LocalDate.of(1990, 1, 1)));
+
+    Map<String, Map<String, Object>> updates = new LinkedHashMap<>();
+    updates.put("first@example.com", Map.of("First name", "John", "Birth date", "1995-01-01"));
+    updates.put("missing@example.com", Map.of("First name", "Nobody"));
+    updates.put("second@example.com", Map.of("Invalid Field", "NewValue"));
+
+    List<BatchItemResult> results = userService.updateUsersFields(updates);
+
+    // Every email gets its own outcome
+    assertEquals(Status.UPDATED, results.get(0).getStatus());
+    assertEquals(Status.NOT_FOUND, results.get(1).getStatus());
+    assertEquals(Status.INVALID, results.get(2).getStatus());
+    assertEquals("John", userService.findUserByEmail("first@example.com").getFirstName());
+    assertEquals(1, userService.searchUsersByBirthDateRange(
+        LocalDate.of(1994, 1, 1), LocalDate.of(1996, 1, 1)).size());
+  }
+
+  @Test
+  void testDeleteUsers() {
+    userService.insertUser(createUserWithBirthDate("first@example.com", LocalDate.of(1990, 1, 1)));
+    userService.insertUser(createUserWithBirthDate("second@example.com", LocalDate.of(1990, 1, 1)));
+
+    List<BatchItemResult> results = userService.deleteUsers(
+        List.of("first@example.com", "missing@example.com", "second@example.com"));
+
+    assertEquals(Status.DELETED, results.get(0).getStatus());
+    assertEquals(Status.NOT_FOUND, results.get(1).getStatus());
+    assertEquals(Status.DELETED, results.get(2).getStatus());
+    assertEquals(0, userService.store.size());
+    assertTrue(userService.searchUsersByBirthDateRange(
+        LocalDate.of(1989, 1, 1), LocalDate.of(1991, 1, 1)).isEmpty());
+  }
+
+  @Test
+  void testFailingListenerHasTheChangeUndoneEverywhere() {
+    List<UserChange> seen = new ArrayList<>();
+    AtomicInteger refusing = new AtomicInteger();
+    AtomicInteger failing = new AtomicInteger();
+    UserChangeListener recorder = seen::add;
+    UserChangeListener faulty = new UserChangeListener() {
+      @Override
+      public void prepare(UserChange change) {
+        if (refusing.get() > 0) {
+          throw new IllegalStateException("Change log is not open");
+        }
+      }
+
+      @Override
+      public void onChange(UserChange change) {
+        if (failing.get() > 0) {
+          throw new IllegalStateException("Listener failed");
+        }
+      }
+    };
+    ReflectionTestUtils.setField(userService, "changeListeners", List.of(recorder, faulty));
+    userService.insertUser(namedUser("john@example.com", "John", "Smith"));
+    LocalDate from = LocalDate.of(1989, 1, 1);
+    LocalDate to = LocalDate.of(1991, 1, 1);
+    String tag = userService.birthDateRangeVersionTag(from, to);
+
+    // Refused before anything saw the change
+    refusing.set(1);
+    assertThrows(IllegalStateException.class,
+        () -> userService.insertUser(namedUser("jane@example.com", "Jane", "Doe")));
+    assertThrows(IllegalStateException.class,
+        () -> userService.updateUserFields("john@example.com", Map.of("Email", "js@example.com")));
+    assertThrows(IllegalStateException.class, () -> userService.deleteUser("john@example.com"));
+    assertEquals(1, seen.size());
+
+    // Failed once stored: the store is put back, and the recorder that took each change gets a
+    // second one undoing it
+    refusing.set(0);
+    failing.set(1);
+    assertThrows(IllegalStateException.class,
+        () -> userService.insertUser(namedUser("jane@example.com", "Jane", "Doe")));
+    assertThrows(IllegalStateException.class,
+        () -> userService.updateUserFields("john@example.com", Map.of("Email", "js@example.com",
+            "Birth date", "2000-01-01")));
+    assertThrows(IllegalStateException.class, () -> userService.deleteUser("john@example.com"));
+
+    assertEquals(7, userService.currentSequence());
+    assertEquals(LongStream.rangeClosed(1, 7).boxed().toList(),
+        seen.stream().map(UserChange::sequence).toList());
+    assertEquals(1, userService.store.size());
+    assertEquals("john@example.com", userService.findUserByEmail("john@example.com").getEmail());
+    assertEquals(Set.of("john@example.com"), textSearchEmails("smith", TextMatch.PREFIX, 10));
+    assertEquals(Set.of(), textSearchEmails("jane", TextMatch.PREFIX, 10));
+    assertEquals(List.of("john@example.com"), userService.searchUsersByBirthDateRange(from, to)
+        .stream().map(User::getEmail).toList());
+    assertEquals(List.of(1L), userService.countUsersByBirthDate(from, to, Grouping.YEAR).stream()
+        .filter(count -> count.getBucket().equals("1990")).map(BirthDateCount::getCount).toList());
+    // Readers may have seen the undone changes
+    assertNotEquals(tag, userService.birthDateRangeVersionTag(from, to));
+
+    // Replaying what the recorder took gives the store's users
+    UserService replayed = new UserService();
+    seen.forEach(replayed::applyChange);
+    assertEquals(userService.streamAllUsers().toList(), replayed.streamAllUsers().toList());
+    assertEquals(7, replayed.currentSequence());
+
+    // The next change is numbered after the ones used up
+    failing.set(0);
+    userService.deleteUser("john@example.com");
+    assertEquals(8, seen.get(seen.size() - 1).sequence());
+  }
+
+  private static final int THREADS = 64;
+
+  private void runConcurrently(IntConsumer task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < THREADS; thread++) {
+        int id = thread;
+        futures.add(executor.submit(() -> {
+          start.await();
+          task.accept(id);
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
 }
@@ -0,0 +1,100 @@
+package com.example.test_assignment.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.test_assignment.model.User;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class UserTextIndexTest {
+
+  private final UserTextIndex index = new UserTextIndex(true);
+
+  @Test
+  void testSharedValuesKeepEveryUser() {
+    index.add(user("a@example.com", "Ann", "Lee"));
+    index.add(user("b@example.com", "Ann", "Leeds"));
+
+    assertEquals(Set.of("a@example.com", "b@example.com"), prefix("ann"));
+    assertEquals(Set.of("a@example.com", "b@example.com"), prefix("lee"));
+    assertEquals(Set.of("b@example.com"), substring("eds"));
+
+    index.remove(user("a@example.com", "Ann", "Lee"));
+
+    assertEquals(Set.of("b@example.com"), prefix("ann"));
+    assertEquals(Set.of("b@example.com"), substring("lee"));
+    index.remove(user("b@example.com", "Ann", "Leeds"));
+    assertEquals(Set.of(), prefix("ann"));
+    assertEquals(Set.of(), substring("ann"));
+  }
+
+  @Test
+  void testRemovedValuesNeverMatch() {
+    // Removing most values renumbers the rest into new trigram arrays
+    IntStream.range(0, 1_000).forEach(i ->
+        index.add(user("user" + i + "@example.com", "First" + i, "Last" + i)));
+    IntStream.range(0, 900).forEach(i ->
+        index.remove(user("user" + i + "@example.com", "First" + i, "Last" + i)));
+    IntStream.range(0, 100).forEach(i ->
+        index.add(user("new" + i + "@example.org", "Other" + i, "Name" + i)));
+
+    assertEquals(100, substring("@example.com").size());
+    assertEquals(Set.of("user950@example.com"), substring("rst950"));
+    assertEquals(Set.of(), substring("rst95@"));
+    assertEquals(Set.of(), prefix("first1"));
+    assertEquals(Set.of("new42@example.org"), substring("her42"));
+    assertEquals(100, prefix("new").size());
+  }
+
+  @Test
+  void testSearchesRunningWhileAddsGrowTheIndex() throws Exception {
+    // Every user adds three values, so the writer grows the text array many times over while the
+    // readers search
+    int users = 50_000;
+    ExecutorService readers = Executors.newFixedThreadPool(4);
+    try {
+      AtomicBoolean adding = new AtomicBoolean(true);
+      List<Future<?>> searches = IntStream.range(0, 4)
+          .mapToObj(i -> readers.submit(() -> {
+            while (adding.get()) {
+              substring(i + "@example.com");
+            }
+          }))
+          .collect(Collectors.toList());
+      IntStream.range(0, users).forEach(i ->
+          index.add(user("user" + i + "@example.com", "First" + i, "Last" + i)));
+      adding.set(false);
+      for (Future<?> search : searches) {
+        search.get();
+      }
+    } finally {
+      readers.shutdownNow();
+    }
+
+    assertEquals(users, substring("@example.com").size());
+  }
+
+  private Set<String> prefix(String prefix) {
+    return index.prefixMatches(prefix).collect(Collectors.toSet());
+  }
+
+  private Set<String> substring(String text) {
+    return index.substringMatches(text).collect(Collectors.toSet());
+  }
+
+  private static User user(String email, String firstName, String lastName) {
+    return User.builder()
+        .email(email)
+        .firstName(firstName)
+        .lastName(lastName)
+        .build();
+  }
+
+}